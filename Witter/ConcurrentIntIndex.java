@@ -0,0 +1,79 @@
+/**
+ * PREAMBLE
+ *
+ * This is the CONCURRENT storage of an IntIndex: a ConcurrentSkipListMap from the id to the
+ * value. Unlike the red-black trees, it can be read and written by many threads at once
+ * without any lock. A skip list is a sorted linked list with extra links that skip ahead
+ * over more and more of it, so that a search takes O(log n) expected. An insert only
+ * changes a few links, each with a compare-and-set, so inserts of different ids go on in
+ * parallel, and a read never waits for one. There is no rebalancing, which is what makes
+ * a balanced tree so hard to share between threads.
+ *
+ * The price is that every id is boxed into an Integer, and every entry takes a node object
+ * plus the index nodes above it, so this is heavier than NODES in both time and memory for
+ * a single thread. It is for a store that many threads write to at once.
+ *
+ * insert is atomic: if two threads insert the same id, exactly one of them gets true.
+ * fillDescending sees every entry inserted before it started, and may or may not see those
+ * inserted while it runs.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentIntIndex<V> implements IntIndex<V> {
+
+    // the map's own size() counts every entry, so the amount is kept here as well
+    private final ConcurrentSkipListMap<Integer,V> map;
+    private final AtomicInteger size;
+
+    public ConcurrentIntIndex() {
+        map = new ConcurrentSkipListMap<Integer,V>();
+        size = new AtomicInteger(0);
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // see IntIndex.size
+    public int size() {
+        return size.get();
+    }
+
+    // see IntIndex.get – O(log n) expected, and never waits for a writer
+    public V get(int key) {
+        return map.get(key);
+    }
+
+    // see IntIndex.insert – O(log n) expected
+    public boolean insert(int key, V value) {
+        if (map.putIfAbsent(key, value) != null) {return false;}
+        size.incrementAndGet();
+        return true;
+    }
+
+    // see IntIndex.fillDescending. Entries inserted while it runs are left out once the
+    // array is full.
+    public int fillDescending(V[] into) {
+        int i = 0;
+        for (V v : map.descendingMap().values()) {
+            if (i == into.length) {break;}
+            into[i++] = v;
+        }
+        return i;
+    }
+
+    // see IntIndex.buildFromSorted. A skip list can't be linked up in one go while other
+    // threads may be reading it, so this is one insert after another, at O(n log n)
+    // expected.
+    public void buildFromSorted(int[] keys, V[] values, int n) {
+        if (size.get() != 0) {throw new IllegalStateException("only an empty index can be built");}
+        for (int i = 1; i < n; i++) {
+            if (keys[i] <= keys[i-1]) {throw new IllegalArgumentException("the keys are not strictly increasing");}
+        }
+        for (int i = 0; i < n; i++) {insert(keys[i], values[i]);}
+    }
+}
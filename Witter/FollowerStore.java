@@ -3,9 +3,15 @@
  *
  * I again implemented a Red-Black tree in FollowerStore, for speed and scalability.
  *
- * However, this time I implemented only one tree: a tree of Users ordered by UserID.
- * The node overhead this time includes an integer array of followers and followees.
- * It also contains two arrays of dates that represent when follows occured.
+ * However, this time I implemented only one tree: a tree of Users ordered by UserID. It is
+ * an IntIndex (the shared tree, specialised for int keys), whose values are UserNodes. Whether
+ * it stores its entries as node objects or in parallel arrays is chosen in the constructor.
+ * The overhead of a UserNode includes an integer array of followers and followees.
+ * It also contains two arrays of times (in milliseconds) that represent when follows occured.
+ * These arrays are buffers that double when they are full, so building the follower list
+ * of a user with n followers costs O(n) rather than O(n^2), as it did when every follow
+ * copied the whole array into a new one just one longer. Once the graph is loaded,
+ * trimToSize shrinks every buffer back to the amount of follows in it.
  *
  * When one user follows another, the relationship is stored twice. First, the uid of the
  * follower is stored in the follower array of the node of the followee. Second, the uid
@@ -14,21 +20,56 @@
  * I justify doing this because it speeds up the getFollowers and getFollows methods to
  * lograithmic time.
  *
- * Again, I order the followers and followees by quickSort, which is of O(nlogn) runtime.
- * This is slow, but I deemed it to be acceptable since it is unrealistic that the number of 
- * followees often exceed 10,000.
+ * The followers and followees used to be quicksorted by date whenever they were read after
+ * a follow, at O(nlogn). Instead, they are now kept in date order as they are added: a
+ * follow is nearly always the latest one, and just goes at the end of the buffer, and one
+ * that isn't is put in its place, found by binary search (O(log n) to find, though the
+ * later ones still have to be moved up to make room for it).
  *
- * However, between two follows, the order is stored and retrieval of both the followers and
- * followees arrays of a User can occur in constant time once the User is found.
+ * Between two follows, retrieval of both the followers and followees arrays of a User can
+ * occur in constant time once the User is found: they are copied out of the buffers, newest
+ * first, at their exact length, and kept until the next follow of that User. After a
+ * follow, that copy is all a read costs, at O(n), with no sorting. getFollowers and
+ * getFollows return a copy of what is kept, so that no caller can change it for the rest,
+ * and getFollowersView and getFollowsView a read-only IntSlice of it, which costs nothing.
+ *
+ * Every user with more than a handful of followers (or follows) also has an IntLongMap of
+ * them: a hash table from their ids to the times of the follows. isAFollower, and the check
+ * that a follow isn't there already, look the id up there in O(1) expected, rather than
+ * going through millions of followers one by one.
+ *
+ * getTopUsers used to copy every user out of the tree and quicksort them by their amount of
+ * followers, at O(nlogn), whenever a user was added (and not at all when a follower was, so
+ * it could be out of date). Instead, every user has a place in a leaderboard, where the users
+ * with the same amount of followers are next to each other, and where each such group
+ * starts is kept. When a user gets one more follower, it swaps places with the first user
+ * of its group, and joins the end of the group above, at O(1) per follow. The leaderboard
+ * is then only copied out when it is asked for, and had changed.
  *
  * I made it that users could not follow themselves, because I regarded such a relationship
  * as useless since a User has already access to his/her own weets.
  *
- * My methods with worst complexity are getMutualFollowers and getMutualFollows, with O(n^2)
- * time, as I had to find the union of the two sets of followers/followees and then order them
- * by latest Date. This really was just because I did not know of a method to do it any 
- * quicker, and I decided that since mutual followers or followees was a relatively
- * unorthodox thing to ask for, it wasn't worth the extra complexity.
+ * getMutualFollowers and getMutualFollows used to compare every follower of one user with
+ * every follower of the other, at O(n*m). They now go through the shorter of the two lists
+ * only, and look each id up in the hash table of the other user, at O(min(n,m)) expected.
+ * Only the mutual ones then need ordering by the later of their two follow dates.
+ *
+ * A store made with the CONCURRENT storage can be used by many threads at once. Its users
+ * are then kept in a ConcurrentIntIndex, which is read without a lock, and every user is
+ * guarded by one of STRIPES locks, picked by hashing the user id. A method takes the locks
+ * of the users it reads or changes: addFollower and the mutual methods take those of both
+ * users, always the lower stripe first, so that two threads never wait for each other.
+ * Follows between users of different stripes so go on in parallel, and since a user's
+ * buffers, hash tables and the copy of them getFollowers returns are only ever touched
+ * under that user's lock, a reader never sees them half way through a change. The
+ * leaderboard is shared by every user, so it has a lock of its own, which is only held for
+ * the O(1) of adding or promoting a user (and always taken after the users' locks).
+ * Without the CONCURRENT storage, there are no locks.
+ *
+ * addFollowers adds every follow of followers.csv at once when the webapp starts (see
+ * CsvLoader). It adds the follows in date order, so that each one goes at the end of the
+ * buffers, and into an empty store, it builds the tree of users bottom up, perfectly
+ * balanced, in O(n), before the first follow, rather than inserting users as they come.
  *
  * @author: u1504360
  */
@@ -38,280 +79,282 @@ package uk.ac.warwick.java.cs126.services;
 import uk.ac.warwick.java.cs126.models.Weet;
 import uk.ac.warwick.java.cs126.models.User;
 
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 public class FollowerStore implements IFollowerStore {
 
     /*
-     * Since we are going to be implementing a Red-Black tree, the following enum types
-     * will certainly find themselves useful.
-     * C means colour, and the colour of a tree node is either red or black.
-     * S means side, and a tree node is either on the right of it's parent or on the left.
-     * S is null when the node is root.
-     */
-    private enum C {RED, BLACK};
-    private enum S {RIGHT, LEFT};
-
-    /*
-     * This time, I make a node for users instead. I make one single tree.
+     * This time, the tree stores a node for users instead. I make one single tree.
      */
     private class UserNode {
 
         /*
          * These variables are self-explanatory.
          * • the user's id is the key of the node.
-         * • followers, when they followed, and the amount
-         * • follows, when they got followed, and the amount
-         * • a boolean to store whether or not the order is updated
-         * • the colour and side of the node
-         * • the nodes connected to this one
+         * • followers, when they followed (in milliseconds), and the amount
+         * • follows, when they got followed (in milliseconds), and the amount
+         * • the followers and follows, newest first, copied out at their exact length, so
+         * that they can be returned as they are until the next follow (or null, if there
+         * has been a follow since they were last asked for)
+         * The arrays are buffers that are usually longer than the amount of entries in them:
+         * when one is full, it is doubled, so a follow only costs O(1) amortised. They are
+         * kept in date order, oldest first, as follows are added: since follows nearly
+         * always arrive in date order, the new one just goes at the end. One that is older
+         * than the last is put in its place, found by binary search.
+         * • rank is where the user is in the leaderboard of the store
+         * • once there are more than SCANNED followers (or follows), they are also indexed
+         * in a hash table from their id to the time of the follow, so that checking for one
+         * doesn't have to go through all of them. Until then, the table is null.
          */
         private int userid;
         private int[] followers;
-        private Date[] followerDates;
+        private long[] followerTimes;
         private int number_of_followers;
         private int[] follows;
-        private Date[] followDates;
+        private long[] followTimes;
         private int number_of_follows;
-        private boolean ordersUpdated;
-        private C colour;
-        private S side;
-        private UserNode parent, left, right, sibling;
+        private int[] sortedFollowers;
+        private int[] sortedFollows;
+        private IntLongMap followerIndex;
+        private IntLongMap followIndex;
+        private int rank;
 
         /*
-         * This is the constructor for the root node. A root node is coloured black by default
-         * It has no parent or sibling.
          * some variables are initialised to make the methods error-proof.
          */
         public UserNode(int id) {
             userid = id;
-            colour = C.BLACK;
-            parent = null; left = null; right = null; sibling = null;
-            ordersUpdated = true;
-            number_of_followers = 0;
-            number_of_follows = 0;
-            followers = new int[0];
-            follows = new int[0];
-        }
-        /*
-         * ..constructor for a non-root node. Coloured red by default.
-         * Has a parent and sibling.
-         */
-        public UserNode(int id, UserNode p) {
-            userid = id;
-            colour = C.RED;
-            parent = p; left = null; right = null; sibling = getSibling();
-            ordersUpdated = true;
             number_of_followers = 0;
             number_of_follows = 0;
-            followers = new int[0];
-            follows = new int[0];
+            followers = EMPTY_IDS;
+            followerTimes = EMPTY_TIMES;
+            follows = EMPTY_IDS;
+            followTimes = EMPTY_TIMES;
+            sortedFollowers = EMPTY_IDS;
+            sortedFollows = EMPTY_IDS;
         }
 
         // returns the id, which is the de facto key of the node
         public int getId() {
             return userid;
         }
-        // returns a boolean value which says whether or not the array of followers 
-        // and followees are updated in terms of their order
-        public boolean ordersUpdated() {
-            return ordersUpdated;
+        // this returns the buffer of the times at which the followers first followed the
+        // user (only the first getNumberOfFollowers of them are used)
+        public long[] getFollowerTimes() {
+            return followerTimes;
+        }
+        // this returns the buffer of the times at which the followees were first followed
+        // by the user (only the first getNumberOfFollows of them are used)
+        public long[] getFollowTimes() {
+            return followTimes;
         }
-        // this returns the dates on which the followers first followed the user
-        public Date[] getFollowerDates() {
-            return followerDates;
+        // this returns the buffer of followers' ids
+        public int[] getFollowerBuffer() {
+            return followers;
         }
-        // this returns the dates on which the followees were first followed by the user
-        public Date[] getFollowDates() {
-            return followDates;
+        // this returns the buffer of followees' ids
+        public int[] getFollowBuffer() {
+            return follows;
         }
-        // this returns the array of followers' ids
+        // this returns the followers' ids, newest first. It only copies them out of the
+        // buffer if there was a follow since the last time
         public int[] getFollowers() { 
-            return followers;
+            if (sortedFollowers == null) {sortedFollowers = newestFirst(followers, number_of_followers);}
+            return sortedFollowers;
         }
-        // this returns the array of followees' ids
+        // this returns the followees' ids, newest first, in the same way
         public int[] getFollows() { 
-            return follows;
+            if (sortedFollows == null) {sortedFollows = newestFirst(follows, number_of_follows);}
+            return sortedFollows;
         }
         // this returns the amount of followers
         public int getNumberOfFollowers() {
             return number_of_followers;
         }
+        // this returns the amount of followees
+        public int getNumberOfFollows() {
+            return number_of_follows;
+        }
+        // this returns whether the user with the given id follows this user – O(1) expected
+        public boolean hasFollower(int uid) {
+            if (followerIndex != null) {return followerIndex.containsKey(uid);}
+            for (int i = 0; i < number_of_followers; i++) {
+                if (followers[i] == uid) {return true;}
+            }
+            return false;
+        }
+        // this returns whether this user follows the user with the given id – O(1) expected
+        public boolean hasFollow(int uid) {
+            if (followIndex != null) {return followIndex.containsKey(uid);}
+            for (int i = 0; i < number_of_follows; i++) {
+                if (follows[i] == uid) {return true;}
+            }
+            return false;
+        }
+        // this returns the time at which the user with the given id followed this user, or
+        // NONE if he doesn't – O(1) expected
+        public long followerTime(int uid) {
+            if (followerIndex != null) {return followerIndex.get(uid, NONE);}
+            for (int i = 0; i < number_of_followers; i++) {
+                if (followers[i] == uid) {return followerTimes[i];}
+            }
+            return NONE;
+        }
+        // this returns the time at which this user followed the user with the given id, or
+        // NONE if he doesn't – O(1) expected
+        public long followTime(int uid) {
+            if (followIndex != null) {return followIndex.get(uid, NONE);}
+            for (int i = 0; i < number_of_follows; i++) {
+                if (follows[i] == uid) {return followTimes[i];}
+            }
+            return NONE;
+        }
         // this allows a follower to be added externally to the node
         // it essentially turns the array into a de facto arraylist
-        // every time a new follower is added, the array is expanded, but not sorted
-        // temporary arrays followers2 and followerDates2 are set up to keep the contents
+        // when the buffer is full, it is doubled, and the follower is put in date order
         public void addFollower(int uid, Date d) {
-            int[] followers2 = followers;
-            Date[] followerDates2 = followerDates;
-            number_of_followers++;
-            followers = new int[number_of_followers];
-            followerDates = new Date[number_of_followers];
-            followers[number_of_followers-1] = uid;
-            followerDates[number_of_followers-1] = d;
-            for (int i = 0; i < (number_of_followers-1); i++) {
-                followers[i] = followers2[i];
-                followerDates[i] = followerDates2[i];
+            if (number_of_followers == followers.length) {
+                int capacity = Math.max(4, number_of_followers * 2);
+                followers = Arrays.copyOf(followers, capacity);
+                followerTimes = Arrays.copyOf(followerTimes, capacity);
             }
-            ordersUpdated = false;
+            insertByTime(followers, followerTimes, number_of_followers, uid, d.getTime());
+            number_of_followers++;
+            if (followerIndex != null) {followerIndex.put(uid, d.getTime());}
+            else if (number_of_followers > SCANNED) {followerIndex = index(followers, followerTimes, number_of_followers);}
+            sortedFollowers = null;
         }
         // this method does the same as the above, just for followees
+        // a follow that is already there is refused
         public boolean addFollow(int uid, Date d) {
-            for (int i = 0; i < number_of_follows; i++) {
-                if (follows[i]==uid) {return false;}
+            if (hasFollow(uid)) {return false;}
+            if (number_of_follows == follows.length) {
+                int capacity = Math.max(4, number_of_follows * 2);
+                follows = Arrays.copyOf(follows, capacity);
+                followTimes = Arrays.copyOf(followTimes, capacity);
             }
-            int[] follows2 = follows;
-            Date[] followDates2 = followDates;
+            insertByTime(follows, followTimes, number_of_follows, uid, d.getTime());
             number_of_follows++;
-            follows = new int[number_of_follows];
-            followDates = new Date[number_of_follows];
-            follows[number_of_follows-1] = uid;
-            followDates[number_of_follows-1] = d;
-            for (int i = 0; i < (number_of_follows-1); i++) {
-                follows[i] = follows2[i];
-                followDates[i] = followDates2[i];
-            }
-            follows2 = null;
+            if (followIndex != null) {followIndex.put(uid, d.getTime());}
+            else if (number_of_follows > SCANNED) {followIndex = index(follows, followTimes, number_of_follows);}
+            sortedFollows = null;
             return true;
         }
-        // this method call for a both the followers array and the follows array to be
-        // sorted by a global quicksort method
-        public void prepare() {
-            if (number_of_followers!=0) {
-                this.quickSortByDate(followers, followerDates,0,number_of_followers-1);
+        // this shrinks the buffers to the amount of entries in them, for when no more
+        // follows are expected
+        public void trim() {
+            if (followers.length != number_of_followers) {
+                followers = Arrays.copyOf(followers, number_of_followers);
+                followerTimes = Arrays.copyOf(followerTimes, number_of_followers);
             }
-            if (number_of_follows!=0) {
-                this.quickSortByDate(follows, followDates,0,number_of_follows-1);
+            if (follows.length != number_of_follows) {
+                follows = Arrays.copyOf(follows, number_of_follows);
+                followTimes = Arrays.copyOf(followTimes, number_of_follows);
             }
-            ordersUpdated = true;
-        }
-        // Returns the parent node, which is null only if the node is the root node of a tree
-        public UserNode getParent() { 
-            return parent;
-        }
-        // Returns the node on the left (can be a null leaf)
-        public UserNode getLeft() { 
-            return left;
-        }
-        // Returns the node on the right (can be a null leaf)
-        public UserNode getRight() {
-            return right;
-        }
-        // Returns the side that the node is on after calling updateSide
-        public S getSide() {
-            updateSide(); return side;
-        }
-        // Updates the side which the node is on, relative to its parent
-        public void updateSide() {
-            if (parent == null) {side = null;}
-            else if (this == parent.getLeft()) {side = S.LEFT;}
-            else {side = S.RIGHT;}
-        }
-        // Returns the sibling of this node (can be null) after calling updateSibling
-        public UserNode getSibling() {
-            updateSibling(); return sibling;
-        }
-        // Updates the sibling of the node, by getting the other child of the parent
-        public void updateSibling() {
-            if (parent == null) {sibling = null;}
-            else if (this == parent.getLeft()) {sibling = parent.getRight();}
-            else {sibling = parent.getLeft();}
-        }
-        // Allows for exterior updating of the parent
-        public void setParent(UserNode n) {
-            parent = n;
-        }
-        // Allows for exterior updating of the child, by taking side as a variable
-        public void setChild(UserNode n, S s) {
-            if (s == S.LEFT) {setLeft(n);}
-            if (s == S.RIGHT) {setRight(n);}
-        }
-        // Allows for exterior updating of the left node
-        public void setLeft(UserNode n) {
-            left = n;
-        }
-        // Allows for exterior updating of the right node
-        public void setRight(UserNode n) {
-            right = n;
-        }
-        // Allows for checking if the colour of the node is red
-        public boolean isRed() {
-            return (colour == C.RED);
-        }
-        // Allows for checking if the colour of the node is black
-        public boolean isBlack() {
-            return (colour == C.BLACK);
-        }
-        // Allows for checking if the colour of the parent node is red
-        public boolean redParent() {
-            return (getParent().isRed());
-        }
-        // Allows for checking if both the node and its parent are of red colour
-        public boolean doubleRed() {
-            return (isRed() && redParent());
-        }
-        // allows for colouring the node red
-        public void makeRed() {
-            colour = C.RED;
-        }
-        // allows for colouring the node black
-        public void makeBlack() {
-            colour = C.BLACK;
-        }
-        // due to SOLID programming guidelines, I had to copy out the 
-        // quickSortByDate method here, to make the class independent
-        private void quickSortByDate(int[] a, Date[] basedUpon, int l, int h) {
-            if (a == null || a.length == 0) {return;}
-            if (l >= h) {return;}
-            int centre = ((h-l)/2)+l, i = l, j = h;
-            Date pivot = basedUpon[centre];
-            while (i <= j) {
-                while (basedUpon[i].after(pivot)) {i++;}
-                while (basedUpon[j].before(pivot)) {j--;}
-                if (i <= j) {
-                    Date d = basedUpon[i]; int u = a[i];
-                    basedUpon[i] = basedUpon[j]; a[i] = a[j];
-                    basedUpon[j] = d; a[j] = u;
-                    i++; j--;
+        }
+        // this makes the hash table of the first n ids, to the times of their follows
+        private IntLongMap index(int[] ids, long[] times, int n) {
+            IntLongMap map = new IntLongMap(n * 2);
+            for (int i = 0; i < n; i++) {map.put(ids[i], times[i]);}
+            return map;
+        }
+        // this puts the id in the first n entries of the buffers, which are in date order,
+        // after every entry that isn't later. If it is the latest, that is at the end, at
+        // O(1). Otherwise the later entries are moved up by one to make room.
+        private void insertByTime(int[] ids, long[] times, int n, int uid, long time) {
+            int at = n;
+            if (n > 0 && times[n-1] > time) {
+                int l = 0, h = n;
+                while (l < h) {
+                    int m = (l + h) >>> 1;
+                    if (times[m] > time) {h = m;}
+                    else {l = m + 1;}
                 }
+                at = l;
+                System.arraycopy(ids, at, ids, at + 1, n - at);
+                System.arraycopy(times, at, times, at + 1, n - at);
             }
-            if (l < j) {quickSortByDate(a, basedUpon, l, j);}
-            if (h > i) {quickSortByDate(a, basedUpon, i, h);}
+            ids[at] = uid;
+            times[at] = time;
+        }
+        // this copies the first n ids out in reverse, so newest first
+        private int[] newestFirst(int[] ids, int n) {
+            int[] result = new int[n];
+            for (int i = 0; i < n; i++) {result[i] = ids[n - 1 - i];}
+            return result;
         }
     }
 
+    // up to how many followers (or follows) a user has before they are indexed: checking
+    // that few one by one is as quick as hashing, and saves the memory of a table
+    private static final int SCANNED = 8;
+
+    // the time of a follow that isn't there
+    private static final long NONE = Long.MIN_VALUE;
+
+    // the buffers every UserNode starts with, so that a user with no follows costs nothing
+    private static final int[] EMPTY_IDS = new int[0];
+    private static final long[] EMPTY_TIMES = new long[0];
+
     /*
      * GLOBAL VARIABLES
-     * root – root node of the red black tree
+     * users – the red black tree of UserNodes, ordered by user id
      * total_number_of_users – amount of nodes in the tree so far
-     * topUsers – array of Users by order of the followers
-     * topUserCount – array of number of followers by user
-     * topUsersUpdated – boolean variable to verify whether or not array needs updating
-     * iterator – global iterator variable do I don't need to declare one when I do
-     * an inOrder traversal
+     * ranked – the leaderboard: every user, most followers first, and ranks how many
+     * users there are with more than c followers (which is where the first user with c
+     * followers is in ranked), for every count c up to the highest there is
+     * topUsers – the ids of ranked, copied out at their exact length, or null if the
+     * leaderboard changed since the last time they were
      * emptyArray – an empty array I can return so I don't have to make a new one
      * when I need to return it in my methods
+     * stripes – the locks of the users, with the CONCURRENT storage (otherwise null)
+     * board – the lock of the leaderboard and total_number_of_users (null likewise)
      */
-    private UserNode root;
+    private IntIndex<UserNode> users;
     private int total_number_of_users;
-    private boolean ordersUpdated;
+    private UserNode[] ranked;
+    private int[] ranks;
     private int[] topUsers;
-    private int[] topUserCount;
-    private boolean topUsersUpdated;
-    private int iterator;
     private int[] emptyArray;
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock board;
+
+    // how many locks the users are spread over, with the CONCURRENT storage
+    private static final int STRIPES = 64;
 
     /*
      * CONSTRUCTOR
      * some of the global variables are initialised to make some methods error-proof
+     * by default, the tree stores its entries as node objects
      */
     public FollowerStore() {
-        root = null;
+        this(IntIndex.Storage.NODES);
+    }
+
+    /*
+     * This constructor lets the storage of the tree be chosen: ARRAYS keeps it in parallel
+     * arrays, which is much lighter on memory for very many users. CONCURRENT keeps it in a
+     * skip list, and locks every user, for using the store from many threads at once.
+     */
+    public FollowerStore(IntIndex.Storage storage) {
+        users = IntIndex.create(storage);
         total_number_of_users = 0;
-        topUsersUpdated = false;
-        topUsers = new int[0];
-        iterator = 0;
+        ranked = new UserNode[16];
+        ranks = new int[16];
+        topUsers = null;
+        emptyArray = new int[0];
+        if (storage == IntIndex.Storage.CONCURRENT) {
+            stripes = new ReentrantLock[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {stripes[i] = new ReentrantLock();}
+            board = new ReentrantLock();
+        }
+        else {
+            stripes = null;
+            board = null;
+        }
     }
 
     /* HERE BEGIN THE PUBLIC METHODS–THOSE THAT IMPLEMENT WHATS INHERITED BY IFOLLOWERSTORE */
@@ -319,9 +362,7 @@ public class FollowerStore implements IFollowerStore {
     /*
      * ADDFOLLOWER – O(log n) [finding of a position in a balanced binary tree]
      * 
-     * If the root node is null, create nodes for the users and assign them to the roots.
-     * Otherwise, use the private insert method to place them in the tree accordingly.
-     * If one of the users doesn't already exist, add him in.
+     * If one of the users doesn't already exist, use the private insert method to add him in.
      * then add uid2 as a followee on the uid1 node
      * if he already exists, return false
      * otherwise, go ahead and add uid2 if he doesn't already exist
@@ -329,68 +370,129 @@ public class FollowerStore implements IFollowerStore {
      */
     public boolean addFollower(int uid1, int uid2, Date followDate) {
         if (uid1 == uid2) {return false;}
-        if (root == null) {
-            root = new UserNode(uid1); insert(uid2);
-            root.addFollow(uid2, followDate);
-            getUser(uid2).addFollower(uid1, followDate);
-            total_number_of_users++;
-            return true;
-        }
-        else {
+        lock(uid1, uid2);
+        try {
             UserNode u1 = getUser(uid1);
+            if (u1 == null) {u1 = insert(uid1);}
+            if (!u1.addFollow(uid2, followDate)) {return false;}
             UserNode u2 = getUser(uid2);
-            if (u1 == null) {insert(uid1); getUser(uid1).addFollow(uid2, followDate);}
-            else if (!u1.addFollow(uid2, followDate)) {return false;}
-            if (u2 == null) {insert(uid2); getUser(uid2).addFollower(uid1, followDate);}
-            else {u2.addFollower(uid1, followDate);}
+            if (u2 == null) {u2 = insert(uid2);}
+            u2.addFollower(uid1, followDate);
+            promote(u2);
             return true;
         }
+        finally {unlock(uid1, uid2);}
+    }
+
+    /*
+     * ADDFOLLOWERS – O(f log n) for f follows already in date order (as followers.csv is),
+     * plus O(f log f) to sort them otherwise
+     *
+     * Adds every follow of the arrays: uid1[i] follows uid2[i] from dates[i]. Returns how
+     * many follows were added. The follows are put in date order first, so that every one
+     * goes at the end of the buffers of both users, and a follow that is repeated keeps its
+     * earliest date (rather than the one that came first in the arrays). Into an empty
+     * store, every user is found first, and the tree of users is built from them bottom
+     * up, perfectly balanced, without a single rotation, so no follow has to insert a user.
+     * A store that isn't empty, or that has the CONCURRENT storage, has the users inserted
+     * as they come, as addFollower would.
+     */
+    public int addFollowers(int[] uid1, int[] uid2, Date[] dates) {
+        int n = dates.length, added = 0;
+        long[] times = new long[n];
+        for (int i = 0; i < n; i++) {times[i] = dates[i].getTime();}
+        int[] byDate = SortOrder.of(times, n);
+        if (stripes == null && total_number_of_users == 0) {
+            // every user of a follow, in id order, once (a user who only follows himself is
+            // left out, as addFollower refuses that)
+            int[] ids = new int[2 * n];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (uid1[i] != uid2[i]) {ids[k++] = uid1[i]; ids[k++] = uid2[i];}
+            }
+            Arrays.sort(ids, 0, k);
+            int m = 0;
+            for (int i = 0; i < k; i++) {
+                if (m == 0 || ids[m-1] != ids[i]) {ids[m++] = ids[i];}
+            }
+            UserNode[] nodes = new UserNode[m];
+            for (int i = 0; i < m; i++) {nodes[i] = new UserNode(ids[i]); nodes[i].rank = i;}
+            users.buildFromSorted(ids, nodes, m);
+            // nobody has any followers yet, so the leaderboard can be in any order
+            ranked = Arrays.copyOf(nodes, Math.max(16, m));
+            total_number_of_users = m;
+            topUsers = null;
+        }
+        for (int j = 0; j < n; j++) {
+            int i = byDate[j];
+            if (addFollower(uid1[i], uid2[i], dates[i])) {added++;}
+        }
+        return added;
     }
 
     /*
      * GETFOLLOWERS – O(log n) [finding of a position in a balanced binary tree]
      * 
      * If the user doesn't exist, return an empty array
-     * if the order of followers of a user are not sorted by date, sort them
-     * return the array of followers
+     * otherwise return a copy of the array of followers, which are already in date order
+     * (they are only copied out of the buffers if there was a follow since the last time,
+     * and then copied again for the caller, at O(n) each)
      */
     public int[] getFollowers(int uid) {
+        return getFollowersView(uid).toArray();
+    }
+
+    /*
+     * GETFOLLOWERSVIEW – the same, without copying the followers if there was no follow
+     * since the last call
+     *
+     * Returns a read-only IntSlice of the followers the user's node keeps, newest first.
+     */
+    public IntSlice getFollowersView(int uid) {
         UserNode n = getUser(uid);
-        if (n == null) {return emptyArray;}
-        if (!n.ordersUpdated()) {n.prepare();}
-        return n.getFollowers();
+        if (n == null) {return new IntSlice(emptyArray);}
+        lock(uid, uid);
+        try {return new IntSlice(n.getFollowers());}
+        finally {unlock(uid, uid);}
     }
 
     /*
      * GETFOLLOWERS – O(log n) [finding of a position in a balanced binary tree]
      * 
      * If the user doesn't exist, return an empty array
-     * if the order of followers of a user are not sorted by date, sort them
-     * return the array of followers
+     * otherwise return a copy of the array of followees, which are already in date order
+     * (they are only copied out of the buffers if there was a follow since the last time,
+     * and then copied again for the caller, at O(n) each)
      */
     public int[] getFollows(int uid) {
+        return getFollowsView(uid).toArray();
+    }
+
+    /*
+     * GETFOLLOWSVIEW – the same for the followees
+     */
+    public IntSlice getFollowsView(int uid) {
         UserNode n = getUser(uid);
-        if (n == null) {return emptyArray;}
-        if (!n.ordersUpdated()) {n.prepare();}
-        return n.getFollows();
+        if (n == null) {return new IntSlice(emptyArray);}
+        lock(uid, uid);
+        try {return new IntSlice(n.getFollows());}
+        finally {unlock(uid, uid);}
     }
 
     /*
      * ISAFOLLOWER – O(log n) [finding of a position in a balanced binary tree]
      * 
      * If the followee doesn't exist, return false
-     * otherwise, go through his list of followers
-     * if the follower is there return true
-     * otherwise, return false
+     * otherwise, check whether the follower is among his followers: by going through them
+     * if he has only a few, and by looking him up in the hash table of them otherwise (O(1)
+     * expected, however many followers there are)
      */
     public boolean isAFollower(int uidFollower, int uidFollows) {
         UserNode n = getUser(uidFollows);
         if (n == null) {return false;}
-        int[] hisFollowers = n.getFollowers();
-        for (int num : hisFollowers) {
-            if (num == uidFollower) {return true;}
-        }
-        return false;
+        lock(uidFollows, uidFollows);
+        try {return n.hasFollower(uidFollower);}
+        finally {unlock(uidFollows, uidFollows);}
     }
 
     /*
@@ -408,156 +510,161 @@ public class FollowerStore implements IFollowerStore {
     public int getNumFollowers(int uid) {
         UserNode n = getUser(uid);
         if (n == null) {return 0;}
-        return n.getNumberOfFollowers();
+        lock(uid, uid);
+        try {return n.getNumberOfFollowers();}
+        finally {unlock(uid, uid);}
     }
 
     /*
-     * GETMUTUALFOLLOWERS – O(n^2) [finding the union set of two arrays]
+     * GETMUTUALFOLLOWERS – O(min(n,m)) expected, plus O(k log k) for the k mutual followers
      * 
      * first check if the users exist
-     * this method takes two arrays: followers of uid1 and those of uid2
-     * it also takes the dates of when the users where first followed, in two arrays
-     * after that, it uses two for-loops to go check if any of the followers are the same
-     * when they are, they are added to an array.
-     * The arrays of dates are also taken and the later date of follow for a mutual follow
-     * is stored. Then the array of users is quicksorted by date.
+     * this method goes through the followers of whichever user has fewer of them, and
+     * looks each one up among the followers of the other user (by hashing, if he has more
+     * than a few), so the longer list is never gone through at all.
+     * When a follower is in both, he is added to an array, along with the later date of
+     * his two follows. Then the array of users is quicksorted by date.
      */
     public int[] getMutualFollowers(int uid1, int uid2) {
         UserNode n1 = getUser(uid1), n2 = getUser(uid2);
         if (n1 == null || n2 == null) {return emptyArray;}
-        int[] followers1 = n1.getFollowers();
-        int[] followers2 = n2.getFollowers();
-        if (followers1.length == 0 || followers2.length == 0) {return emptyArray;}
-        Date[] followerDates1 = n1.getFollowerDates();
-        Date[] followerDates2 = n2.getFollowerDates(); 
-        int l = followers1.length, follower1, follower2;
-        Date[] saveDates = new Date[l];
-        int[] save = new int[l];
-        Date date1, date2, laterDate;
-        int total = 0;
-        for (int i = 0; i < l; i++) {
-            follower1 = followers1[i];
-            for (int j = 0; j < followers2.length; j++) {
-                follower2 = followers2[j];
-                if (follower1==follower2) {
-                    save[total] = follower1;
-                    date1 = followerDates1[i];
-                    date2 = followerDates2[j];
-                    if (date1.after(date2)) {laterDate = date1;}
-                    else {laterDate = date2;}
-                    saveDates[total] = laterDate;
-                    total++; break;
-                }
-            }
-        }
-        int[] finalList = new int[total];
-        Date[] finalDates = new Date[total];
-        for (int k = 0; k < total; k++) {
-            finalList[k] = save[k];
-            finalDates[k] = saveDates[k];
+        lock(uid1, uid2);
+        try {
+            if (n1.getNumberOfFollowers() > n2.getNumberOfFollowers()) {UserNode n = n1; n1 = n2; n2 = n;}
+            return intersect(n1.getFollowerBuffer(), n1.getFollowerTimes(), n1.getNumberOfFollowers(), n2, true);
         }
-        quickSortByDate(finalList,finalDates,0,total-1);
-        return finalList;
+        finally {unlock(uid1, uid2);}
     }
 
     /*
-     * GETMUTUALFOLLOWS – O(n^2) [finding the union set of two arrays]
+     * GETMUTUALFOLLOWS – O(min(n,m)) expected, plus O(k log k) for the k mutual follows
      * 
      * This is exactly the same method as above, just for follows instead of followers.
      */
     public int[] getMutualFollows(int uid1, int uid2) {
         UserNode n1 = getUser(uid1), n2 = getUser(uid2);
         if (n1 == null || n2 == null) {return emptyArray;}
-        int[] follows1 = n1.getFollows();
-        int[] follows2 = n2.getFollows();
-        if (follows1.length == 0 | follows2.length == 0) {return emptyArray;}
-        Date[] followDates1 = n1.getFollowDates();
-        Date[] followDates2 = n2.getFollowDates(); 
-        int l = follows1.length;
-        Date[] saveDates = new Date[l];
-        int[] save = new int[l];
-        Date date1, date2, laterDate;
-        int total = 0;
-        for (int i = 0; i < l; i++) {
-            int follow1 = follows1[i];
-            for (int j = 0; j < follows2.length; j++) {
-                int follow2 = follows2[j];
-                if (follow1==follow2) {
-                    save[total] = follow1;
-                    date1 = followDates1[i];
-                    date2 = followDates2[j];
-                    if (date1.after(date2)) {laterDate = date1;}
-                    else {laterDate = date2;}
-                    saveDates[total] = laterDate;
-                    total++; break;
-                }
-            }
+        lock(uid1, uid2);
+        try {
+            if (n1.getNumberOfFollows() > n2.getNumberOfFollows()) {UserNode n = n1; n1 = n2; n2 = n;}
+            return intersect(n1.getFollowBuffer(), n1.getFollowTimes(), n1.getNumberOfFollows(), n2, false);
         }
-        int[] finalList = new int[total];
-        Date[] finalDates = new Date[total];
-        for (int k = 0; k < total; k++) {
-            finalList[k] = save[k];
-            finalDates[k] = saveDates[k];
-        }
-        quickSortByDate(finalList,finalDates,0,total-1);
-        return finalList;
+        finally {unlock(uid1, uid2);}
     }
 
     /*
-     * GETTOPUSERS – O(n), since an entire array needs to be (re)created 
-     * Also O(1) 
+     * GETTOPUSERS – O(n), to copy the leaderboard out
+     *
+     * The leaderboard is kept up to date by addFollower, so it never needs sorting.
+     * Users with the same amount of followers come in no particular order.
      */
     public int[] getTopUsers() {
-        if (!ordersUpdated) {updateTopUsers();}
-        return topUsers;
+        return getTopUsersView().toArray();
+    }
+
+    /*
+     * GETTOPUSERSVIEW – O(1) between two follows, O(n) to copy the leaderboard out after one
+     *
+     * The same as getTopUsers, as a read-only IntSlice of the copy that is kept.
+     */
+    public IntSlice getTopUsersView() {
+        lockBoard();
+        try {
+            if (topUsers == null) {topUsers = getTopUsers(total_number_of_users);}
+            return new IntSlice(topUsers);
+        }
+        finally {unlockBoard();}
+    }
+
+    /*
+     * GETTOPUSERS (FIRST K) – O(k)
+     *
+     * Returns the ids of the k users with the most followers, in the same order as
+     * getTopUsers (or of every user, if there are fewer than k).
+     */
+    public int[] getTopUsers(int k) {
+        lockBoard();
+        try {
+            int n = Math.max(0, Math.min(k, total_number_of_users));
+            int[] result = new int[n];
+            for (int i = 0; i < n; i++) {result[i] = ranked[i].getId();}
+            return result;
+        }
+        finally {unlockBoard();}
+    }
+
+    /*
+     * TRIMTOSIZE – O(n + f) for n users and f follows
+     *
+     * Shrinks the buffers of every user to the amount of follows in them, giving back the
+     * room left over by doubling. Useful after loading the whole graph, since on average a
+     * quarter of every buffer is empty. Following again afterwards is fine, it just grows
+     * the buffer again.
+     */
+    public void trimToSize() {
+        UserNode[] nodes = new UserNode[users.size()];
+        int count = users.fillDescending(nodes);
+        for (int i = 0; i < count; i++) {
+            int uid = nodes[i].getId();
+            lock(uid, uid);
+            try {nodes[i].trim();}
+            finally {unlock(uid, uid);}
+        }
     }
 
     /* HERE BEGIN PRIVATE METHODS THAT HELP THE PUBLIC METHODS */
 
-    // This method traverses the tree according to the given user id, using a pointer
-    // It compares the given weetid to to that of the pointer and moves accordingly left/right
-    // If the user id already exists, it returns false
-    // If the pointer is null, that it where the node containing this new user should be
-    // and so it is declared there, before it is then declared in the order by date tree
-    // Some extra node checks and global variable resets occur before it then returns true.
-    private void insert(int uid) {
-        UserNode parent = null;
-        UserNode pointer = root;
-        S side = null;
-        while (pointer!=null) {
-            int j = pointer.getId();
-            if (uid > j) {
-                parent = pointer; pointer = pointer.getRight();
-                side = S.RIGHT;
-            }
-            else if (uid < j) {
-                parent = pointer; pointer = pointer.getLeft();
-                side = S.LEFT;
-            }
-            else if (uid == j) {
-                System.err.println("We have a serious problem here.");
-            }
+    // This method adds a new UserNode for the given user id to the tree and returns it.
+    // The caller has already checked that the user id isn't in the tree yet (and holds its
+    // lock, so no other thread can be adding it).
+    // The user goes at the end of the leaderboard, having no followers yet.
+    private UserNode insert(int uid) {
+        UserNode u = new UserNode(uid);
+        lockBoard();
+        try {
+            if (total_number_of_users == ranked.length) {ranked = Arrays.copyOf(ranked, total_number_of_users * 2);}
+            u.rank = total_number_of_users;
+            ranked[total_number_of_users] = u;
+            total_number_of_users++;
+            topUsers = null;
         }
-        UserNode u = new UserNode(uid, parent);
-        if (parent!=null) {parent.setChild(u, side);}
-        checkNode(u);
-        total_number_of_users++;
-        checkRoot();
-        ordersUpdated = false;
+        finally {unlockBoard();}
+        users.insert(uid, u);
+        return u;
+    }
+
+    // PROMOTE – O(1)
+    // moves a user who just got one more follower, going from c to c+1 followers, up the
+    // leaderboard. The users with c followers are together, from ranks[c] on, so the user
+    // swaps places with the first of them, and that place becomes the last of the users
+    // with c+1 followers. Only ranks[c] changes: there is one more user with more than c.
+    private void promote(UserNode u) {
+        int c = u.getNumberOfFollowers() - 1;
+        lockBoard();
+        try {
+            if (c + 1 >= ranks.length) {ranks = Arrays.copyOf(ranks, ranks.length * 2);}
+            int first = ranks[c];
+            UserNode v = ranked[first];
+            ranked[u.rank] = v; v.rank = u.rank;
+            ranked[first] = u; u.rank = first;
+            ranks[c] = first + 1;
+            topUsers = null;
+        }
+        finally {unlockBoard();}
     }
 
     // this is just a recursive quicksort method I made (I adapted from my Weetstore one)
-    // it sorts array 'a' by date using array basedUpon
-    private void quickSortByDate(int[] a, Date[] basedUpon, int l, int h) {
+    // it sorts array 'a' by date using array basedUpon, of times in milliseconds
+    private void quickSortByDate(int[] a, long[] basedUpon, int l, int h) {
         if (a == null || a.length == 0) {return;}
         if (l >= h) {return;}
         int centre = ((h-l)/2)+l, i = l, j = h;
-        Date pivot = basedUpon[centre];
+        long pivot = basedUpon[centre];
         while (i <= j) {
-            while (basedUpon[i].after(pivot)) {i++;}
-            while (basedUpon[j].before(pivot)) {j--;}
+            while (basedUpon[i] > pivot) {i++;}
+            while (basedUpon[j] < pivot) {j--;}
             if (i <= j) {
-                Date d = basedUpon[i]; int u = a[i];
+                long d = basedUpon[i]; int u = a[i];
                 basedUpon[i] = basedUpon[j]; a[i] = a[j];
                 basedUpon[j] = d; a[j] = u;
                 i++; j--;
@@ -567,158 +674,65 @@ public class FollowerStore implements IFollowerStore {
         if (h > i) {quickSortByDate(a, basedUpon, i, h);}
     }
 
-    // this one sorts array 'id' by using array basedUpon
-    private void quickSortByInt(int[] id, int[] basedUpon, int l, int h) {
-        if (basedUpon == null || basedUpon.length == 0) {return;}
-        if (l >= h) {return;}
-        int centre = ((h-l)/2)+l, pivot = basedUpon[centre], i = l, j = h;
-        while (i <= j) {
-            while (basedUpon[i] > pivot) {i++;}
-            while (basedUpon[j] < pivot) {j--;}
-            if (i <= j) {
-                int temp = basedUpon[i]; int temp2 = id[i];
-                basedUpon[i] = basedUpon[j]; id[i] = id[j];
-                basedUpon[j] = temp; id[j] = temp2;
-                i++; j--;
-            }
-        }
-        if (l < j) {quickSortByInt(id, basedUpon, l, j);}
-        if (h > i) {quickSortByInt(id, basedUpon, i, h);}
+    // INTERSECT
+    // goes through the first n ids, and keeps those that are also among the followers (or
+    // follows) of the other user, with the later time of their two follows. The ids that
+    // are kept are then quicksorted by that time, latest first.
+    private int[] intersect(int[] ids, long[] times, int n, UserNode other, boolean followers) {
+        if (n == 0) {return emptyArray;}
+        long[] saveTimes = new long[n];
+        int[] save = new int[n];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            long time = followers ? other.followerTime(ids[i]) : other.followTime(ids[i]);
+            if (time == NONE) {continue;}
+            save[total] = ids[i];
+            saveTimes[total] = Math.max(times[i], time);
+            total++;
+        }
+        int[] finalList = Arrays.copyOf(save, total);
+        long[] finalTimes = Arrays.copyOf(saveTimes, total);
+        quickSortByDate(finalList,finalTimes,0,total-1);
+        return finalList;
     }
 
+    // returns the UserNode of the given user id, or null if the user isn't in the tree
     private UserNode getUser(int uid) {
-        UserNode pointer = root;
-        int pointerid;
-        while (pointer != null) {
-            pointerid = pointer.getId();
-            if (uid == pointerid) {return pointer;}
-            else if (uid > pointerid) {pointer = pointer.getRight();}
-            else if (uid < pointerid) {pointer = pointer.getLeft();}
-        }
-        return null;
-    }
-
-    // UPDATETOPUSERS
-    // make an inOrder traversal of the tree and store everything in topUser
-    // order the tree with a quicksort
-    private void updateTopUsers() {
-        topUsers = new int[total_number_of_users];
-        topUserCount = new int[total_number_of_users];
-        inOrder(root);
-        quickSortByInt(topUsers,topUserCount,0,total_number_of_users-1);
-        ordersUpdated = true;
-        iterator = 0;
+        return users.get(uid);
     }
 
-    // INORDER
-    // basic inorder traverser of the Users tree, storing everything in topUsers[]
-    // also store the amount of followers of each user in topUserCount
-    private void inOrder(UserNode n) {
-        if (n!=null) {
-            inOrder(n.getRight());
-            topUsers[iterator] = n.getId();
-            topUserCount[iterator] = n.getNumberOfFollowers();
-            iterator++;
-            inOrder(n.getLeft());
-        }
-    }
+    /* HERE BEGIN PRIVATE METHODS THAT TAKE AND RELEASE THE LOCKS (NOTHING WITHOUT THEM) */
 
-    /* HERE BEGIN PRIVATE METHODS THAT DIRECTLY INTERACT WITH THE TREE */
-
-    // this ensures that the root node of the tree is updated and coloured black
-    private void checkRoot() {
-        while (root.getParent()!=null) {root = root.getParent();} root.makeBlack();
+    // takes the locks of both users (once, if they share a stripe), the lower stripe first
+    private void lock(int uid1, int uid2) {
+        if (stripes == null) {return;}
+        int a = stripe(uid1), b = stripe(uid2);
+        stripes[Math.min(a, b)].lock();
+        if (a != b) {stripes[Math.max(a, b)].lock();}
     }
 
-    // this method checks whether or not a recolouring/restructuring of the tree is required
-    // if the node is red and the parent's node is red:
-    //      if the uncle node is black or null, restructure the tree
-    //      if the uncle node is red, recolour the tree
-    private void checkNode(UserNode u) {
-        if (u.doubleRed()) {
-            UserNode uncle = u.getParent().getSibling();
-            if (uncle == null || uncle.isBlack()) {restructure(u);}
-            else if (uncle.isRed()) {recolour(u);}
-        }
+    // releases the locks of both users
+    private void unlock(int uid1, int uid2) {
+        if (stripes == null) {return;}
+        int a = stripe(uid1), b = stripe(uid2);
+        if (a != b) {stripes[Math.max(a, b)].unlock();}
+        stripes[Math.min(a, b)].unlock();
     }
 
-    // recolouring is a basic process:
-    // • colour the parent node black
-    // • colour the uncle node black
-    // • colour the grandparent red
-    // • check if the grandparent requires recolouring/restructuring
-    private void recolour(UserNode n) {
-        UserNode parent = n.getParent();
-        UserNode grandparent = parent.getParent();
-        if (grandparent==null) {return;}
-        if (grandparent.getParent()!=null) {
-            grandparent.makeRed(); parent.makeBlack(); parent.getSibling().makeBlack();
-            checkNode(grandparent);
-        }
-        else {
-            grandparent.makeBlack(); parent.makeBlack(); parent.getSibling().makeBlack();
-        }
+    // takes the lock of the leaderboard
+    private void lockBoard() {
+        if (board != null) {board.lock();}
     }
 
-    // restructuring is a more complex process
-    // if the parent and child are on the same side, a simple rotate is required
-    // otherwise, a double rotate is required
-    private void restructure(UserNode n) {
-        S parentSide = n.getParent().getSide();
-        S childSide = n.getSide();
-        if (parentSide == childSide) {simpleRotate(n, parentSide);}
-        else {doubleRotate(n, parentSide);}
+    // releases the lock of the leaderboard
+    private void unlockBoard() {
+        if (board != null) {board.unlock();}
     }
 
-    // http://cs.lmu.edu/~ray/notes/redblacktrees/
-    //         (C)
-    //        /              (B)
-    //     (B)      ->      /   \
-    //    /               (A)   (C)
-    // (A)
-    // That's the structure – we then rotate it to put (B) on top as parent of (A) and (C)
-    // and for (C) to inherit the right (or left) leaf of (B)
-    private void simpleRotate(UserNode n, S parentSide) {
-        UserNode a, b, c; a = n; b = a.getParent(); c = b.getParent();
-        if (c.getParent()!=null) {c.getParent().setChild(b, c.getSide());}
-        b.setParent(c.getParent()); c.setParent(b);
-        if (parentSide == S.LEFT) {
-            if (b.getRight()!=null) {b.getRight().setParent(c);}
-            c.setLeft(b.getRight()); b.setRight(c);
-        }
-        else {
-            if (b.getLeft()!=null) {b.getLeft().setParent(c);}
-            c.setRight(b.getLeft()); b.setLeft(c);
-        }
-        b.makeBlack(); c.makeRed();
-    }
-
-    //     (C)     
-    //    /                 (B)
-    // (A)         ->      /   \
-    //   \               (A)   (C)
-    //   (B)        
-    // We then rotate it to put (B) on top as parent of (A) and (C)
-    // for (C) to inherit the right (or left) leaf of (B)
-    // and for (A) to inherit the opposite node
-    private void doubleRotate(UserNode n, S parentSide) {
-        UserNode a, b, c; b = n; a = b.getParent(); c = a.getParent();
-        if (c.getParent()!=null) {c.getParent().setChild(b, c.getSide());}
-        b.setParent(c.getParent()); c.setParent(b); a.setParent(b);
-        if (parentSide == S.LEFT) {
-            if (b.getLeft()!=null) {b.getLeft().setParent(a);}
-            a.setRight(b.getLeft());
-            if (b.getRight()!=null) {b.getRight().setParent(c);}
-            c.setLeft(b.getRight());
-            b.setRight(c); b.setLeft(a);
-        }
-        else {
-            if (b.getRight()!=null) {b.getRight().setParent(a);}
-            a.setLeft(b.getRight());
-            if (b.getLeft()!=null) {b.getLeft().setParent(c);}
-            c.setRight(b.getLeft());
-            b.setLeft(c); b.setRight(a);
-        }
-        b.makeBlack(); c.makeRed();
+    // the stripe of the user's lock: the id is mixed, so that consecutive ids don't share
+    // neighbouring stripes in a pattern
+    private static int stripe(int uid) {
+        int h = uid * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+/**
+ * PREAMBLE
+ *
+ * This finds the hashtags of a weet message without making any garbage. addTrends used to
+ * split every message on spaces, which made an array and a string for every word, and
+ * then lowercased every hashtag into yet another string, on every single addWeet. Almost
+ * all of those strings were thrown away straight after, since the trend was already
+ * counted.
+ *
+ * Here, a hashtag is only ever a range of the message: next finds where the next one
+ * starts and end where it stops, so nothing is copied. A hashtag is a word that starts
+ * with '#', and words are split on any whitespace (tabs and new lines too, not only
+ * spaces). The TrendCounter and TrendSketch then hash the range, lowercasing it one
+ * character at a time as they go, and compare it with the trends they already know in
+ * place. The trend only becomes a string of its own the first time it is seen, and that
+ * string is the one every later use of the trend shares.
+ *
+ * The lowercasing is Character.toLowerCase, a character at a time. That is what
+ * String.toLowerCase does too, apart from the few characters whose lowercase depends on
+ * the language or is longer than one character (a capital I with a dot, for one).
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+public class HashtagScanner {
+
+    private HashtagScanner() {
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns where the next hashtag of the text starts, from the given index on, or the
+    // length of the text if there are no more of them
+    public static int next(String text, int from) {
+        int n = text.length();
+        for (int i = from; i < n; i++) {
+            if (text.charAt(i) == '#' && (i == 0 || Character.isWhitespace(text.charAt(i - 1)))) {
+                return i;
+            }
+        }
+        return n;
+    }
+
+    // Returns where the word starting at the given index ends: the index of the first
+    // whitespace after it, or the length of the text
+    public static int end(String text, int start) {
+        int n = text.length();
+        int i = start;
+        while (i < n && !Character.isWhitespace(text.charAt(i))) {i++;}
+        return i;
+    }
+
+    // Returns the hash code the lowercased range of the text would have as a string
+    public static int hash(String text, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {h = 31 * h + Character.toLowerCase(text.charAt(i));}
+        return h;
+    }
+
+    // Returns whether the lowercased range of the text is the same as the given string,
+    // which must already be lowercase
+    public static boolean matches(String lower, String text, int from, int to) {
+        if (lower.length() != to - from) {return false;}
+        for (int i = from; i < to; i++) {
+            if (lower.charAt(i - from) != Character.toLowerCase(text.charAt(i))) {return false;}
+        }
+        return true;
+    }
+
+    // Returns the lowercased range of the text, as a string of its own
+    public static String lowerCase(String text, int from, int to) {
+        char[] chars = new char[to - from];
+        for (int i = from; i < to; i++) {chars[i - from] = Character.toLowerCase(text.charAt(i));}
+        return new String(chars);
+    }
+}
@@ -0,0 +1,276 @@
+/**
+ * PREAMBLE
+ *
+ * This is the IntRedBlackTree again, but without any node objects. Entry number i of the
+ * tree lives at index i of a set of parallel arrays:
+ *
+ *     keys[i]        the id
+ *     values[i]      the value stored under it
+ *     left[i], right[i]   the index of the linked entry, or NIL
+ *     parent[i]      the index of the parent, shifted left by one, with the colour in the
+ *                    lowest bit (1 for red)
+ *
+ * so a link costs 4 bytes instead of a reference, the colour costs no extra space at all,
+ * and there is no object header per entry. An entry takes 20 bytes, where an
+ * IntRedBlackTree.Node takes 40. Apart from the values array, everything is a primitive
+ * array, which the garbage collector never has to look inside.
+ *
+ * The arrays start small and double whenever they are full, so an insert is still O(log n)
+ * amortised. Entries are never removed, so the index of an entry never changes.
+ *
+ * The balancing is exactly that of RedBlackTree, with indices in place of references.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+
+public class IntArrayRedBlackTree<V> implements IntIndex<V> {
+
+    // the index that stands for a null link
+    public static final int NIL = -1;
+
+    private int[] keys, parent, left, right;
+    private Object[] values;
+    private int root;
+    private int size;
+
+    public IntArrayRedBlackTree() {
+        this(16);
+    }
+
+    public IntArrayRedBlackTree(int capacity) {
+        keys = new int[capacity];
+        parent = new int[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        values = new Object[capacity];
+        root = NIL;
+        size = 0;
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of entries in the tree
+    public int size() {
+        return size;
+    }
+
+    /*
+     * These let the entries be walked from the outside, like the getters of a Node.
+     * An entry is referred to by its index, and NIL stands for a null leaf.
+     */
+    public int getRoot() {
+        return root;
+    }
+    public int getKey(int i) {
+        return keys[i];
+    }
+    @SuppressWarnings("unchecked")
+    public V getValue(int i) {
+        return (V) values[i];
+    }
+    public int getParent(int i) {
+        return parent[i] >> 1;
+    }
+    public int getLeft(int i) {
+        return left[i];
+    }
+    public int getRight(int i) {
+        return right[i];
+    }
+    public boolean isRed(int i) {
+        return (parent[i] & 1) != 0;
+    }
+
+    /*
+     * GET – O(log n), and no allocation
+     * Returns the value stored under the key, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int pointer = root;
+        while (pointer != NIL) {
+            int k = keys[pointer];
+            if (key < k) {pointer = left[pointer];}
+            else if (key > k) {pointer = right[pointer];}
+            else {return (V) values[pointer];}
+        }
+        return null;
+    }
+
+    /*
+     * INSERT – O(log n) amortised
+     * Inserts the value under the key. If the key is already in the tree, nothing changes
+     * and false is returned.
+     */
+    public boolean insert(int key, V value) {
+        int p = NIL, pointer = root;
+        boolean goLeft = false;
+        while (pointer != NIL) {
+            int k = keys[pointer];
+            if (key == k) {return false;}
+            p = pointer;
+            goLeft = key < k;
+            pointer = goLeft ? left[pointer] : right[pointer];
+        }
+        if (size == keys.length) {grow();}
+        int n = size++;
+        keys[n] = key; values[n] = value;
+        parent[n] = (p << 1) | 1; left[n] = NIL; right[n] = NIL;
+        if (p == NIL) {root = n;}
+        else if (goLeft) {left[p] = n;}
+        else {right[p] = n;}
+        fixAfterInsert(n);
+        return true;
+    }
+
+    // Returns the entry with the largest key, or NIL if the tree is empty
+    public int last() {
+        int n = root;
+        if (n == NIL) {return NIL;}
+        while (right[n] != NIL) {n = right[n];}
+        return n;
+    }
+
+    // Returns the entry that comes just before n in key order, or NIL if n is the first
+    public int predecessor(int n) {
+        if (left[n] != NIL) {
+            n = left[n];
+            while (right[n] != NIL) {n = right[n];}
+            return n;
+        }
+        int p = parent[n] >> 1;
+        while (p != NIL && n == left[p]) {n = p; p = parent[p] >> 1;}
+        return p;
+    }
+
+    // see IntIndex.fillDescending
+    @SuppressWarnings("unchecked")
+    public int fillDescending(V[] into) {
+        int i = 0;
+        for (int n = last(); n != NIL; n = predecessor(n)) {into[i++] = (V) values[n];}
+        return i;
+    }
+
+    // see IntIndex.buildFromSorted – O(n). Entry number i is the i-th smallest key, so the
+    // keys and values are copied over as they are, and only the links have to be made.
+    public void buildFromSorted(int[] keys, V[] values, int n) {
+        if (root != NIL) {throw new IllegalStateException("only an empty index can be built");}
+        for (int i = 1; i < n; i++) {
+            if (keys[i] <= keys[i-1]) {throw new IllegalArgumentException("the keys are not strictly increasing");}
+        }
+        if (this.keys.length < n) {
+            this.keys = new int[n];
+            parent = new int[n];
+            left = new int[n];
+            right = new int[n];
+            this.values = new Object[n];
+        }
+        System.arraycopy(keys, 0, this.keys, 0, n);
+        System.arraycopy(values, 0, this.values, 0, n);
+        root = link(0, n - 1, 0, RedBlackTree.redLevel(n), NIL);
+        size = n;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT BUILD A TREE FROM SORTED KEYS */
+
+    // see RedBlackTree.link
+    private int link(int lo, int hi, int level, int redLevel, int p) {
+        if (lo > hi) {return NIL;}
+        int mid = (lo + hi) >>> 1;
+        parent[mid] = (p << 1) | ((level == redLevel) ? 1 : 0);
+        left[mid] = link(lo, mid - 1, level + 1, redLevel, mid);
+        right[mid] = link(mid + 1, hi, level + 1, redLevel, mid);
+        return mid;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT KEEP THE TREE BALANCED */
+
+    // doubles the capacity of every array
+    private void grow() {
+        int capacity = Math.max(16, keys.length * 2);
+        keys = Arrays.copyOf(keys, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    // the parent of i (NIL for the root) and the colour of i, packed together in parent[]
+    private int parentOf(int i) {
+        return parent[i] >> 1;
+    }
+    private boolean red(int i) {
+        return i != NIL && (parent[i] & 1) != 0;
+    }
+    private void setParent(int i, int p) {
+        parent[i] = (p << 1) | (parent[i] & 1);
+    }
+    private void setRed(int i, boolean r) {
+        parent[i] = r ? (parent[i] | 1) : (parent[i] & ~1);
+    }
+
+    // see RedBlackTree.fixAfterInsert
+    private void fixAfterInsert(int x) {
+        while (red(parentOf(x))) {
+            int p = parentOf(x), g = parentOf(p);
+            if (p == left[g]) {
+                int uncle = right[g];
+                if (red(uncle)) {
+                    setRed(p, false); setRed(uncle, false); setRed(g, true);
+                    x = g;
+                }
+                else {
+                    if (x == right[p]) {rotateLeft(p); p = x;}
+                    setRed(p, false); setRed(g, true);
+                    rotateRight(g);
+                    break;
+                }
+            }
+            else {
+                int uncle = left[g];
+                if (red(uncle)) {
+                    setRed(p, false); setRed(uncle, false); setRed(g, true);
+                    x = g;
+                }
+                else {
+                    if (x == left[p]) {rotateRight(p); p = x;}
+                    setRed(p, false); setRed(g, true);
+                    rotateLeft(g);
+                    break;
+                }
+            }
+        }
+        setRed(root, false);
+    }
+
+    // (B), the right child of (A), takes the place of (A), and (A) inherits the left leaf of (B)
+    private void rotateLeft(int a) {
+        int b = right[a];
+        right[a] = left[b];
+        if (left[b] != NIL) {setParent(left[b], a);}
+        replace(a, b);
+        left[b] = a; setParent(a, b);
+    }
+
+    // (B), the left child of (A), takes the place of (A), and (A) inherits the right leaf of (B)
+    private void rotateRight(int a) {
+        int b = left[a];
+        left[a] = right[b];
+        if (right[b] != NIL) {setParent(right[b], a);}
+        replace(a, b);
+        right[b] = a; setParent(a, b);
+    }
+
+    // puts b where a used to hang from a's parent – or makes it the root
+    private void replace(int a, int b) {
+        int p = parentOf(a);
+        setParent(b, p);
+        if (p == NIL) {root = b;}
+        else if (left[p] == a) {left[p] = b;}
+        else {right[p] = b;}
+    }
+}
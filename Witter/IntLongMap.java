@@ -0,0 +1,130 @@
+/**
+ * PREAMBLE
+ *
+ * This is a hash table from int keys to long values, with open addressing, for when a
+ * HashMap<Integer,Long> would box every key and value and take a node object per entry.
+ * FollowerStore keeps one per user with many followers or follows, from the id of every
+ * follower (or followee) to the time of the follow, so that whether someone follows a user
+ * is found in O(1) expected, rather than by going through all of the user's followers.
+ *
+ * The keys and values live in two parallel arrays, and the table is kept at most half
+ * full, so a lookup only ever probes a slot or two. Since any int can be an id, one key has
+ * to mean an empty slot: that is Integer.MIN_VALUE, and if it is used as a key after all,
+ * it is kept aside in a field of its own.
+ *
+ * Entries are never removed, since follows never are either.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+
+public class IntLongMap {
+
+    // the key of an empty slot
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    /*
+     * • keys and values hold the entries, at the slot their key hashes to (or after it)
+     * • size is the amount of entries, including the one of the EMPTY key, if there is one
+     * • hasEmptyKey and emptyKeyValue hold the entry of the EMPTY key
+     */
+    private int[] keys;
+    private long[] values;
+    private int size;
+    private boolean hasEmptyKey;
+    private long emptyKeyValue;
+
+    // An empty map, with room for the given amount of entries before it has to grow
+    public IntLongMap(int expected) {
+        int length = 16;
+        while (length < expected * 2) {length *= 2;}
+        keys = new int[length];
+        Arrays.fill(keys, EMPTY);
+        values = new long[length];
+        size = 0;
+        hasEmptyKey = false;
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of entries in the map
+    public int size() {
+        return size;
+    }
+
+    /*
+     * PUT – O(1) expected, amortised
+     * Adds the key with the value, if the key isn't in the map yet, and returns true.
+     * Otherwise, the map is left as it is, and false is returned.
+     */
+    public boolean put(int key, long value) {
+        if (key == EMPTY) {
+            if (hasEmptyKey) {return false;}
+            hasEmptyKey = true;
+            emptyKeyValue = value;
+            size++;
+            return true;
+        }
+        int i = find(key);
+        if (keys[i] == key) {return false;}
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        // keep the table at most half full
+        if (size * 2 > keys.length) {rehash();}
+        return true;
+    }
+
+    /*
+     * CONTAINSKEY – O(1) expected
+     * Returns whether the key is in the map.
+     */
+    public boolean containsKey(int key) {
+        if (key == EMPTY) {return hasEmptyKey;}
+        return keys[find(key)] == key;
+    }
+
+    /*
+     * GET – O(1) expected
+     * Returns the value of the key, or the given default if the key isn't in the map.
+     */
+    public long get(int key, long otherwise) {
+        if (key == EMPTY) {return hasEmptyKey ? emptyKeyValue : otherwise;}
+        int i = find(key);
+        return (keys[i] == key) ? values[i] : otherwise;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS */
+
+    // returns the slot of the key, or the empty slot where it would go
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {i = (i + 1) & mask;}
+        return i;
+    }
+
+    // doubles the table, and puts every entry back in it
+    private void rehash() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        values = new long[keys.length];
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) {continue;}
+            int i = find(oldKeys[j]);
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    // spreads the bits of the key, so that consecutive ids don't land in consecutive slots
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * PREAMBLE
+ *
+ * This is the RedBlackTree again, specialised for keys that are plain ints: user ids and
+ * weet ids. Looking an id up in a RedBlackTree<Integer,V> boxes the id into an Integer on
+ * every call (a new object for every id over 127) and then compares through compareTo.
+ * Here the key is stored as an int and compared with < and >, so a lookup allocates nothing.
+ *
+ * Since all ids are unique there is no insertMulti. Otherwise it works exactly like
+ * RedBlackTree, and the balancing code is the same. It is the NODES storage of an IntIndex.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+public class IntRedBlackTree<V> implements IntIndex<V> {
+
+    /*
+     * A node holds an int key, its value, whether it is red and the three nodes it is
+     * linked to.
+     */
+    public static final class Node<V> {
+        private final int key;
+        private V value;
+        private boolean red;
+        private Node<V> parent, left, right;
+
+        private Node(int k, V v, Node<V> p) {
+            key = k;
+            value = v;
+            red = true;
+            parent = p;
+        }
+
+        // Returns the id the node is ordered by
+        public int getKey() {
+            return key;
+        }
+        // Returns the value stored under the id
+        public V getValue() {
+            return value;
+        }
+        // Returns the parent node, which is null only for the root
+        public Node<V> getParent() {
+            return parent;
+        }
+        // Returns the node on the left (can be a null leaf)
+        public Node<V> getLeft() {
+            return left;
+        }
+        // Returns the node on the right (can be a null leaf)
+        public Node<V> getRight() {
+            return right;
+        }
+        // Allows for checking if the colour of the node is red
+        public boolean isRed() {
+            return red;
+        }
+    }
+
+    private Node<V> root;
+    private int size;
+
+    public IntRedBlackTree() {
+        root = null;
+        size = 0;
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of entries in the tree
+    public int size() {
+        return size;
+    }
+
+    // Returns the root node, which is null when the tree is empty
+    public Node<V> getRoot() {
+        return root;
+    }
+
+    /*
+     * GET – O(log n), and no allocation
+     * Returns the value stored under the key, or null if there is none.
+     */
+    public V get(int key) {
+        Node<V> pointer = root;
+        while (pointer != null) {
+            int k = pointer.key;
+            if (key < k) {pointer = pointer.left;}
+            else if (key > k) {pointer = pointer.right;}
+            else {return pointer.value;}
+        }
+        return null;
+    }
+
+    /*
+     * INSERT – O(log n)
+     * Inserts the value under the key. If the key is already in the tree, nothing changes
+     * and false is returned.
+     */
+    public boolean insert(int key, V value) {
+        Node<V> parent = null, pointer = root;
+        boolean left = false;
+        while (pointer != null) {
+            int k = pointer.key;
+            if (key == k) {return false;}
+            parent = pointer;
+            left = key < k;
+            pointer = left ? pointer.left : pointer.right;
+        }
+        Node<V> n = new Node<V>(key, value, parent);
+        if (parent == null) {root = n;}
+        else if (left) {parent.left = n;}
+        else {parent.right = n;}
+        size++;
+        fixAfterInsert(n);
+        return true;
+    }
+
+    // Returns the node with the largest key, or null if the tree is empty
+    public Node<V> last() {
+        Node<V> n = root;
+        if (n == null) {return null;}
+        while (n.right != null) {n = n.right;}
+        return n;
+    }
+
+    // Returns the node that comes just before n in key order, or null if n is the first
+    public Node<V> predecessor(Node<V> n) {
+        if (n.left != null) {
+            n = n.left;
+            while (n.right != null) {n = n.right;}
+            return n;
+        }
+        Node<V> p = n.parent;
+        while (p != null && n == p.left) {n = p; p = p.parent;}
+        return p;
+    }
+
+    // see IntIndex.fillDescending
+    public int fillDescending(V[] into) {
+        int i = 0;
+        for (Node<V> n = last(); n != null; n = predecessor(n)) {into[i++] = n.value;}
+        return i;
+    }
+
+    // see IntIndex.buildFromSorted – O(n)
+    public void buildFromSorted(int[] keys, V[] values, int n) {
+        if (root != null) {throw new IllegalStateException("only an empty index can be built");}
+        for (int i = 1; i < n; i++) {
+            if (keys[i] <= keys[i-1]) {throw new IllegalArgumentException("the keys are not strictly increasing");}
+        }
+        root = link(keys, values, 0, n - 1, 0, RedBlackTree.redLevel(n), null);
+        size = n;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT BUILD A TREE FROM SORTED KEYS */
+
+    // see RedBlackTree.link, making the nodes as it goes
+    private Node<V> link(int[] keys, V[] values, int lo, int hi, int level, int redLevel, Node<V> parent) {
+        if (lo > hi) {return null;}
+        int mid = (lo + hi) >>> 1;
+        Node<V> n = new Node<V>(keys[mid], values[mid], parent);
+        n.red = (level == redLevel);
+        n.left = link(keys, values, lo, mid - 1, level + 1, redLevel, n);
+        n.right = link(keys, values, mid + 1, hi, level + 1, redLevel, n);
+        return n;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT KEEP THE TREE BALANCED */
+
+    // see RedBlackTree.fixAfterInsert
+    private void fixAfterInsert(Node<V> x) {
+        while (x.parent != null && x.parent.red) {
+            Node<V> p = x.parent, g = p.parent;
+            if (p == g.left) {
+                Node<V> uncle = g.right;
+                if (uncle != null && uncle.red) {
+                    p.red = false; uncle.red = false; g.red = true;
+                    x = g;
+                }
+                else {
+                    if (x == p.right) {rotateLeft(p); p = x;}
+                    p.red = false; g.red = true;
+                    rotateRight(g);
+                    break;
+                }
+            }
+            else {
+                Node<V> uncle = g.left;
+                if (uncle != null && uncle.red) {
+                    p.red = false; uncle.red = false; g.red = true;
+                    x = g;
+                }
+                else {
+                    if (x == p.left) {rotateRight(p); p = x;}
+                    p.red = false; g.red = true;
+                    rotateLeft(g);
+                    break;
+                }
+            }
+        }
+        root.red = false;
+    }
+
+    // (B), the right child of (A), takes the place of (A), and (A) inherits the left leaf of (B)
+    private void rotateLeft(Node<V> a) {
+        Node<V> b = a.right;
+        a.right = b.left;
+        if (b.left != null) {b.left.parent = a;}
+        replace(a, b);
+        b.left = a; a.parent = b;
+    }
+
+    // (B), the left child of (A), takes the place of (A), and (A) inherits the right leaf of (B)
+    private void rotateRight(Node<V> a) {
+        Node<V> b = a.left;
+        a.left = b.right;
+        if (b.right != null) {b.right.parent = a;}
+        replace(a, b);
+        b.right = a; a.parent = b;
+    }
+
+    // puts b where a used to hang from a's parent – or makes it the root
+    private void replace(Node<V> a, Node<V> b) {
+        Node<V> p = a.parent;
+        b.parent = p;
+        if (p == null) {root = b;}
+        else if (p.left == a) {p.left = b;}
+        else {p.right = b;}
+    }
+}
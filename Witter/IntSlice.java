@@ -0,0 +1,62 @@
+/**
+ * PREAMBLE
+ *
+ * An IntSlice is a Slice of an array of ids: a read-only view of part of an int array that
+ * a store has cached, and will never change. getFollowersView, getFollowsView and
+ * getTopUsersView return one instead of a copy of the array. See Slice.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+
+public final class IntSlice {
+
+    // the view is of array[from] to array[to-1], and the array is never changed
+    private final int[] array;
+    private final int from, to;
+
+    // A view of the whole array, which must never be changed after this
+    IntSlice(int[] array) {
+        this(array, 0, array.length);
+    }
+
+    // A view of array[from] to array[to-1], which must never be changed after this
+    IntSlice(int[] array, int from, int to) {
+        if (from < 0 || to > array.length || from > to) {
+            throw new IndexOutOfBoundsException("slice " + from + " to " + to + " of " + array.length);
+        }
+        this.array = array;
+        this.from = from;
+        this.to = to;
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of ids in the view
+    public int size() {
+        return to - from;
+    }
+
+    // Returns the id at the index, counting from the start of the view
+    public int get(int i) {
+        if (i < 0 || i >= to - from) {throw new IndexOutOfBoundsException("index " + i + " of " + (to - from));}
+        return array[from + i];
+    }
+
+    // Returns a view of the ids from index start to index end (not included) of this one,
+    // without copying anything
+    public IntSlice slice(int start, int end) {
+        if (start < 0 || end > to - from || start > end) {
+            throw new IndexOutOfBoundsException("slice " + start + " to " + end + " of " + (to - from));
+        }
+        return new IntSlice(array, from + start, from + end);
+    }
+
+    // Returns the ids in an array of their own, which the caller is free to change
+    public int[] toArray() {
+        return Arrays.copyOfRange(array, from, to);
+    }
+}
@@ -0,0 +1,344 @@
+/**
+ * PREAMBLE
+ *
+ * This is the one Red-Black tree that all three stores sit on. UserStore, WeetStore and
+ * FollowerStore used to each carry their own copy of the node class and of the
+ * checkNode/recolour/restructure/rotate methods, so any improvement had to be made three
+ * times. Now it is made here once.
+ *
+ * The tree is an ordered map from a Comparable key to a value. Keys can either be unique
+ * (insert, used for ids) or repeated (insertMulti, used for dates, where many users or weets
+ * can share the same date). A repeated key is placed after the equal keys already in the
+ * tree, so a descending traversal returns the most recently inserted of them first.
+ *
+ * Compared to the old per-store trees, the hot path is a lot leaner:
+ * • the key is compared once per level instead of up to three times
+ * • the root is tracked by the rotations, so there is no walk up the parents after an insert
+ * • the uncle is read straight from the grandparent, rather than recomputing a sibling
+ * • a node does not store which side of its parent it is on, or its sibling – nothing
+ *   needs them that can't be read from the parent
+ * • the colour is a single bit (a boolean), rather than a reference to an enum constant
+ *   that the garbage collector has to trace
+ * • traversals are iterative, using the parent pointers, so they need no recursion and no
+ *   global iterator variable
+ *
+ * A tree can also be built in one go from keys that are already in order, which is how the
+ * stores load a whole file at once: the middle key becomes the root, and the halves on
+ * either side of it become its subtrees in the same way. That is O(n), with no rotations,
+ * and the tree is as low as a binary tree of n nodes can be.
+ *
+ * There is no remove, because none of the stores ever delete anything.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+public class RedBlackTree<K extends Comparable<K>, V> {
+
+    /*
+     * A node holds only what red-black balancing needs: a key, its value, whether it is red,
+     * and the three nodes it is linked to.
+     * The getters are public so that the stores can walk the tree themselves when they need
+     * to (for example to continue from a node they already found), but only the tree itself
+     * can change the links.
+     */
+    public static final class Node<K, V> {
+        private final K key;
+        private V value;
+        private boolean red;
+        private Node<K,V> parent, left, right;
+
+        private Node(K k, V v, Node<K,V> p) {
+            key = k;
+            value = v;
+            red = true;
+            parent = p;
+        }
+
+        // Returns the key the node is ordered by
+        public K getKey() {
+            return key;
+        }
+        // Returns the value stored under the key
+        public V getValue() {
+            return value;
+        }
+        // Returns the parent node, which is null only for the root
+        public Node<K,V> getParent() {
+            return parent;
+        }
+        // Returns the node on the left (can be a null leaf)
+        public Node<K,V> getLeft() {
+            return left;
+        }
+        // Returns the node on the right (can be a null leaf)
+        public Node<K,V> getRight() {
+            return right;
+        }
+        // Allows for checking if the colour of the node is red
+        public boolean isRed() {
+            return red;
+        }
+    }
+
+    private Node<K,V> root;
+    private int size;
+
+    public RedBlackTree() {
+        root = null;
+        size = 0;
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of entries in the tree
+    public int size() {
+        return size;
+    }
+
+    // Returns the root node, which is null when the tree is empty
+    public Node<K,V> getRoot() {
+        return root;
+    }
+
+    /*
+     * GET – O(log n)
+     * Returns the value stored under the key, or null if there is none.
+     * If the key is repeated, any one of its values is returned.
+     */
+    public V get(K key) {
+        Node<K,V> n = getNode(key);
+        return (n == null) ? null : n.value;
+    }
+
+    // Returns the node stored under the key, or null if there is none
+    public Node<K,V> getNode(K key) {
+        Node<K,V> pointer = root;
+        while (pointer != null) {
+            int c = key.compareTo(pointer.key);
+            if (c < 0) {pointer = pointer.left;}
+            else if (c > 0) {pointer = pointer.right;}
+            else {return pointer;}
+        }
+        return null;
+    }
+
+    /*
+     * INSERT – O(log n)
+     * Inserts the value under a key that must be unique.
+     * If the key is already in the tree, nothing changes and false is returned.
+     */
+    public boolean insert(K key, V value) {
+        Node<K,V> parent = null, pointer = root;
+        int c = 0;
+        while (pointer != null) {
+            c = key.compareTo(pointer.key);
+            if (c == 0) {return false;}
+            parent = pointer;
+            pointer = (c < 0) ? pointer.left : pointer.right;
+        }
+        attach(new Node<K,V>(key, value, parent), c);
+        return true;
+    }
+
+    /*
+     * INSERTMULTI – O(log n)
+     * Inserts the value under a key that may already be in the tree. The new entry is placed
+     * after all of the equal keys, and the node it is stored in is returned.
+     */
+    public Node<K,V> insertMulti(K key, V value) {
+        Node<K,V> parent = null, pointer = root;
+        int c = 0;
+        while (pointer != null) {
+            c = key.compareTo(pointer.key);
+            if (c == 0) {c = 1;}
+            parent = pointer;
+            pointer = (c < 0) ? pointer.left : pointer.right;
+        }
+        Node<K,V> n = new Node<K,V>(key, value, parent);
+        attach(n, c);
+        return n;
+    }
+
+    // Returns the node with the largest key (the last inserted if repeated), or null
+    public Node<K,V> last() {
+        Node<K,V> n = root;
+        if (n == null) {return null;}
+        while (n.right != null) {n = n.right;}
+        return n;
+    }
+
+    /*
+     * FLOOR – O(log n)
+     * Returns the last node whose key is not greater than the given key (if that key is
+     * repeated, the last inserted of them), or null if every key is greater.
+     */
+    public Node<K,V> floor(K key) {
+        Node<K,V> found = null, pointer = root;
+        while (pointer != null) {
+            if (key.compareTo(pointer.key) < 0) {pointer = pointer.left;}
+            else {found = pointer; pointer = pointer.right;}
+        }
+        return found;
+    }
+
+    // Returns the node that comes just before n in key order, or null if n is the first
+    public Node<K,V> predecessor(Node<K,V> n) {
+        if (n.left != null) {
+            n = n.left;
+            while (n.right != null) {n = n.right;}
+            return n;
+        }
+        Node<K,V> p = n.parent;
+        while (p != null && n == p.left) {n = p; p = p.parent;}
+        return p;
+    }
+
+    /*
+     * FILLDESCENDING – O(n)
+     * Stores every value of the tree in the array, from the largest key to the smallest,
+     * and returns how many were stored. The array must be at least size() long.
+     */
+    public int fillDescending(V[] into) {
+        int i = 0;
+        for (Node<K,V> n = last(); n != null; n = predecessor(n)) {into[i++] = n.value;}
+        return i;
+    }
+
+    /*
+     * BUILDFROMSORTED – O(n)
+     * Fills an empty tree with the first n keys and values of the arrays, which must be in
+     * key order. Repeated keys are kept in the order they are given, as if they had been
+     * added with insertMulti one after the other. Returns the node of every entry, at the
+     * same index as its key.
+     */
+    public Node<K,V>[] buildFromSorted(K[] keys, V[] values, int n) {
+        if (root != null) {throw new IllegalStateException("only an empty tree can be built");}
+        for (int i = 1; i < n; i++) {
+            if (keys[i].compareTo(keys[i-1]) < 0) {throw new IllegalArgumentException("the keys are not in order");}
+        }
+        Node<K,V>[] nodes = newNodeArray(n);
+        for (int i = 0; i < n; i++) {nodes[i] = new Node<K,V>(keys[i], values[i], null);}
+        root = link(nodes, 0, n - 1, 0, redLevel(n), null);
+        size = n;
+        return nodes;
+    }
+
+    // Returns an array for n nodes, all null. Java can't make an array of a generic type
+    // itself, so it is made raw and cast here, in the one place.
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <K extends Comparable<K>, V> Node<K,V>[] newNodeArray(int n) {
+        return (Node<K,V>[]) new Node[n];
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT BUILD A TREE FROM SORTED KEYS */
+
+    // REDLEVEL
+    // A tree built by splitting the keys in the middle, again and again, is as balanced as
+    // can be: every level is full, except perhaps the deepest. Every node is black, apart
+    // from those on that deepest level if it isn't full, which are red, so that every path
+    // from the root to a leaf still has the same amount of black nodes. This returns the
+    // depth of that level, for n nodes (the root is at depth 0).
+    static int redLevel(int n) {
+        int level = 0;
+        for (int m = n - 1; m >= 0; m = m / 2 - 1) {level++;}
+        return level;
+    }
+
+    // links the nodes from lo to hi into a subtree under the parent, and returns its root:
+    // the middle node, with the nodes before it on its left, and those after on its right
+    private Node<K,V> link(Node<K,V>[] nodes, int lo, int hi, int level, int redLevel, Node<K,V> parent) {
+        if (lo > hi) {return null;}
+        int mid = (lo + hi) >>> 1;
+        Node<K,V> n = nodes[mid];
+        n.parent = parent;
+        n.red = (level == redLevel);
+        n.left = link(nodes, lo, mid - 1, level + 1, redLevel, n);
+        n.right = link(nodes, mid + 1, hi, level + 1, redLevel, n);
+        return n;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT KEEP THE TREE BALANCED */
+
+    // links a new red node under its parent on the side given by c, then rebalances
+    private void attach(Node<K,V> n, int c) {
+        Node<K,V> parent = n.parent;
+        if (parent == null) {root = n;}
+        else if (c < 0) {parent.left = n;}
+        else {parent.right = n;}
+        size++;
+        fixAfterInsert(n);
+    }
+
+    // This is the old checkNode/recolour/restructure loop, done without recursion.
+    // While the node and its parent are both red:
+    //      if the uncle is red, recolour and carry on from the grandparent
+    //      if the uncle is black (or null), rotate once or twice and stop
+    // The root is then coloured black.
+    private void fixAfterInsert(Node<K,V> x) {
+        while (x.parent != null && x.parent.red) {
+            Node<K,V> p = x.parent, g = p.parent;
+            if (p == g.left) {
+                Node<K,V> uncle = g.right;
+                if (uncle != null && uncle.red) {
+                    p.red = false; uncle.red = false; g.red = true;
+                    x = g;
+                }
+                else {
+                    if (x == p.right) {rotateLeft(p); p = x;}
+                    p.red = false; g.red = true;
+                    rotateRight(g);
+                    break;
+                }
+            }
+            else {
+                Node<K,V> uncle = g.left;
+                if (uncle != null && uncle.red) {
+                    p.red = false; uncle.red = false; g.red = true;
+                    x = g;
+                }
+                else {
+                    if (x == p.left) {rotateRight(p); p = x;}
+                    p.red = false; g.red = true;
+                    rotateLeft(g);
+                    break;
+                }
+            }
+        }
+        root.red = false;
+    }
+
+    //     (A)                  (B)
+    //        \       ->       /
+    //        (B)            (A)
+    // (B) takes the place of (A), and (A) inherits the left leaf of (B)
+    private void rotateLeft(Node<K,V> a) {
+        Node<K,V> b = a.right;
+        a.right = b.left;
+        if (b.left != null) {b.left.parent = a;}
+        replace(a, b);
+        b.left = a; a.parent = b;
+    }
+
+    //       (A)            (B)
+    //      /       ->         \
+    //    (B)                  (A)
+    // (B) takes the place of (A), and (A) inherits the right leaf of (B)
+    private void rotateRight(Node<K,V> a) {
+        Node<K,V> b = a.left;
+        a.left = b.right;
+        if (b.right != null) {b.right.parent = a;}
+        replace(a, b);
+        b.right = a; a.parent = b;
+    }
+
+    // puts b where a used to hang from a's parent – or makes it the root
+    private void replace(Node<K,V> a, Node<K,V> b) {
+        Node<K,V> p = a.parent;
+        b.parent = p;
+        if (p == null) {root = b;}
+        else if (p.left == a) {p.left = b;}
+        else {p.right = b;}
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * PREAMBLE
+ *
+ * A Slice is a read-only view of part of an array, which the stores hand out instead of the
+ * arrays they cache. getUsers, getWeets, getFollowers and the like used to return those
+ * cached arrays themselves, so a caller that changed one (sorting it, or clearing it) would
+ * change what every later caller got back too, and would race with any other thread reading
+ * it. Now they return a copy, and the view methods (getUsersView and so on) return a Slice
+ * of the cache instead, which costs nothing to make, and can't be used to change anything.
+ *
+ * This works because the stores never change an array once they have cached it. When there
+ * is something new, they make a new array rather than changing the old one, so each array
+ * is in effect one version of the list, and a Slice of it stays the same forever, however
+ * much is added to the store afterwards. Nor does a Slice need a lock to be read by any
+ * number of threads at once, since its fields are final, and what they point at is never
+ * written to again.
+ *
+ * Only the stores make Slices, so the constructor is package-private. IntSlice is the same
+ * for arrays of ids.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public final class Slice<V> implements Iterable<V> {
+
+    // the view is of array[from] to array[to-1], and the array is never changed
+    private final V[] array;
+    private final int from, to;
+
+    // A view of the whole array, which must never be changed after this
+    Slice(V[] array) {
+        this(array, 0, array.length);
+    }
+
+    // A view of array[from] to array[to-1], which must never be changed after this
+    Slice(V[] array, int from, int to) {
+        if (from < 0 || to > array.length || from > to) {
+            throw new IndexOutOfBoundsException("slice " + from + " to " + to + " of " + array.length);
+        }
+        this.array = array;
+        this.from = from;
+        this.to = to;
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of values in the view
+    public int size() {
+        return to - from;
+    }
+
+    // Returns the value at the index, counting from the start of the view
+    public V get(int i) {
+        if (i < 0 || i >= to - from) {throw new IndexOutOfBoundsException("index " + i + " of " + (to - from));}
+        return array[from + i];
+    }
+
+    // Returns a view of the values from index start to index end (not included) of this one,
+    // without copying anything
+    public Slice<V> slice(int start, int end) {
+        if (start < 0 || end > to - from || start > end) {
+            throw new IndexOutOfBoundsException("slice " + start + " to " + end + " of " + (to - from));
+        }
+        return new Slice<V>(array, from + start, from + end);
+    }
+
+    // Returns the values in an array of their own, which the caller is free to change
+    public V[] toArray() {
+        return Arrays.copyOfRange(array, from, to);
+    }
+
+    // Goes through the values in order. The iterator can't remove anything.
+    public Iterator<V> iterator() {
+        return new Iterator<V>() {
+            private int i = from;
+            public boolean hasNext() {return i < to;}
+            public V next() {
+                if (i >= to) {throw new NoSuchElementException();}
+                return array[i++];
+            }
+        };
+    }
+}
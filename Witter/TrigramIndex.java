@@ -0,0 +1,279 @@
+/**
+ * PREAMBLE
+ *
+ * This is an inverted index for substring search, which getWeetsContaining and
+ * getUsersContaining both use instead of lowercasing and scanning every message or name on
+ * every query.
+ *
+ * Every text that is added is lowercased once and split into its trigrams: all of its runs
+ * of three characters ("hello" has "hel", "ell" and "llo"). For every trigram, the index
+ * keeps a posting list of the texts it appears in. A text that contains the query must
+ * contain every trigram of the query, so to search:
+ * • the posting lists of the trigrams of the query are looked up (if one of them doesn't
+ *   exist, nothing can match)
+ * • the shortest list is taken, and each text on it is kept only if it is on every other
+ *   list too (found by galloping through them, since the lists are sorted)
+ * • the texts that are left are checked with contains, since having all the trigrams of
+ *   the query doesn't mean they are in the right order
+ * So a query only ever looks at the texts that share its rarest trigram, rather than at
+ * all of them. A query shorter than three characters has no trigrams, and is answered by
+ * checking every text instead – unless the index was asked to also keep posting lists for
+ * every single character and every pair of characters. Then such a query is answered
+ * straight from its list, which holds exactly the texts that contain it. That costs two
+ * more postings per character of text, so it is worth it for short texts that are searched
+ * as they are typed (user names), but not for long ones (weet messages).
+ *
+ * Texts are numbered in the order they are added, and that number is what the posting
+ * lists hold. As numbers are only ever appended, the lists are sorted for free.
+ *
+ * The results come out in the same order as getUsers or getWeets: the most recent date
+ * first and, for equal dates, the most recently added first.
+ *
+ * The trigrams are packed into a long (three 16 bit characters, and their amount), and
+ * looked up in a hash table with open addressing, so that a lookup never boxes anything.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+import java.util.Date;
+
+public class TrigramIndex<V> {
+
+    /*
+     * • texts, times and values hold the lowercased text, date and value of every entry,
+     *   at the index of its number
+     * • slots is the hash table from a packed trigram (never 0, so 0 means empty) to the
+     *   index of its posting list in postings
+     * • postings holds the posting lists, and postingSizes how full each of them is
+     * • shortest is the length of the shortest runs of characters that are indexed: 3, or 1
+     *   if short queries are answered from the index too
+     */
+    private String[] texts;
+    private long[] times;
+    private V[] values;
+    private int size;
+    private long[] slots;
+    private int[] slotPostings;
+    private int[][] postings;
+    private int[] postingSizes;
+    private int trigrams;
+    private final int shortest;
+    private final V[] empty;
+
+    /*
+     * The empty array is only used for its type, so that the arrays handed out are of the
+     * right type (a User[] rather than an Object[]).
+     * Queries under three characters are answered by checking every text.
+     */
+    public TrigramIndex(V[] empty) {
+        this(empty, false);
+    }
+
+    /*
+     * If shortQueries is true, single characters and pairs of characters are indexed too,
+     * so that queries under three characters don't have to check every text.
+     */
+    public TrigramIndex(V[] empty, boolean shortQueries) {
+        this.empty = Arrays.copyOf(empty, 0);
+        shortest = shortQueries ? 1 : 3;
+        texts = new String[16];
+        times = new long[16];
+        values = Arrays.copyOf(empty, 16);
+        size = 0;
+        slots = new long[64];
+        slotPostings = new int[64];
+        postings = new int[16][];
+        postingSizes = new int[16];
+        trigrams = 0;
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of entries in the index
+    public int size() {
+        return size;
+    }
+
+    /*
+     * ADD – O(L) for a text of L characters
+     * Indexes the value under the text, and remembers its date for ordering the results.
+     */
+    public void add(String text, Date date, V value) {
+        if (size == texts.length) {
+            texts = Arrays.copyOf(texts, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        String lower = text.toLowerCase();
+        int id = size++;
+        texts[id] = lower;
+        times[id] = date.getTime();
+        values[id] = value;
+        for (int length = shortest; length <= 3; length++) {
+            for (int i = 0; i + length <= lower.length(); i++) {
+                int p = posting(gram(lower, i, length), true);
+                int n = postingSizes[p];
+                // a text that has the same trigram twice is only listed once
+                if (n > 0 && postings[p][n-1] == id) {continue;}
+                if (n == postings[p].length) {postings[p] = Arrays.copyOf(postings[p], n * 2);}
+                postings[p][n] = id;
+                postingSizes[p] = n + 1;
+            }
+        }
+    }
+
+    /*
+     * SEARCH – O(s log n + m log m), for the s texts with the rarest trigram of the query
+     * and the m of them that match. For a query under three characters, O(m log m) if
+     * short queries are indexed, and O(n) otherwise.
+     * Returns every value whose lowercased text contains the lowercased query, most recent
+     * first.
+     */
+    public V[] search(String query) {
+        String q = query.toLowerCase();
+        int[] found = new int[Math.min(size, 16)];
+        int count = 0;
+        if (q.length() < 3 && q.length() >= shortest) {
+            int p = posting(gram(q, 0, q.length()), false);
+            if (p == -1) {return empty;}
+            found = postings[p];
+            count = postingSizes[p];
+        }
+        else if (q.length() < 3) {
+            for (int id = 0; id < size; id++) {
+                if (texts[id].contains(q)) {
+                    if (count == found.length) {found = Arrays.copyOf(found, count * 2);}
+                    found[count++] = id;
+                }
+            }
+        }
+        else {
+            int grams = q.length() - 2;
+            int[] lists = new int[grams];
+            int rarest = 0;
+            for (int i = 0; i < grams; i++) {
+                lists[i] = posting(gram(q, i, 3), false);
+                if (lists[i] == -1) {return empty;}
+                if (postingSizes[lists[i]] < postingSizes[lists[rarest]]) {rarest = i;}
+            }
+            int[] candidates = postings[lists[rarest]];
+            int candidateCount = postingSizes[lists[rarest]];
+            int[] cursors = new int[grams];
+            for (int c = 0; c < candidateCount; c++) {
+                int id = candidates[c];
+                if (onAll(id, lists, cursors) && texts[id].contains(q)) {
+                    if (count == found.length) {found = Arrays.copyOf(found, count * 2);}
+                    found[count++] = id;
+                }
+            }
+        }
+        if (count == 0) {return empty;}
+        return inDateOrder(found, count);
+    }
+
+    /* HERE BEGIN PRIVATE METHODS */
+
+    // whether the text is on every one of the posting lists. The candidates are checked in
+    // increasing order, so each list keeps a cursor that only moves forward: it gallops
+    // (1, 2, 4... places) past the smaller numbers, then binary searches the last step.
+    private boolean onAll(int id, int[] lists, int[] cursors) {
+        for (int i = 0; i < lists.length; i++) {
+            int[] list = postings[lists[i]];
+            int n = postingSizes[lists[i]], from = cursors[i], step = 1;
+            while (from + step < n && list[from + step] < id) {from += step; step *= 2;}
+            int at = Arrays.binarySearch(list, from, Math.min(from + step + 1, n), id);
+            if (at < 0) {cursors[i] = -at - 1; return false;}
+            cursors[i] = at;
+        }
+        return true;
+    }
+
+    // the values of the texts (given in the order they were added), most recent first
+    private V[] inDateOrder(int[] found, int count) {
+        // reversed, the texts are newest added first, so a stable sort by date keeps that
+        // order between equal dates
+        int[] ids = new int[count];
+        boolean sorted = true;
+        for (int i = 0; i < count; i++) {
+            ids[i] = found[count - 1 - i];
+            if (i > 0 && times[ids[i]] > times[ids[i-1]]) {sorted = false;}
+        }
+        if (!sorted) {
+            int[] scratch = Arrays.copyOf(ids, count);
+            sortByDate(scratch, ids, 0, count);
+        }
+        V[] result = Arrays.copyOf(empty, count);
+        for (int i = 0; i < count; i++) {result[i] = values[ids[i]];}
+        return result;
+    }
+
+    // a stable top-down merge sort of a[l..h) into b[l..h) by descending date, using a as
+    // scratch space
+    private void sortByDate(int[] a, int[] b, int l, int h) {
+        if (h - l < 2) {return;}
+        int m = (l + h) >>> 1;
+        sortByDate(b, a, l, m);
+        sortByDate(b, a, m, h);
+        int i = l, j = m;
+        for (int k = l; k < h; k++) {
+            if (j >= h || (i < m && times[a[i]] >= times[a[j]])) {b[k] = a[i++];}
+            else {b[k] = a[j++];}
+        }
+    }
+
+    // the length characters of s from i (at most three), packed into a long along with
+    // how many there are
+    private static long gram(String s, int i, int length) {
+        long packed = length;
+        for (int j = 0; j < length; j++) {packed = (packed << 16) | s.charAt(i + j);}
+        return packed;
+    }
+
+    // returns the index of the posting list of the packed trigram, creating it if asked
+    // to, or -1 if it doesn't exist
+    private int posting(long key, boolean create) {
+        int mask = slots.length - 1;
+        int i = (int) (mix(key) & mask);
+        while (slots[i] != 0) {
+            if (slots[i] == key) {return slotPostings[i];}
+            i = (i + 1) & mask;
+        }
+        if (!create) {return -1;}
+        if (trigrams == postings.length) {
+            postings = Arrays.copyOf(postings, trigrams * 2);
+            postingSizes = Arrays.copyOf(postingSizes, trigrams * 2);
+        }
+        int p = trigrams++;
+        postings[p] = new int[4];
+        slots[i] = key;
+        slotPostings[i] = p;
+        // keep the table at most half full
+        if (trigrams * 2 > slots.length) {rehash();}
+        return p;
+    }
+
+    // doubles the hash table
+    private void rehash() {
+        long[] oldSlots = slots;
+        int[] oldPostings = slotPostings;
+        slots = new long[oldSlots.length * 2];
+        slotPostings = new int[slots.length];
+        int mask = slots.length - 1;
+        for (int j = 0; j < oldSlots.length; j++) {
+            if (oldSlots[j] == 0) {continue;}
+            int i = (int) (mix(oldSlots[j]) & mask);
+            while (slots[i] != 0) {i = (i + 1) & mask;}
+            slots[i] = oldSlots[j];
+            slotPostings[i] = oldPostings[j];
+        }
+    }
+
+    // spreads the bits of the key, so that similar trigrams don't land in the same slots
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+}
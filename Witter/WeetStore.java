@@ -1,32 +1,92 @@
 /**
  * PREAMBLE
  *
- * In this program, I make use of three Red-Black trees and a TrendCounter class to organise
- * the data.
+ * In this program, I make use of three Red-Black trees and a TrendCounter to organise
+ * the data. The tree ordered by date is an instance of the shared RedBlackTree, the two trees
+ * ordered by id are IntIndexes, so that looking an id up never boxes it. Whether those store
+ * their entries as node objects or in parallel arrays is chosen in the constructor.
  * My first tree is contains weets ordered by weetid.
  * My second tree contains weets ordered by date.
  * My third contains users ordered by userid.
  * 
  *      Whenever a weet is added, it is added in three places.
  * First in the weetid and the weetdate tree. (allows for log n inserts and retrievals).
- * Then, it is added to an array in its UserNode in the tree of users.
+ * Then, it is added to an array in its UserWeets, in the tree of users.
  * 
  * This allows both getWeet and getWeetsByUser to run in logarithmic time, which is the
  * main advantage of structure. I decided to do this, because I imagined that these would
  * be methods that get called very commonly in a real Witter application.
+ *
+ * The weetid tree does not point at the weets directly, but at their nodes in the weetdate
+ * tree. This lets a feed be read one page at a time: getWeetsPage finds the node of the last
+ * weet of the previous page by its id, and walks on from there to older weets, so a page of
+ * N weets costs O(log n + N) instead of copying the whole list.
+ *
+ * A fourth tree, weetsByDay, files every weet under the calendar day it was weeted on (as a
+ * number of days since 1970, in the time zone of the server). getWeetsOn looks the day up
+ * there instead of formatting the date of every single weet into a string.
+ *
+ * Every message is also added to a TrigramIndex, so that getWeetsContaining only checks the
+ * weets that share the rarest trigram of the query, rather than every weet.
  * 
- * If there are any trends in the weet message, they are added to the TrendCount class.
- * There, the count is incremented if the trend exists or added and set to 1 otherwise.
+ * If there are any trends in the weet message (words starting with #, between any kind
+ * of whitespace), they are found by the HashtagScanner and added to the TrendCounter.
+ * There, the count is incremented if the trend exists or added and set to 1 otherwise,
+ * and the top ten trends are kept up to date as the counts go up, so getTrending never
+ * has to sort anything. getTrending can also be asked for the top ten of the last hour,
+ * day or week. The TrendCounter for such a window is only made the first time it is asked
+ * for, from the weets of the window, and then kept up to date like the one over all time.
+ * A store made with a TrendSketch counts trends over all time in that instead, which only
+ * estimates the counts, but in memory that doesn't grow with the amount of distinct trends.
  * 
- * Both the weets in the UserNode and the trends in the TrendCount instance are sorted 
- * using a quickSort algorithm (which is of O(nlogn) time). In the case of weets, by date
- * and in the case of TrendCount by occurance (which is an integer).
- * I decided to use quickSort first because it was easy to implement and second because
- * in spite of being unstable, it rarely approached a worst-case runtime.
+ * The weets in the UserWeets used to be quicksorted by date whenever they were read after
+ * a new weet, at O(nlogn). They are now kept in date order as they are added instead: a
+ * user's weets nearly always arrive in date order, so a new one just goes at the end, and
+ * one that doesn't is put in its place by binary search. A read after a new weet then only
+ * costs copying the weets out, most recent first, and a read without one costs nothing.
+ * Weets with the same date come out most recently added first, as in getWeets.
+ *
+ * The arrays the store caches (every weet by date, and the weets of every user and day)
+ * are never handed out themselves, only copies of them, so that a caller can't change
+ * what the next caller gets. getWeetsView, getWeetsByUserView and getWeetsBeforeView hand
+ * out a read-only Slice of them instead, which costs nothing.
  *
  * While three trees may appear to be a heavy use of memory, it does not surpass O(n).
  * And I deemed it necessary to be able to execute crucial methods at quick run times.
  *
+ * A store made with the CONCURRENT storage can take weets from many threads at once. Its
+ * weets are then kept by id in a ConcurrentIntIndex, and by date in a ConcurrentSkipListSet,
+ * newest first, instead of in the two red-black trees. Both are skip lists, which threads
+ * insert into in parallel without a lock, and which are read without one. So addWeet of
+ * different weets goes on in parallel, and getWeet, getWeets, getWeetsBefore and
+ * getWeetsPage never wait for a writer. Weets with the same date are ordered by id, largest
+ * first, since which one was added last doesn't mean much when they are added by different
+ * threads at once. getWeets copies the skip list out every time, at O(n), as there is no
+ * cache for a new weet to invalidate.
+ * The users are then spread over STRIPES stripes, by user id, as in the FollowerStore. A
+ * stripe has a StampedLock of its own, which guards the weets of its users, and it indexes
+ * the messages of their weets in a TrigramIndex of its own. Filing a weet under its user
+ * and indexing its message, which is most of the work of addWeet, so goes on in parallel
+ * for users of different stripes. The users are kept in a ConcurrentIntIndex, so that a
+ * user who weets for the first time can be added under the stripe's lock alone.
+ * getWeetsContaining searches every stripe in turn, under its read lock, and sorts what
+ * they found by date, and by id between weets of the same date, as getWeets does.
+ * The weets of every day and the trends are shared by every user, so they are behind one
+ * more StampedLock, which addWeet only holds for the O(1) of adding the weet to its day
+ * and counting its trends. A weet so can be found by getWeet for a moment before it can by
+ * getWeetsByUser, and by that for a moment before it can by getWeetsOn.
+ * The other methods take the read locks. A read that fills a cache (the weets of a user or
+ * a day, copied out, or the counter of a window) turns its read lock into the write lock
+ * first, but only when there is something to fill, so reads of a warm cache share the
+ * lock. Without the CONCURRENT storage, there are no locks.
+ *
+ * addWeets adds every weet of weets.csv at once when the webapp starts (see CsvLoader).
+ * Into an empty store, it puts them in order by id and by date once, and builds the two
+ * trees bottom up, perfectly balanced, in O(n), rather than rebalancing them for every
+ * weet. It then adds them to everything else in date order, so that every list they go
+ * into only ever has them appended. Only the trends are counted in the order the weets
+ * were given, since that decides which of two trends with the same count comes first.
+ *
  * @author: u1504360
  */
 
@@ -35,389 +95,210 @@ package uk.ac.warwick.java.cs126.services;
 import uk.ac.warwick.java.cs126.models.User;
 import uk.ac.warwick.java.cs126.models.Weet;
 
-import java.io.BufferedReader;
+import java.util.Arrays;
 import java.util.Date;
-import java.io.FileReader;
-import java.text.ParseException;
-import java.io.IOException;
-import java.io.FileNotFoundException;
-import java.io.File;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.StampedLock;
+import java.time.Instant;
+import java.time.ZoneId;
 
 
 public class WeetStore implements IWeetStore {
 
     /*
-     * Since we are going to be implementing a Red-Black tree, the following enum types
-     * will certainly find themselves useful.
-     * C means colour, and the colour of a tree node is either red or black.
-     * S means side, and a tree node is either on the right of it's parent or on the left.
-     * S is null when the node is root.
+     * The user tree does not store weets, it stores one of these per user. It holds all of
+     * the weets the user weeted and the times (in milliseconds) associated with them, in a
+     * buffer that doubles when it is full. The weets are kept in date order, oldest first,
+     * as they are added: a new weet is nearly always the latest, and just goes at the end,
+     * and one that isn't is put in its place, found by binary search.
+     * newestFirst is the weets copied out in reverse, so most recent first, at their exact
+     * length. It is returned until the next weet (or null, if there has been one since).
      */
-    private enum C {RED, BLACK};
-    private enum S {RIGHT, LEFT};
-
-    /*
-     * The Node we will be using can either have an Integer or Date as its key, which is
-     * why I found it important to make K implement the Comparable interface.
-     */
-    private class Node<V extends Object, K extends Comparable<K>> {
-        /* 
-         * This is the node overhead – values always stored by the node.
-         * In this case there are 8 variables. 
-         * • two generics
-         * • two enum types
-         * • four pointers to related nodes
-         */
-        private K key;
-        private V value;
-        private C colour;
-        private S side;
-        private Node<V,K> parent, left, right, sibling;
-        /*
-         * This is extra overhead for the second type of Node I will be using (essentially 
-         * a user node). It will store the user id, the number of weets weeted, all of those
-         * weets, the dates associated with them and a boolean variable to check whether or
-         * not the array is ordered.
-         */
-        private int uid;
+    private class UserWeets {
         private int numberofweets;
         private Weet[] weets;
-        private Date[] weetsDates;
-        private boolean weetsOrdered;
-
-        /*
-         * The first constructor you see below is for the root node, where the parent
-         * isn't defined as a parameter and is set to null.
-         * A root node is black by default.
-         */
-        public Node(V v, K k) {
-            value = v;
-            key = k;
-            colour = C.BLACK;
-            parent = null; left = null; right = null; sibling = null;
-        }
-        /*
-         * The second constructor you see below is for all non-root nodes. since the node does
-         * have a parent, we can therefore obtain its sibling using the getSibling method.
-         * A non-root node is red by default.
-         */
-        public Node(V v, K k, Node<V,K> p) {
-            value = v;
-            key = k;
-            colour = C.RED;
-            parent = p; left = null; right = null; sibling = getSibling();
-        }
-        /*
-         * These constructors are for my second type of node, which is for users.
-         * Again, the same rules apply, but now other variables are initiated. 
-         * This one is for a root node, so by default black and without a parent node.
-         */
-        public Node(int i, boolean t) {
-            uid = i;
-            colour = C.BLACK;
-            parent = null; left = null; right = null; sibling = null;
-            weets = new Weet[0];
-            weetsDates = new Date[0];
-            weetsOrdered = true;
-            numberofweets = 0;
-        }
-        /*
-         * This one is for a non-root node, so it's coloured red and has a parent and sibling.
-         */
-        public Node(int i, Node<V,K> p, boolean t) {
-            uid = i;
-            colour = C.RED;
-            parent = p; left = null; right = null; sibling = getSibling();
-            weets = new Weet[0];
-            weetsDates = new Date[0];
-            weetsOrdered = true;
+        private long[] weetsTimes;
+        private Weet[] newestFirst;
+
+        public UserWeets() {
+            weets = new Weet[4];
+            weetsTimes = new long[4];
+            newestFirst = null;
             numberofweets = 0;
         }
 
-        // Returns the Key, which is either a Date or an Integer
-        public K getKey() { 
-            return key;
-        }
-        // Returns the Value, which in this case is always a User
-        public V getValue() { 
-            return value;
-        }
-        public int getUID() {
-            return uid;
-        }
+        // O(1) amortised for a weet later than all the others, O(log n) to find the place
+        // of one that isn't (plus moving the later ones up to make room)
         public void addWeetU(Weet w, Date d) {
-            if (numberofweets == 0) {
-                weets = new Weet[1]; weetsDates = new Date[1];
-                weets[0] = w; weetsDates[0] = d; numberofweets++; return;
+            if (numberofweets == weets.length) {
+                weets = Arrays.copyOf(weets, numberofweets * 2);
+                weetsTimes = Arrays.copyOf(weetsTimes, numberofweets * 2);
             }
-            Weet[] weets2 = weets; Date[] weetsDates2 = weetsDates;
-            numberofweets++;
-            weets = new Weet[numberofweets]; weetsDates = new Date[numberofweets];
-            weets[numberofweets-1] = w; weetsDates[numberofweets-1] = d;
-            for (int i = 0; i < (numberofweets-1); i++) {
-                weets[i] = weets2[i]; weetsDates[i] = weetsDates2[i];
+            long time = d.getTime();
+            int at = numberofweets;
+            if (at > 0 && weetsTimes[at-1] > time) {
+                // after every weet that isn't later, so the latest added comes first
+                at = firstLater(time);
+                System.arraycopy(weets, at, weets, at + 1, numberofweets - at);
+                System.arraycopy(weetsTimes, at, weetsTimes, at + 1, numberofweets - at);
             }
-            weetsOrdered = false;
+            weets[at] = w; weetsTimes[at] = time;
+            numberofweets++;
+            newestFirst = null;
         }
+        // O(1) between two weets of the user, O(n) for the copy after one
         public Weet[] getWeetsU() {
-            if (!weetsOrdered) {
-                sortWeetsByDate(weets,weetsDates,0,weets.length-1);
-                weetsOrdered = true;
+            if (newestFirst == null) {newestFirst = copyU(0, numberofweets);}
+            return newestFirst;
+        }
+        // returns the weets from position from to position to, most recent first
+        public Weet[] copyU(int from, int to) {
+            Weet[] result = new Weet[to - from];
+            for (int i = from; i < to; i++) {result[i - from] = weets[numberofweets - 1 - i];}
+            return result;
+        }
+        // returns the position of the weet in getWeetsU, or -1 if it isn't there.
+        // Binary search for the weets of the same date, then look through them.
+        public int indexOfU(Weet w) {
+            long time = w.getDateWeeted().getTime();
+            for (int i = firstLater(time) - 1; i >= 0 && weetsTimes[i] == time; i--) {
+                if (weets[i].getId() == w.getId()) {return numberofweets - 1 - i;}
             }
-            return weets;
-        }
-        // Returns the parent node, which is null only if the node is the root node of a tree
-        public Node<V,K> getParent() { 
-            return parent;
-        }
-        // Returns the node on the left (can be a null leaf)
-        public Node<V,K> getLeft() { 
-            return left;
-        }
-        // Returns the node on the right (can be a null leaf)
-        public Node<V,K> getRight() {
-            return right;
-        }
-        // Returns the side that the node is on after calling updateSide
-        public S getSide() {
-            updateSide(); return side;
-        }
-        // Updates the side which the node is on, relative to its parent
-        public void updateSide() {
-            if (parent == null) {side = null;}
-            else if (this == parent.getLeft()) {side = S.LEFT;}
-            else {side = S.RIGHT;}
-        }
-        // Returns the sibling of this node (can be null) after calling updateSibling
-        public Node<V,K> getSibling() {
-            updateSibling(); return sibling;
-        }
-        // Updates the sibling of the node, by getting the other child of the parent
-        public void updateSibling() {
-            if (parent == null) {sibling = null;}
-            else if (this == parent.getLeft()) {sibling = parent.getRight();}
-            else {sibling = parent.getLeft();}
-        }
-        // Allows for exterior updating of the parent
-        public void setParent(Node<V,K> n) {
-            parent = n;
-        }
-        // Allows for exterior updating of the child, by taking side as a variable
-        public void setChild(Node<V,K> n, S s) {
-            if (s == S.LEFT) {setLeft(n);}
-            if (s == S.RIGHT) {setRight(n);}
-        }
-        // Allows for exterior updating of the left node
-        public void setLeft(Node<V,K> n) {
-            left = n;
-        }
-        // Allows for exterior updating of the right node
-        public void setRight(Node<V,K> n) {
-            right = n;
-        }
-        // Allows for checking if the colour of the node is red
-        public boolean isRed() {
-            return (colour == C.RED);
-        }
-        // Allows for checking if the colour of the node is black
-        public boolean isBlack() {
-            return (colour == C.BLACK);
-        }
-        // Allows for checking if the colour of the parent node is red
-        public boolean redParent() {
-            return (getParent().isRed());
-        }
-        // Allows for checking if both the node and its parent are of red colour
-        public boolean doubleRed() {
-            return (isRed() && redParent());
-        }
-        // allows for colouring the node red
-        public void makeRed() {
-            colour = C.RED;
+            return -1;
         }
-        // allows for colouring the node black
-        public void makeBlack() {
-            colour = C.BLACK;
+        // returns the position of the first weet that is later than the time
+        private int firstLater(long time) {
+            int l = 0, h = numberofweets;
+            while (l < h) {
+                int m = (l + h) >>> 1;
+                if (weetsTimes[m] > time) {h = m;}
+                else {l = m + 1;}
+            }
+            return l;
         }
     }
 
     /*
-     * I required a seperate class to get the getTrending method done. This class takes
-     * all of the trends, counts them, and returns the top ten methods.
+     * Three trees:
+     * • weetsByDate is for weets ordered by date
+     * • weetsByID is for weets ordered by weet id – it holds the node of the weet in
+     * weetsByDate, rather than the weet itself
+     * • weetsByUser is for users ordered by ID, each holding the weets of that user
+     * • weetsByDay is for days ordered by epoch day, each holding the weets of that day,
+     * most recent first
+     * 
+     * • emptyWeetArray holds nothing – it's just so that I can return it when I need to
+     * • allWeetsByDate is a CACHE list that holds all of the weets by date. New weets are
+     * added to it as they come, and only merged in when the list is next needed
+     * • total_number_of_weets holds the amount of weets in the tree so far, and latest the
+     * time of the most recent of them, in milliseconds
+     * • zone is the time zone getPrettyDateWeeted() uses, so that a weet is filed under
+     * the same day it shows
+     * • trends counts every trend, and keeps the top ten of them. If the store was made
+     * with a sketch, trends is null and sketch does that approximately instead
+     * • windowedTrends does the same for each Window, once it has been asked for
+     * • messages is an index of the trigrams of every message, for getWeetsContaining
+     *
+     * With the CONCURRENT storage, weetsByDate, weetsByID, allWeetsByDate and messages are
+     * null, and instead:
+     * • concurrentByID holds the weets by weet id
+     * • concurrentByDate holds the weets by date, newest first
+     * • stripes holds the locks and the messages of the users, who are in weetsByUser
+     * • lock guards weetsByDay, the trends, total_number_of_weets and latest
+     * (stripes and lock are null otherwise)
      */
-    private class TrendCount {
-        /*
-         * About the overhead:
-         * • trendshold is just holds the trends temporarily when trends are updated and the
-         * trends array is changed
-         * • the counts array holds the amount of times a trend is held
-         * • size is the size of the arrays trends and counts
-         * • topTenTrends represents the trends with the most occurances
-         * • orderUpdated checks whether or not the order of the trends has been updated
-         */
-        private String[] trends, trendshold;
-        private int[] counts, countshold;
-        private int size, max;
-        private String[] topTenTrends;
-        private boolean orderUpdated;
-
-        /*
-         * The constructor initiates some of the global variables
-         */
-        public TrendCount() {
-            trends = null;
-            counts = null;
-            size = 0;
-            topTenTrends = new String[10];
-            orderUpdated = true;
-        }
-
-        /*
-         * This method is to insert a trend.
-         * If trendposition returns -1, then the trend doesn't exist and it must be added.
-         * Otherwise its value must be incremented.
-         */
-        public void insert(String t) {
-            int location = trendPosition(t);
-            orderUpdated = false;
-            if (location == -1) {add(t);}
-            else {counts[location]++;}
-        }
-
-        /*
-         * trendPosition runs throught the array of trends and returns the position of 
-         * the given trend if it exists. Otherwise, it returns -1.
-         */
-        private int trendPosition(String t) {
-            if (trends != null) {
-                for (int i = 0; i < size; i++) {
-                    if (t.equals(trends[i])) {return i;}
-                }
-            }
-            return -1;
-        }
-
-        /*
-         * this add method simply add the given trend at the end of the trends array
-         * it then sets its count frequency to one
-         */
-        private void add(String t) {
-            size++;
-            counts = new int[size];
-            trends = new String[size];
-            counts[size-1] = 1;
-            trends[size-1] = t;
-            if (countshold != null) {
-                for (int i = 0; i < (size-1); i++) {
-                    counts[i] = countshold[i];
-                    trends[i] = trendshold[i];
-                }
-            }
-            countshold = counts;
-            trendshold = trends;
-        }
-
-        /*
-         * this methods prepares the final trends list to be sent by
-         * (i) calling for a quicksort of the array
-         * (ii) taking the top ten of the result
-         */
-        public void prepare() {
-            if (trends!=null) {
-                quickSort(0,size-1);
-                calcTopTen();
-                orderUpdated = true;
-            }
-        }
-
-        /*
-         * this is just a recursive quickSort method I made
-         * it sorts trends by sorting counts in descending order and returning the result
-         * there's really nothing much to it..
-         */
-        public void quickSort(int l, int h) {
-            if (counts == null || counts.length == 0) {return;}
-            if (l >= h) {return;}
-            int centre = ((h-l)/2)+l, pivot = counts[centre], i = l, j = h;
-            while (i <= j) {
-                while (counts[i] > pivot) {i++;}
-                while (counts[j] < pivot) {j--;}
-                if (i <= j) {
-                    int temp = counts[i]; String temp2 = trends[i];
-                    counts[i] = counts[j]; trends[i] = trends[j];
-                    counts[j] = temp; trends[j] = temp2;
-                    i++; j--;
-                }
-            }
-            if (l < j) {quickSort(l, j);}
-            if (h > i) {quickSort(i, h);}
-        }
+    private RedBlackTree<Date,Weet> weetsByDate;
+    private IntIndex<RedBlackTree.Node<Date,Weet>> weetsByID;
+    private IntIndex<UserWeets> weetsByUser;
+    private IntIndex<DateOrderedList<Weet>> weetsByDay;
+    private Weet[] emptyWeetArray;
+    private DateOrderedList<Weet> allWeetsByDate;
+    private int total_number_of_weets;
+    private long latest;
+    private ZoneId zone;
+    private TrendCounter trends;
+    private TrendSketch sketch;
+    private TrendCounter[] windowedTrends;
+    private TrigramIndex<Weet> messages;
+    private IntIndex<Weet> concurrentByID;
+    private NavigableSet<Weet> concurrentByDate;
+    private final Stripe[] stripes;
+    private final StampedLock lock;
+
+    // how many stripes the users are spread over, with the CONCURRENT storage. Fewer than
+    // the FollowerStore has, as getWeetsContaining searches every one of them.
+    private static final int STRIPES = 16;
 
-        /*
-         * as a result of the descending order quickSort, the top ten trends are going to be
-         * at the front, so they're copied out into topTenTrends
-         */
-        private void calcTopTen() {
-            if (size < 10) {max = size;} else {max = 10;}
-            for (int i = 0; i < max; i++) {
-                topTenTrends[i] = trends[i];
-            }
-        }
+    /*
+     * With the CONCURRENT storage, every user belongs to one of these. Its lock guards the
+     * UserWeets of its users, and messages indexes the messages of their weets.
+     */
+    private static class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private final TrigramIndex<Weet> messages = new TrigramIndex<Weet>(new Weet[0]);
+    }
 
-        /*
-         * This method returns the orderUpdated boolean variable
-         */
-        public boolean orderUpdated() {
-            return orderUpdated;
+    // the order of concurrentByDate: the most recent first, and the largest id first
+    // between weets of the same date
+    private static final Comparator<Weet> NEWEST_FIRST = new Comparator<Weet>() {
+        public int compare(Weet a, Weet b) {
+            int c = Long.compare(b.getDateWeeted().getTime(), a.getDateWeeted().getTime());
+            return (c != 0) ? c : Integer.compare(b.getId(), a.getId());
         }
+    };
 
-        /*
-         * this method just returns the stored topTenTrends global variable
-         */
-        public String[] give10Trends() {
-            return topTenTrends;
-        }
+    /*
+     * As ever, the constructor initiates the necessary global variables.
+     * By default, the trees ordered by id store their entries as node objects.
+     */
+    public WeetStore() {
+        this(IntIndex.Storage.NODES);
     }
 
     /*
-     * Three trees, three root nodes: 
-     * • rootDA is for weets ordered by date
-     * • rootID is for weets ordered by weet id
-     * • root is for users ordered by ID (I know that's weird)
-     * 
-     * • emptyWeetArray holds nothing – it's just so that I can return it when I need to
-     * • allWeetsByDate is a CACHE array that holds all of the weets by date
-     * • dateListUpdated is a boolean that is used to check whether allWeetsByDate is updated
-     * • total_number_of_weets holds the amount of weets in the tree so far
-     * • iterator is used for inOrder counting – you'll see it below
-     * • I made a date format that allows me to convert a date so that I can compare it to 
-     * getPrettyDateWeeted()
-     * • trends is an instance of TrendCount, the class I made above
+     * This constructor lets the storage of the trees ordered by id be chosen: ARRAYS keeps
+     * them in parallel arrays, which is much lighter on memory for tens of millions of weets.
+     * CONCURRENT keeps the weets in skip lists instead, for adding them from many threads.
      */
-    private Node<Weet,Date> rootDA;
-    private Node<Weet,Integer> rootID;
-    private Node<Weet,Integer> root;
-    private Weet[] emptyWeetArray;
-    private Weet[] allWeetsByDate;
-    private boolean dateListUpdated;
-    private int total_number_of_weets;
-    private int iterator;
-    private DateFormat format = new SimpleDateFormat("MMM d, yyyy");
-    private TrendCount trends;
+    public WeetStore(IntIndex.Storage storage) {
+        this(storage, null);
+    }
 
-    /* As ever, the constructor initiates the necessary global variables. */
-    public WeetStore() {
-        rootDA = null;
-        rootID = null;
-        root = null;
+    /*
+     * This constructor also lets the trends be counted approximately, in the fixed memory
+     * of the given sketch, rather than exactly. If the sketch is null, they are exact.
+     */
+    public WeetStore(IntIndex.Storage storage, TrendSketch sketch) {
+        if (storage == IntIndex.Storage.CONCURRENT) {
+            concurrentByID = IntIndex.create(storage);
+            concurrentByDate = new ConcurrentSkipListSet<Weet>(NEWEST_FIRST);
+            stripes = new Stripe[STRIPES];
+            for (int i = 0; i < STRIPES; i++) {stripes[i] = new Stripe();}
+            lock = new StampedLock();
+            // the days are only ever used under the lock
+            weetsByDay = IntIndex.create(IntIndex.Storage.NODES);
+        }
+        else {
+            weetsByDate = new RedBlackTree<Date,Weet>();
+            weetsByID = IntIndex.create(storage);
+            stripes = null;
+            lock = null;
+            weetsByDay = IntIndex.create(storage);
+        }
+        weetsByUser = IntIndex.create(storage);
+        zone = ZoneId.systemDefault();
         total_number_of_weets = 0;
-        iterator = 0;
-        dateListUpdated = true;
-        trends = new TrendCount();
+        latest = Long.MIN_VALUE;
+        this.sketch = sketch;
+        trends = (sketch == null) ? new TrendCounter() : null;
+        windowedTrends = new TrendCounter[TrendCounter.Window.values().length];
         emptyWeetArray = new Weet[0];
-        allWeetsByDate = new Weet[0];
+        if (lock == null) {
+            messages = new TrigramIndex<Weet>(emptyWeetArray);
+            allWeetsByDate = new DateOrderedList<Weet>(emptyWeetArray);
+        }
     }
 
     /* HERE BEGIN THE PUBLIC METHODS – THOSE THAT IMPLEMENT WHATS INHERITED BY IWEETSTORE */
@@ -425,422 +306,508 @@ public class WeetStore implements IWeetStore {
     /*
      * ADDWEET – O(log n) since it's just a binary tree traversal
      *
-     * If the root nodes are null, create nodes for the user and assign them to the roots.
-     * Otherwise, use the private insertID method to place them in the tree accordingly.
-     * Any trends in the weet are added using private method addTrends.
+     * If the weet id is already taken, false is returned. Otherwise the weet is inserted
+     * into the tree ordered by date, the node it was stored in is inserted into the tree
+     * ordered by weet id, and the weet is added to its user using the private method
+     * checkUser. Any trends in the weet are added using private method addTrends.
+     * With the CONCURRENT storage, the weet goes into the skip lists instead of the trees,
+     * then to its user under the lock of the user's stripe, and only then to its day and
+     * the trends under the lock.
      */
     public boolean addWeet(Weet weet) {
-        if (rootDA == null) {
-            rootDA = new Node<Weet,Date>(weet, weet.getDateWeeted());
-            rootID = new Node<Weet,Integer>(weet, new Integer(weet.getId()));
-            root = new Node<Weet,Integer>(weet.getUserId(), true);
-            root.addWeetU(weet, weet.getDateWeeted());
-            dateListUpdated = false;
-            total_number_of_weets++;
-            addTrends(weet);
+        if (lock == null) {
+            if (weetsByID.get(weet.getId()) != null) {return false;}
+            weetsByID.insert(weet.getId(), weetsByDate.insertMulti(weet.getDateWeeted(), weet));
+            allWeetsByDate.add(weet.getDateWeeted(), weet);
+            file(weet);
             return true;
         }
-        else {return insertID(weet);}
+        if (!concurrentByID.insert(weet.getId(), weet)) {return false;}
+        concurrentByDate.add(weet);
+        StampedLock userLock = userLock(weet.getUserId());
+        long stamp = writeLock(userLock);
+        try {fileByUser(weet);}
+        finally {unlock(userLock, stamp);}
+        stamp = writeLock(lock);
+        try {fileByDate(weet);}
+        finally {unlock(lock, stamp);}
+        return true;
+    }
+
+    /*
+     * ADDWEETS – O(n) for weets already in id and date order (as weets.csv is), plus
+     * O(n log n) to sort them otherwise
+     *
+     * Adds every weet of the array, and returns how many were added. The same weets end up
+     * in the store as if addWeet had been called on each of them in turn: the first weet
+     * of a repeated id is the one that is kept. Into an empty store though, the weets are
+     * put in order once, by id and by date, and the two trees are built from them bottom
+     * up, perfectly balanced, without a single rotation. Everything else is then added to
+     * in date order, so a weet always goes at the end of its user's and its day's weets,
+     * apart from the trends, which are counted in the order the weets were given, as
+     * addWeet would count them.
+     * A store that isn't empty, or that has the CONCURRENT storage, just has the weets
+     * added one at a time.
+     */
+    public int addWeets(Weet[] weets) {
+        int n = weets.length, added = 0;
+        if (lock != null || total_number_of_weets > 0) {
+            for (Weet w : weets) {
+                if (addWeet(w)) {added++;}
+            }
+            return added;
+        }
+        // by id, keeping the first of every id, and marking the rest as left out
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {keys[i] = weets[i].getId();}
+        int[] byID = SortOrder.of(keys, n);
+        boolean[] repeated = new boolean[n];
+        for (int j = 1; j < n; j++) {
+            repeated[byID[j]] = weets[byID[j]].getId() == weets[byID[j-1]].getId();
+        }
+        // then by date, in the order they were given when the dates are equal. at is where
+        // every weet that is kept ends up in date order.
+        int[] given = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (!repeated[i]) {given[added] = i; keys[added] = weets[i].getDateWeeted().getTime(); added++;}
+        }
+        int[] byDate = SortOrder.of(keys, added);
+        Date[] dates = new Date[added];
+        Weet[] sorted = new Weet[added];
+        int[] at = new int[n];
+        for (int j = 0; j < added; j++) {
+            int i = given[byDate[j]];
+            sorted[j] = weets[i]; dates[j] = weets[i].getDateWeeted(); at[i] = j;
+        }
+        RedBlackTree.Node<Date,Weet>[] nodes = weetsByDate.buildFromSorted(dates, sorted, added);
+        // the id tree holds the nodes of the date tree
+        int[] ids = new int[added];
+        RedBlackTree.Node<Date,Weet>[] byIDNodes = RedBlackTree.newNodeArray(added);
+        int m = 0;
+        for (int j = 0; j < n; j++) {
+            if (repeated[byID[j]]) {continue;}
+            ids[m] = weets[byID[j]].getId(); byIDNodes[m] = nodes[at[byID[j]]]; m++;
+        }
+        weetsByID.buildFromSorted(ids, byIDNodes, added);
+        for (int j = 0; j < added; j++) {
+            allWeetsByDate.add(dates[j], sorted[j]);
+            fileByUser(sorted[j]);
+            checkDay(sorted[j]);
+            total_number_of_weets++;
+            latest = Math.max(latest, dates[j].getTime());
+        }
+        // a trend that reaches the count of another one comes after it, so the trends are
+        // counted in the order the weets were given
+        for (int j = 0; j < added; j++) {addTrends(weets[given[j]]);}
+        return added;
     }
     
     /*
      * GETWEET – O(log n) since it's just a binary tree traversal
      *
-     * Traverse the rootID tree (sorted by weet id) like this:
-     * – if the uids are equal, that's the one you want, so return it
-     * – if the parameter uid is larger, go right
-     * – otherwise go left
-     * – if the pointer is null, the id doesn't exist, so exit the loop and return null
+     * Look the wid up in the weetsByID tree, which returns null if the id doesn't exist.
      */
     public Weet getWeet(int wid) {
-        Node<Weet,Integer> pointer = rootID;
-        Integer i = new Integer(wid);
-        while (pointer!=null) {
-            if (i.compareTo(pointer.getKey())==0) {
-                return pointer.getValue();
-            }
-            else if (i.compareTo(pointer.getKey())>0) {
-                pointer = pointer.getRight();
-            }
-            else if (i.compareTo(pointer.getKey())<0) {
-                pointer = pointer.getLeft();
-            }
-        }
-        return null;
+        if (lock != null) {return concurrentByID.get(wid);}
+        RedBlackTree.Node<Date,Weet> n = weetsByID.get(wid);
+        return (n == null) ? null : n.getValue();
     }
     
     /*
-     * GETWEETS – O(n) since a full inOrder traversal of the tree is required to return O(n)
-     * amount of data.
-     * However, if the method has already been called before, and no extra users have been
-     * added since, the CACHED array is returned and the time complexity becomes O(1).
+     * GETWEETS – O(k log k) for the k weets added since the last call, plus one arraycopy.
+     * If no extra weets have been added since the last call, only the copy of the CACHED
+     * array is made, at O(n).
      * 
-     * Returns the output of the getList method, which traverses the tree and makes
-     * an updated array of Users (no traversal if the allWeetsByDate array is already updated)
+     * Returns a copy of the output of the getList method, which merges the new weets into
+     * the cache (nothing to merge if the allWeetsByDate list is already updated)
      */
     public Weet[] getWeets() {
-        return getList();
+        if (lock != null) {return getList();}
+        return allWeetsByDate.view().toArray();
+    }
+
+    /*
+     * GETWEETSVIEW – the same as getWeets, without the copy: O(1) between two weets
+     *
+     * Returns a read-only Slice of the cache, which never changes, even after more weets
+     * are added. (With the CONCURRENT storage, it is of a new copy of the skip list.)
+     */
+    public Slice<Weet> getWeetsView() {
+        return new Slice<Weet>(getList());
     }
     
     /*
      * GETWEETSBYUSER – O(log n) since it's just a binary tree traversal
      *
-     * Traverse the root tree (a tree of users sorted by user id) like this:
-     * – if the uids are equal, that's the one you want, so return it
-     * – if the parameter uid is larger, go right
-     * – otherwise go left
-     * – if the pointer is null, the id doesn't exist: exit the loop and return emptyWeetArray
+     * Look the user up in the weetsByUser tree. If the user has never weeted, there is
+     * nothing in the tree for them, so return emptyWeetArray. Otherwise return a copy of
+     * the user's weets, O(n) for the n of them.
      */
     public Weet[] getWeetsByUser(User usr) {
-        Node<Weet,Integer> pointer = root;
-        int id = usr.getId();
-        while (pointer!=null) {
-            if (id > pointer.getUID()) {pointer = pointer.getRight();}
-            else if (id < pointer.getUID()) {pointer = pointer.getLeft();}
-            else {return pointer.getWeetsU();}
-        }
-        return emptyWeetArray;
+        return getWeetsByUserView(usr).toArray();
     }
 
     /*
-     * GETWEETSCONTAINING – O(n) since a full check of all weets is required
+     * GETWEETSBYUSERVIEW – the same, without copying the weets if the user hasn't weeted
+     * since the last call
+     *
+     * Returns a read-only Slice of the weets the user's UserWeets keeps, most recent first.
+     */
+    public Slice<Weet> getWeetsByUserView(User usr) {
+        StampedLock userLock = userLock(usr.getId());
+        long stamp = readLock(userLock);
+        try {
+            UserWeets u = weetsByUser.get(usr.getId());
+            if (u == null) {return new Slice<Weet>(emptyWeetArray);}
+            // the weets are only copied out after a new one, which needs the write lock
+            if (u.newestFirst == null) {stamp = toWriteLock(userLock, stamp);}
+            return new Slice<Weet>(u.getWeetsU());
+        }
+        finally {unlock(userLock, stamp);}
+    }
+
+    /*
+     * GETWEETSCONTAINING – O(s log n + m log m), for the s weets that share the rarest
+     * trigram of the query and the m of them that contain it
      * 
-     * Essentially, this method calls the getList method, which returns an array of all weets
-     * sorted by date joined.
-     * getWeetsContaining then uses a for loop to mark all of the positions in the array that
-     * have weet messages that contain the query. These are all copied out into a final array
-     * (finalList) which is then returned.
+     * A query of nothing but whitespace matches nothing. Otherwise the messages index
+     * returns the weets whose lowercased message contains the lowercased query, sorted by
+     * date, most recent first. With the CONCURRENT storage, the index of every stripe is
+     * searched, and the weets found are sorted as getWeets sorts them.
      */
     public Weet[] getWeetsContaining(String query) {
         if (query.replaceAll("\\s","").equals("")) {return emptyWeetArray;}
-        Weet[] weetList = getList();
-        int totalContaining = 0;
-        int[] markerList = new int[total_number_of_weets];
-        query = query.toLowerCase();
-        for (int i = 0; i < total_number_of_weets; i++) {
-            if (weetList[i].getMessage().toLowerCase().contains(query)) {
-                markerList[totalContaining] = i;
-                totalContaining++;
-            }
-        }
-        if (totalContaining == 0) {return emptyWeetArray;}
-        Weet[] finalList = new Weet[totalContaining];
-        for (int j = 0; j < totalContaining; j++) {
-            finalList[j] = weetList[markerList[j]];
-        }
-        return finalList;
+        if (stripes == null) {return messages.search(query);}
+        Weet[][] found = new Weet[STRIPES][];
+        int count = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            long stamp = stripes[i].lock.readLock();
+            try {found[i] = stripes[i].messages.search(query);}
+            finally {stripes[i].lock.unlockRead(stamp);}
+            count += found[i].length;
+        }
+        Weet[] result = new Weet[count];
+        int at = 0;
+        for (Weet[] f : found) {System.arraycopy(f, 0, result, at, f.length); at += f.length;}
+        Arrays.sort(result, NEWEST_FIRST);
+        return result;
     }
     
     /*
-     * GETWEETSON – O(n) since a full check of all weets is required
+     * GETWEETSON – O(log d + k), for d days with weets and the k weets of the day
      * 
-     * Again, this method calls the getList method, which returns an array of all weets
-     * sorted by date joined.
-     * getWeetsOn then uses a for loop to mark all of the positions in the array that
-     * have usernames that contain the query. These are all copied out into a final array
-     * (finalList) which is then returned.
+     * Look the day of dateOn up in the weetsByDay tree. If nothing was weeted on that day,
+     * there is nothing in the tree for it, so return emptyWeetArray. Otherwise return the
+     * weets of the day, most recent first.
      */
     public Weet[] getWeetsOn(Date dateOn) {
-        String stringdate = format.format(dateOn);
-        Weet[] weetList = getList();
-        int totalOn = 0;
-        int[] markerList = new int[total_number_of_weets];
-        for (int i = 0; i < total_number_of_weets; i++) {
-            if (weetList[i].getPrettyDateWeeted().equals(stringdate)) {
-                markerList[totalOn] = i; totalOn++;
-            }
-        }
-        if (totalOn == 0) {return emptyWeetArray;}
-        Weet[] finalList = new Weet[totalOn];
-        for (int j = 0; j < totalOn; j++) {
-            finalList[j] = weetList[markerList[j]];
-        }
-        return finalList;
+        int key = epochDay(dateOn);
+        long stamp = readLock(lock);
+        try {
+            DateOrderedList<Weet> day = weetsByDay.get(key);
+            if (day == null) {return emptyWeetArray;}
+            // the new weets of the day are only merged in with the write lock
+            if (!day.isUpToDate()) {stamp = toWriteLock(lock, stamp);}
+            return day.view().toArray();
+        }
+        finally {unlock(lock, stamp);}
     }
     
     /*
-     * GETWEETSBEFORE – O(n) since up to the full array of weets weeted must be copied
+     * GETWEETSBEFORE – O(log n + m), for the m weets that are returned
      * 
-     * Again, this method calls the getList method, which returns an array of all weets
-     * sorted by date joined.
-     * getWeetsBefore then uses a for loop to mark until what point the array must be copied.
-     * These are all copied out into a final array (finalList) which is then returned.
+     * The allWeetsByDate cache is sorted by date, descending, so a binary search finds the
+     * first weet that wasn't weeted after the given date. Everything from there on is
+     * copied out in one go. With the CONCURRENT storage, the skip list finds it instead.
      */
     public Weet[] getWeetsBefore(Date dateBefore) {
-        if (total_number_of_weets==0) {return emptyWeetArray;}
-        Weet[] weetList = getList();
-        int end = total_number_of_weets-1;
-        int copyUntil = 0;
-        for (int i = end; i >= 0; i--) {
-            if (weetList[i].getDateWeeted().after(dateBefore)) {copyUntil = ++i; break;}
-        }
-        if (copyUntil == 0) {return weetList;}
-        else if (copyUntil == total_number_of_weets) {return emptyWeetArray;}
-        int size = total_number_of_weets-copyUntil;
-        Weet[] finalList = new Weet[size]; int k = 0;
-        for (int j = copyUntil; j < total_number_of_weets; j++) {
-            finalList[k] = weetList[j]; k++;
+        if (lock != null) {return concurrentByDate.tailSet(probe(dateBefore), true).toArray(emptyWeetArray);}
+        return allWeetsByDate.toArrayNotAfter(dateBefore);
+    }
+
+    /*
+     * GETWEETSBEFOREVIEW – O(log n) between two weets, without copying anything
+     *
+     * The same weets as getWeetsBefore, as a read-only Slice of the end of the cache.
+     */
+    public Slice<Weet> getWeetsBeforeView(Date dateBefore) {
+        if (lock != null) {return new Slice<Weet>(getWeetsBefore(dateBefore));}
+        return allWeetsByDate.viewNotAfter(dateBefore);
+    }
+
+    /*
+     * GETWEETSPAGE – O(log n + limit), and nothing but the page is copied
+     *
+     * Returns up to limit weets, in the same order as getWeets, starting just after the
+     * cursor: the weet that ended the previous page. A null cursor starts from the most
+     * recent weet. The weet's node in the date tree is found through weetsByID, and then
+     * the tree is walked backwards from it. If the cursor isn't in the store, there is no
+     * page to return, so emptyWeetArray is.
+     */
+    public Weet[] getWeetsPage(Weet cursor, int limit) {
+        if (lock != null) {
+            if (cursor == null) {return page(concurrentByDate, limit);}
+            Weet w = concurrentByID.get(cursor.getId());
+            if (w == null) {return emptyWeetArray;}
+            return page(concurrentByDate.tailSet(w, false), limit);
+        }
+        if (cursor == null) {return page(weetsByDate.last(), limit);}
+        RedBlackTree.Node<Date,Weet> n = weetsByID.get(cursor.getId());
+        if (n == null) {return emptyWeetArray;}
+        return page(weetsByDate.predecessor(n), limit);
+    }
+
+    /*
+     * GETWEETSBEFORE (PAGED) – O(log n + limit)
+     *
+     * Returns up to limit of the weets getWeetsBefore would return, starting from the most
+     * recent. The next page is got by passing the last of them to getWeetsPage.
+     */
+    public Weet[] getWeetsBefore(Date dateBefore, int limit) {
+        if (lock != null) {return page(concurrentByDate.tailSet(probe(dateBefore), true), limit);}
+        return page(weetsByDate.floor(dateBefore), limit);
+    }
+
+    /*
+     * GETWEETSBYUSER (PAGED) – O(log n + limit)
+     *
+     * Returns up to limit of the weets of the user, in the same order as getWeetsByUser,
+     * starting just after the cursor (or from the most recent weet if it is null).
+     */
+    public Weet[] getWeetsByUser(User usr, Weet cursor, int limit) {
+        StampedLock userLock = userLock(usr.getId());
+        long stamp = readLock(userLock);
+        try {
+            UserWeets u = weetsByUser.get(usr.getId());
+            if (u == null || limit <= 0) {return emptyWeetArray;}
+            int from = 0;
+            if (cursor != null) {
+                from = u.indexOfU(cursor) + 1;
+                if (from == 0) {return emptyWeetArray;}
+            }
+            int to = (int) Math.min((long) from + limit, u.numberofweets);
+            if (from >= to) {return emptyWeetArray;}
+            return u.copyU(from, to);
         }
-        return finalList;
+        finally {unlock(userLock, stamp);}
     }
 
     /*
-     * GETTRENDING – O(1) if the trends are sorted, O(nlogn) otherwise, because quicksort
+     * GETTRENDING – O(1), since the TrendCounter keeps the top ten as it counts
+     * (with a sketch, O(1) too, as it only sorts the few trends it tracks)
      */
     public String[] getTrending() {
-        if (trends.orderUpdated()) {return trends.give10Trends();}
-        trends.prepare(); return trends.give10Trends();
-    }
-
-    // SORTWEETSBYDATE
-    // this is a basic quicksort, copied and edited from my previous implementation
-    private void sortWeetsByDate(Weet[] a, Date[] basedUpon, int l, int h) {
-        if (a == null || a.length == 0) {return;}
-        if (l >= h) {return;}
-        int centre = ((h-l)/2)+l, i = l, j = h;
-        Date pivot = basedUpon[centre];
-        while (i <= j) {
-            while (basedUpon[i].after(pivot)) {i++;}
-            while (basedUpon[j].before(pivot)) {j--;}
-            if (i <= j) {
-                Date d = basedUpon[i]; Weet u = a[i];
-                basedUpon[i] = basedUpon[j]; a[i] = a[j];
-                basedUpon[j] = d; a[j] = u;
-                i++; j--;
+        long stamp = readLock(lock);
+        try {
+            if (sketch != null) {return sketch.top();}
+            return trends.top();
+        }
+        finally {unlock(lock, stamp);}
+    }
+
+    /*
+     * GETTRENDING (WINDOWED) – O(1), apart from the first call for a window
+     *
+     * Returns the top ten trends of the weets weeted within the window before the most
+     * recent weet. The first call for a window goes through the weets of the window to
+     * count them, day by day from the weetsByDay tree, and from then on the counts are
+     * kept up to date by addWeet. (Every weet that addWeet has finished with is in
+     * weetsByDay, so none is counted twice, or missed, with the CONCURRENT storage either.)
+     */
+    public String[] getTrending(TrendCounter.Window window) {
+        long stamp = readLock(lock);
+        try {
+            TrendCounter counter = windowedTrends[window.ordinal()];
+            if (counter == null) {
+                // the counter is made with the write lock, and may have been made by another
+                // thread while it was waited for
+                stamp = toWriteLock(lock, stamp);
+                counter = windowedTrends[window.ordinal()];
+            }
+            if (counter == null) {
+                counter = new TrendCounter(window);
+                if (total_number_of_weets > 0) {
+                    // the counter only keeps the BUCKETS slices up to the one of the latest
+                    // weet, and drops anything older as it is inserted. Those slices start
+                    // less than a window before the latest weet, so nothing older than a
+                    // window and one slice (as slack for where the slices fall) is replayed.
+                    long oldest = latest - window.getMillis() - window.getMillis() / TrendCounter.BUCKETS;
+                    int first = epochDay(new Date(oldest));
+                    for (int d = epochDay(new Date(latest)); d >= first; d--) {
+                        DateOrderedList<Weet> day = weetsByDay.get(d);
+                        if (day == null) {continue;}
+                        for (Weet w : day.toArray()) {
+                            if (w.getDateWeeted().getTime() < oldest) {break;}
+                            addTrends(counter, w);
+                        }
+                    }
+                }
+                windowedTrends[window.ordinal()] = counter;
             }
+            return counter.top();
         }
-        if (l < j) {sortWeetsByDate(a, basedUpon, l, j);}
-        if (h > i) {sortWeetsByDate(a, basedUpon, i, h);}
+        finally {unlock(lock, stamp);}
     }
 
     // ADDTRENDS
-    // this method adds whatever trends are in 
+    // this method adds whatever trends are in the weet to every counter there is. The
+    // HashtagScanner finds them in place, so no word is ever copied out of the message.
     private void addTrends(Weet weet) {
-        String[] weetsplit = weet.getMessage().split(" ");
-        for (String word : weetsplit) {
-            if (word.startsWith("#")) {
-                trends.insert(word.toLowerCase());
+        String message = weet.getMessage();
+        Date date = weet.getDateWeeted();
+        int n = message.length();
+        for (int start = HashtagScanner.next(message, 0); start < n; ) {
+            int end = HashtagScanner.end(message, start);
+            if (sketch != null) {sketch.insert(message, start, end);}
+            else {trends.insert(message, start, end, date);}
+            for (TrendCounter counter : windowedTrends) {
+                if (counter != null) {counter.insert(message, start, end, date);}
             }
+            start = HashtagScanner.next(message, end);
         }
     }
 
+    // and this one adds them to one counter
+    private void addTrends(TrendCounter counter, Weet weet) {
+        String message = weet.getMessage();
+        int n = message.length();
+        for (int start = HashtagScanner.next(message, 0); start < n; ) {
+            int end = HashtagScanner.end(message, start);
+            counter.insert(message, start, end, weet.getDateWeeted());
+            start = HashtagScanner.next(message, end);
+        }
+    }
+
+    // PAGE
+    // copies up to limit weets out of the date tree, walking backwards from the given node
+    private Weet[] page(RedBlackTree.Node<Date,Weet> from, int limit) {
+        if (from == null || limit <= 0) {return emptyWeetArray;}
+        Weet[] page = new Weet[Math.min(limit, total_number_of_weets)];
+        int i = 0;
+        RedBlackTree.Node<Date,Weet> n = from;
+        while (n != null && i < page.length) {
+            page[i++] = n.getValue();
+            n = weetsByDate.predecessor(n);
+        }
+        return (i == page.length) ? page : Arrays.copyOf(page, i);
+    }
+
+    // the same, for a set of weets in the order of concurrentByDate
+    private Weet[] page(NavigableSet<Weet> from, int limit) {
+        if (limit <= 0) {return emptyWeetArray;}
+        Weet[] page = new Weet[Math.min(limit, 16)];
+        int i = 0;
+        for (Weet w : from) {
+            if (i == limit) {break;}
+            if (i == page.length) {page = Arrays.copyOf(page, (int) Math.min(2L * i, limit));}
+            page[i++] = w;
+        }
+        return (i == page.length) ? page : Arrays.copyOf(page, i);
+    }
+
+    // PROBE
+    // a weet that comes before every other weet of the date in concurrentByDate, so that
+    // the weets from it on are those that weren't weeted after the date
+    private static Weet probe(Date date) {
+        return new Weet(Integer.MAX_VALUE, 0, "", date);
+    }
+
     // GETLIST
-    // if the allWeetsByDate array is not updated, then update it by calling updateDAList
+    // returns every weet, most recent first, from the allWeetsByDate cache (or copied out
+    // of concurrentByDate, with the CONCURRENT storage)
     private Weet[] getList() {
-        if (dateListUpdated == false) {updateDAList();}
-        return allWeetsByDate;
+        if (lock != null) {return concurrentByDate.toArray(emptyWeetArray);}
+        return allWeetsByDate.toArray();
     }
 
-    // UPDATEDALIST
-    // make an inOrder traversal of the tree and store everything in allWeetsByDate
-    private void updateDAList() {
-        allWeetsByDate = new Weet[total_number_of_weets];
-        inOrder(rootDA);
-        iterator = 0;
-        dateListUpdated = true;
-    }
-    
-    // INORDER
-    // basic inorder traverser of the Weets by date tree, storing everything in allWeetsByDate
-    private void inOrder(Node<Weet,Date> n) {
-        if (n!=null) {
-            inOrder(n.getRight());
-            allWeetsByDate[iterator] = n.getValue(); iterator++;
-            inOrder(n.getLeft());
-        }
+    // FILE
+    // adds a weet that is already in the trees by id and date to everything else: its user,
+    // its day, the messages index and the trends
+    private void file(Weet weet) {
+        fileByUser(weet);
+        fileByDate(weet);
     }
 
-    /* HERE BEGIN PRIVATE METHODS THAT DIRECTLY INTERACT WITH THE TREE */
-
-    // this ensures that the root nodes of the tree are updated and coloured black
-    private void checkRoot() {
-        while (rootID.getParent()!=null) {rootID = rootID.getParent();} rootID.makeBlack();
-        while (rootDA.getParent()!=null) {rootDA = rootDA.getParent();} rootDA.makeBlack();
-        while (root.getParent()!=null) {root = root.getParent();} root.makeBlack();
-    }
-
-    // This method traverses the tree according to the given weet id, using a pointer
-    // It compares the given weetid to to that of the pointer and moves accordingly left/right
-    // If the user id already exists, it returns false
-    // If the pointer is null, that it where the node containing this new user should be
-    // and so it is declared there, before it is then declared in the order by date tree
-    // Some extra node checks and global variable resets occur before it then returns true.
-    private boolean insertID(Weet weet) {
-        Integer i = new Integer(weet.getId());
-        Node<Weet,Integer> parent = null;
-        Node<Weet,Integer> pointer = rootID;
-        S side = null;
-        while (pointer!=null) {
-            if (i.compareTo(pointer.getKey())>0) {
-                parent = pointer;
-                pointer = pointer.getRight();
-                side = S.RIGHT;
-            }
-            else if (i.compareTo(pointer.getKey())<0) {
-                parent = pointer;
-                pointer = pointer.getLeft();
-                side = S.LEFT;
-            }
-            else if (i.compareTo(pointer.getKey())==0) {
-                return false;
-            }
-        }
-        Node<Weet,Integer> u = new Node<Weet,Integer>(weet, i, parent);
-        if (parent!=null) {parent.setChild(u, side);}
-        checkNode(u);
-        insertDA(weet);
+    // FILEBYUSER
+    // the part of file that only the weet's user shares: its user and the messages index
+    // (of the user's stripe, with the CONCURRENT storage)
+    private void fileByUser(Weet weet) {
         checkUser(weet.getUserId(), weet);
+        TrigramIndex<Weet> index = (stripes == null) ? messages : stripes[stripe(weet.getUserId())].messages;
+        index.add(weet.getMessage(), weet.getDateWeeted(), weet);
+    }
+
+    // FILEBYDATE
+    // the part of file that every user shares: the weet's day and the trends
+    private void fileByDate(Weet weet) {
+        checkDay(weet);
         total_number_of_weets++;
-        dateListUpdated = false;
-        checkRoot();
+        latest = Math.max(latest, weet.getDateWeeted().getTime());
         addTrends(weet);
-        return true;
     }
 
-    // This method adds a weet to the ordered by date tree.
-    // This method works the same way as insertID, but since insertID has already checked
-    // that the user doesn't already exists, it only find where to place the user and places.
-    // Extra checks are done, like in insertID.
-    private void insertDA(Weet weet) {
-        Date d = weet.getDateWeeted();
-        Node<Weet,Date> parent = null;
-        Node<Weet,Date> pointer = rootDA;
-        S side = null;
-        while (pointer!=null) {
-            if (d.before(pointer.getKey())) {
-                parent = pointer;
-                pointer = pointer.getLeft();
-                side = S.LEFT;
-            }
-            else {
-                parent = pointer;
-                pointer = pointer.getRight();
-                side = S.RIGHT;
-            }
-        }
-        Node<Weet,Date> u = new Node<Weet,Date>(weet, d, parent);
-        if (parent!=null) {parent.setChild(u, side);}
-        checkNode(u);
+    // CHECKDAY
+    // adds the weet to the weets of its day, adding the day to the tree if it's not
+    // already there
+    private void checkDay(Weet weet) {
+        int key = epochDay(weet.getDateWeeted());
+        DateOrderedList<Weet> day = weetsByDay.get(key);
+        if (day == null) {day = new DateOrderedList<Weet>(emptyWeetArray); weetsByDay.insert(key, day);}
+        day.add(weet.getDateWeeted(), weet);
+    }
+
+    // EPOCHDAY
+    // the number of days between the 1st of January 1970 and the date, in the server's zone
+    private int epochDay(Date d) {
+        return (int) Instant.ofEpochMilli(d.getTime()).atZone(zone).toLocalDate().toEpochDay();
     }
 
-    // This method adds a user to the ordered by id tree.
-    // This method works the same way as insertID but it also adds the weet to the 
-    // user node, whether or not the node already exists.
-    // Extra checks are done, like in insertID.
+    // CHECKUSER
+    // adds the weet to the weets of its user, adding the user to the tree if it's not
+    // already there
     private void checkUser(int uid, Weet weet) {
-        Node<Weet,Integer> parent = null;
-        Node<Weet,Integer> pointer = root;
-        S side = null;
-        while (pointer!=null) {
-            if (uid < pointer.getUID()) {
-                parent = pointer;
-                pointer = pointer.getLeft();
-                side = S.LEFT;
-            }
-            else if (uid > pointer.getUID()) {
-                parent = pointer;
-                pointer = pointer.getRight();
-                side = S.RIGHT;
-            }
-            else if (uid == pointer.getUID()) {
-                pointer.addWeetU(weet, weet.getDateWeeted()); return;
-            }
-        }
-        Node<Weet,Integer> u = new Node<Weet,Integer>(uid, parent, true);
-        if (parent!=null) {parent.setChild(u, side);}
+        UserWeets u = weetsByUser.get(uid);
+        if (u == null) {u = new UserWeets(); weetsByUser.insert(uid, u);}
         u.addWeetU(weet, weet.getDateWeeted());
-        checkNode(u);
-    }
-
-    // this method checks whether or not a recolouring/restructuring of the tree is required
-    // if the node is red and the parent's node is red:
-    //      if the uncle node is black or null, restructure the tree
-    //      if the uncle node is red, recolour the tree
-    private <T extends Comparable<T>> void checkNode(Node<Weet,T> u) {
-        if (u.doubleRed()) {
-            Node<Weet,T> uncle = u.getParent().getSibling();
-            if (uncle == null || uncle.isBlack()) {restructure(u);}
-            else if (uncle.isRed()) {recolour(u);}
-        }
     }
 
-    // recolouring is a basic process:
-    // • colour the parent node black
-    // • colour the uncle node black
-    // • colour the grandparent red
-    // • check if the grandparent requires recolouring/restructuring
-    private <T extends Comparable<T>> void recolour(Node<Weet,T> n) {
-        Node<Weet,T> parent = n.getParent();
-        Node<Weet,T> grandparent = parent.getParent();
-        if (grandparent==null) {return;}
-        if (grandparent.getParent()!=null) {
-            grandparent.makeRed(); parent.makeBlack(); parent.getSibling().makeBlack();
-            checkNode(grandparent);
-        }
-        else {
-            grandparent.makeBlack(); parent.makeBlack(); parent.getSibling().makeBlack();
-        }
+    /* HERE BEGIN PRIVATE METHODS THAT TAKE AND RELEASE THE LOCKS (0 IS THE STAMP WITHOUT ONE) */
+
+    // the lock of the user's stripe, or null without the CONCURRENT storage
+    private StampedLock userLock(int uid) {
+        return (stripes == null) ? null : stripes[stripe(uid)].lock;
     }
 
-    // restructuring is a more complex process
-    // if the parent and child are on the same side, a simple rotate is required
-    // otherwise, a double rotate is required
-    private <T extends Comparable<T>> void restructure(Node<Weet,T> n) {
-        S parentSide = n.getParent().getSide();
-        S childSide = n.getSide();
-        if (parentSide == childSide) {simpleRotate(n, parentSide);}
-        else {doubleRotate(n, parentSide);}
-    }
-
-    //         (C)
-    //        /              (B)
-    //     (B)      ->      /   \
-    //    /               (A)   (C)
-    // (A)
-    // That's the structure – we then rotate it to put (B) on top as parent of (A) and (C)
-    // and for (C) to inherit the right (or left) leaf of (B)
-    // As you obser
-    private <T extends Comparable<T>> void simpleRotate(Node<Weet,T> n, S parentSide) {
-        Node<Weet,T> a, b, c; a = n; b = a.getParent(); c = b.getParent();
-        if (c.getParent()!=null) {c.getParent().setChild(b, c.getSide());}
-        b.setParent(c.getParent()); c.setParent(b);
-        if (parentSide == S.LEFT) {
-            if (b.getRight()!=null) {b.getRight().setParent(c);}
-            c.setLeft(b.getRight()); b.setRight(c);
-        }
-        else {
-            if (b.getLeft()!=null) {b.getLeft().setParent(c);}
-            c.setRight(b.getLeft()); b.setLeft(c);
-        }
-        b.makeBlack(); c.makeRed();
-    }
-
-    //     (C)     
-    //    /                 (B)
-    // (A)         ->      /   \
-    //   \               (A)   (C)
-    //   (B)        
-    // We then rotate it to put (B) on top as parent of (A) and (C)
-    // for (C) to inherit the right (or left) leaf of (B)
-    // and for (A) to inherit the opposite node
-    private <T extends Comparable<T>> void doubleRotate(Node<Weet,T> n, S parentSide) {
-        Node<Weet,T> a, b, c; b = n; a = b.getParent(); c = a.getParent();
-        if (c.getParent()!=null) {c.getParent().setChild(b, c.getSide());}
-        b.setParent(c.getParent()); c.setParent(b); a.setParent(b);
-        if (parentSide == S.LEFT) {
-            if (b.getLeft()!=null) {b.getLeft().setParent(a);}
-            a.setRight(b.getLeft());
-            if (b.getRight()!=null) {b.getRight().setParent(c);}
-            c.setLeft(b.getRight());
-            b.setRight(c); b.setLeft(a);
-        }
-        else {
-            if (b.getRight()!=null) {b.getRight().setParent(a);}
-            a.setLeft(b.getRight());
-            if (b.getLeft()!=null) {b.getLeft().setParent(c);}
-            c.setRight(b.getLeft());
-            b.setLeft(c); b.setRight(a);
-        }
-        b.makeBlack(); c.makeRed();
+    // takes the write lock, for a method that changes the store, or fills a cache
+    private static long writeLock(StampedLock lock) {
+        return (lock == null) ? 0 : lock.writeLock();
+    }
+
+    // takes the read lock, which any amount of threads can hold at once
+    private static long readLock(StampedLock lock) {
+        return (lock == null) ? 0 : lock.readLock();
+    }
+
+    // turns the read lock into the write lock, for a read that has to fill a cache. If other
+    // threads hold the read lock too, it is released and the write lock waited for, so
+    // the cache may have been filled by then
+    private static long toWriteLock(StampedLock lock, long stamp) {
+        if (lock == null) {return 0;}
+        long write = lock.tryConvertToWriteLock(stamp);
+        if (write != 0) {return write;}
+        lock.unlockRead(stamp);
+        return lock.writeLock();
+    }
+
+    // releases whichever lock the stamp is of
+    private static void unlock(StampedLock lock, long stamp) {
+        if (lock != null) {lock.unlock(stamp);}
+    }
+
+    // the stripe of the user: the id is mixed, so that consecutive ids don't share
+    // neighbouring stripes in a pattern
+    private static int stripe(int uid) {
+        int h = uid * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (STRIPES - 1);
     }
 }
@@ -0,0 +1,44 @@
+/*
+ * A Benchmark is one timed operation against one of the stores.
+ *
+ * setUp is called once per dataset size and is never timed, so this is where the store
+ * gets filled. run is then called over and over by the BenchmarkRunner, and it returns the
+ * amount of operations it performed, so that the runner can report a throughput.
+ *
+ * The sink is there so that the JIT can not throw away a result it thinks is never used.
+ */
+abstract class Benchmark {
+
+    private final String name;
+    protected long sink;
+
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    // returns the name the benchmark is printed with
+    public String getName() {
+        return name;
+    }
+
+    // prepares the benchmark for a dataset of n entities (untimed)
+    public void setUp(Dataset data) {}
+
+    // runs one batch of operations and returns how many there were
+    public abstract int run();
+
+    // lets run() consume a result without the JIT eliminating it
+    protected void consume(Object o) {
+        if (o != null) {sink += o.hashCode() & 1;}
+    }
+
+    // same as consume, for results that are arrays
+    protected void consume(Object[] a) {
+        if (a != null) {sink += a.length;}
+    }
+
+    // same as consume, for results that are int arrays
+    protected void consume(int[] a) {
+        if (a != null) {sink += a.length;}
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * BenchmarkRunner runs every Benchmark of the tree and the three stores against datasets of the sizes
+ * given on the command line (by default 10^3, 10^4 and 10^5 entities).
+ *
+ *     java -cp ../tests/witter-models.jar:build BenchmarkRunner [-only <name>] [sizes...]
+ *
+ * For every benchmark and every size, the dataset is generated, setUp is called, and then
+ * the benchmark is run for WARMUPS untimed iterations (so that the JIT has compiled the hot
+ * paths) followed by ITERATIONS timed ones. Each iteration calls run() until at least
+ * ITERATION_NANOS have passed, and the throughput of every iteration is recorded. The mean
+ * and the standard deviation over the timed iterations is what gets printed.
+ *
+ * After the benchmarks of a size, the FootprintReport prints how many bytes every entry of
+ * the trees and stores takes up.
+ *
+ * -only restricts the run to the benchmarks whose name contains the given text, which is
+ * useful to compare one method before and after a change. Pass -only Footprint to only get
+ * the memory footprint.
+ */
+public class BenchmarkRunner {
+
+    private static final int WARMUPS = 3;
+    private static final int ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500000000L;
+
+    public static void main(String[] args) {
+        String only = null;
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-only")) {only = args[++i];}
+            else {sizes.add(Integer.parseInt(args[i]));}
+        }
+        if (sizes.isEmpty()) {sizes.add(1000); sizes.add(10000); sizes.add(100000);}
+
+        System.out.println(String.format("%-46s %10s %16s %14s", "Benchmark", "Size", "ops/s", "ns/op"));
+        for (int size : sizes) {
+            Dataset data = new Dataset(size);
+            for (Benchmark b : create()) {
+                if (only != null && !b.getName().contains(only)) {continue;}
+                b.setUp(data);
+                for (int i = 0; i < WARMUPS; i++) {iteration(b);}
+                double[] results = new double[ITERATIONS];
+                for (int i = 0; i < ITERATIONS; i++) {results[i] = iteration(b);}
+                report(b, size, results);
+            }
+            if (only == null || "Footprint".contains(only)) {
+                new FootprintReport(data).run();
+            }
+            data = null;
+            System.gc();
+        }
+    }
+
+    // a fresh instance of every benchmark, so that no store outlives its dataset
+    private static List<Benchmark> create() {
+        List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+        for (Benchmark b : RedBlackTreeBenchmark.create()) {benchmarks.add(b);}
+        for (Benchmark b : UserStoreBenchmark.create()) {benchmarks.add(b);}
+        for (Benchmark b : WeetStoreBenchmark.create()) {benchmarks.add(b);}
+        for (Benchmark b : FollowerStoreBenchmark.create()) {benchmarks.add(b);}
+        return benchmarks;
+    }
+
+    // runs the benchmark for one iteration and returns its throughput in operations/second
+    private static double iteration(Benchmark b) {
+        long ops = 0;
+        long start = System.nanoTime(), elapsed;
+        do {
+            ops += b.run();
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        return ops * 1e9 / elapsed;
+    }
+
+    // prints the mean throughput, its standard deviation and the mean time per operation
+    private static void report(Benchmark b, int size, double[] results) {
+        double mean = 0, deviation = 0;
+        for (double r : results) {mean += r;}
+        mean /= results.length;
+        for (double r : results) {deviation += (r - mean) * (r - mean);}
+        deviation = Math.sqrt(deviation / results.length);
+        String ops = String.format("%.0f +- %.0f%%", mean, 100 * deviation / mean);
+        System.out.println(String.format("%-46s %10d %16s %14.1f", b.getName(), size, ops, 1e9 / mean));
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.Date;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+/*
+ * A Dataset is a synthetic Witter of a given size. It is generated from a fixed seed so that
+ * two runs of the benchmarks (say, before and after a change to the trees) see exactly the
+ * same users, weets and follows in exactly the same order.
+ *
+ * • users join roughly in id order over five years, with some jitter
+ * • weets arrive roughly in date order, a third of them carry a hashtag, and hashtags are
+ *   skewed so that a few of them are very popular
+ * • follows are skewed towards low user ids, so that there are a few celebrities with a lot
+ *   of followers, like on the real thing
+ */
+class Dataset {
+
+    private static final long START = 1325376000000L; // 1st of January 2012
+    private static final long SPAN = 5L * 365 * 24 * 60 * 60 * 1000;
+    private static final String[] WORDS = {
+        "hello", "world", "java", "tree", "red", "black", "warwick", "coursework", "weet",
+        "lunch", "coffee", "exam", "library", "rain", "sunny", "train", "late", "again"
+    };
+    private static final String[] NAMES = {
+        "Rhiannon", "Max", "Alice", "Bob", "Carol", "Dave", "Erin", "Frank", "Grace", "Heidi",
+        "Ivan", "Judy", "Mallory", "Oscar", "Peggy", "Trent", "Victor", "Walter"
+    };
+    private static final long DAY = 24 * 60 * 60 * 1000;
+    private static final int HASHTAGS = 1000;
+
+    public final int size;
+    public final User[] users;
+    public final Weet[] weets;
+    public final int[] followers, follows;
+    public final Date[] followDates;
+    private final Random random;
+
+    public Dataset(int n) {
+        size = n;
+        random = new Random(126L * n);
+        users = new User[n];
+        weets = new Weet[n];
+        followers = new int[n];
+        follows = new int[n];
+        followDates = new Date[n];
+        for (int i = 0; i < n; i++) {
+            String name = NAMES[random.nextInt(NAMES.length)] + " " + i;
+            users[i] = new User(name, i, dateAt(i, n));
+        }
+        for (int i = 0; i < n; i++) {
+            weets[i] = new Weet(i, random.nextInt(n), message(), dateAt(i, n));
+        }
+        for (int i = 0; i < n; i++) {
+            int follower = random.nextInt(n);
+            int followee = skewed(n);
+            if (follower == followee) {followee = (followee + 1) % n;}
+            followers[i] = follower;
+            follows[i] = followee;
+            followDates[i] = dateAt(i, n);
+        }
+    }
+
+    // a random user id that is already in the dataset
+    public int randomId() {
+        return random.nextInt(size);
+    }
+
+    // a random date somewhere within the span of the dataset
+    public Date randomDate() {
+        return new Date(START + (long) (random.nextDouble() * SPAN));
+    }
+
+    // a random word that appears in the messages of the weets
+    public String randomWord() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    // a random hashtag, which only appears in a few of the messages
+    public String randomHashtag() {
+        return "#tag" + random.nextInt(HASHTAGS);
+    }
+
+    // a random query that appears in the names of the users
+    public String randomName() {
+        return NAMES[random.nextInt(NAMES.length)].substring(0, 3).toLowerCase();
+    }
+
+    // a new user that is not part of the dataset, who joined just after all the others
+    public User freshUser(int id) {
+        return new User(NAMES[random.nextInt(NAMES.length)] + " " + id, id, new Date(START + SPAN + DAY + id));
+    }
+
+    // a new weet that is not part of the dataset, with a date just after all the others
+    public Weet freshWeet(int id) {
+        return new Weet(id, randomId(), message(), new Date(START + SPAN + DAY + id));
+    }
+
+    // the date of the i-th of n items, roughly in order but with up to a day of jitter
+    private Date dateAt(int i, int n) {
+        long jitter = (long) (random.nextDouble() * DAY);
+        return new Date(START + (SPAN / n) * i + jitter);
+    }
+
+    // a message of a few words, where a third of the messages carry a skewed hashtag
+    private String message() {
+        StringBuilder sb = new StringBuilder();
+        int words = 3 + random.nextInt(6);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {sb.append(' ');}
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        if (random.nextInt(3) == 0) {sb.append(" #Tag").append(skewed(HASHTAGS));}
+        return sb.toString();
+    }
+
+    // a number between 0 and n, where low numbers are a lot more likely than high ones
+    private int skewed(int n) {
+        double r = random.nextDouble();
+        return (int) (n * r * r * r);
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.Date;
+
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.IntIndex;
+
+/*
+ * Benchmarks for every method of IFollowerStore.
+ *
+ * addFollower is measured by filling a brand new store with every follow in the dataset,
+ * and again with everyone following the same user, as they would a celebrity. addFollowers
+ * fills a brand new store with every follow at once. isAFollower
+ * and getMutualFollowers are measured for such a celebrity too, with half of the users
+ * following them, and getFollowers right after someone else follows them.
+ * getTopUsers is measured straight after a write, since between two writes it only returns
+ * a cache. addFollower is measured again with the CONCURRENT storage, from a single thread,
+ * which is the cost of its locks and skip list.
+ */
+class FollowerStoreBenchmark {
+
+    // the store every read benchmark shares, filled once per dataset
+    private static FollowerStore filled(Dataset data) {
+        FollowerStore store = new FollowerStore();
+        for (int i = 0; i < data.size; i++) {
+            store.addFollower(data.followers[i], data.follows[i], data.followDates[i]);
+        }
+        return store;
+    }
+
+    public static Benchmark[] create() {
+        return new Benchmark[] {
+
+            new Benchmark("FollowerStore.addFollower") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    consume(filled(data));
+                    return data.size;
+                }
+            },
+
+            new Benchmark("FollowerStore.addFollowers (bulk)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    FollowerStore store = new FollowerStore();
+                    store.addFollowers(data.followers, data.follows, data.followDates);
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("FollowerStore.addFollower (concurrent)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    FollowerStore store = new FollowerStore(IntIndex.Storage.CONCURRENT);
+                    for (int i = 0; i < data.size; i++) {
+                        store.addFollower(data.followers[i], data.follows[i], data.followDates[i]);
+                    }
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("FollowerStore.addFollower (one celebrity)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    FollowerStore store = new FollowerStore();
+                    for (int i = 0; i < data.size; i++) {
+                        store.addFollower(i + 1, 0, data.followDates[i]);
+                    }
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("FollowerStore.isAFollower") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {
+                        if (store.isAFollower(data.randomId(), data.randomId())) {sink++;}
+                    }
+                    return 1000;
+                }
+            },
+
+            new Benchmark("FollowerStore.isAFollower (of a celebrity)") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {
+                    data = d; store = new FollowerStore();
+                    for (int i = 0; i < d.size; i += 2) {store.addFollower(i + 1, 0, d.followDates[i]);}
+                }
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {
+                        if (store.isAFollower(data.randomId(), 0)) {sink++;}
+                    }
+                    return 1000;
+                }
+            },
+
+            new Benchmark("FollowerStore.getFollowers") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(store.getFollowers(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("FollowerStore.getFollowers (after a follow)") {
+                private Dataset data; private FollowerStore store; private int next;
+                public void setUp(Dataset d) {
+                    data = d; store = new FollowerStore(); next = d.size + 1;
+                    for (int i = 0; i < d.size; i++) {store.addFollower(i + 1, 0, d.followDates[i]);}
+                }
+                public int run() {
+                    store.addFollower(next++, 0, data.randomDate());
+                    consume(store.getFollowers(0));
+                    return 1;
+                }
+            },
+
+            new Benchmark("FollowerStore.getFollows") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(store.getFollows(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("FollowerStore.getMutualFollowers") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 100; i++) {
+                        consume(store.getMutualFollowers(data.randomId(), data.randomId()));
+                    }
+                    return 100;
+                }
+            },
+
+            new Benchmark("FollowerStore.getMutualFollowers (celebrity)") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {
+                    data = d; store = filled(d);
+                    for (int i = 0; i < d.size; i += 2) {store.addFollower(i + 1, 0, d.followDates[i]);}
+                }
+                public int run() {
+                    for (int i = 0; i < 100; i++) {
+                        consume(store.getMutualFollowers(data.randomId(), 0));
+                    }
+                    return 100;
+                }
+            },
+
+            new Benchmark("FollowerStore.getMutualFollows") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 100; i++) {
+                        consume(store.getMutualFollows(data.randomId(), data.randomId()));
+                    }
+                    return 100;
+                }
+            },
+
+            new Benchmark("FollowerStore.getNumFollowers") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {sink += store.getNumFollowers(data.randomId());}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("FollowerStore.getTopUsers (after a write)") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    store.addFollower(data.randomId(), data.randomId(), new Date());
+                    consume(store.getTopUsers());
+                    return 1;
+                }
+            },
+
+            new Benchmark("FollowerStore.getTopUsers(10) (after a write)") {
+                private Dataset data; private FollowerStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    store.addFollower(data.randomId(), data.randomId(), new Date());
+                    consume(store.getTopUsers(10));
+                    return 1;
+                }
+            }
+        };
+    }
+}
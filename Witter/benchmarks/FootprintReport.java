@@ -0,0 +1,136 @@
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.IntArrayRedBlackTree;
+import uk.ac.warwick.java.cs126.services.IntIndex;
+import uk.ac.warwick.java.cs126.services.IntRedBlackTree;
+import uk.ac.warwick.java.cs126.services.RedBlackTree;
+import uk.ac.warwick.java.cs126.services.UserStore;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+
+/*
+ * FootprintReport prints how many bytes of heap every entry of the trees and every entity of
+ * the stores costs, so that a change to the layout of a node can be measured like a change
+ * to its speed.
+ *
+ * There is no object layout tool on the classpath, so the footprint is measured from the
+ * outside: the heap in use is read (after collecting the garbage until it stops shrinking),
+ * the structure is built, the heap is read again, and the difference is divided by the
+ * amount of entries. The dataset is generated before the first reading, so the users and
+ * weets themselves are never counted – only what a structure adds on top of them.
+ *
+ * LegacyNode is a replica of the node every store used to have, with its key, value, colour,
+ * side, parent, left, right and sibling, so the old layout can be compared to the new ones.
+ */
+class FootprintReport {
+
+    // the node of the old per-store trees, as it was
+    private static final class LegacyNode {
+        enum C {RED, BLACK}
+        enum S {LEFT, RIGHT}
+        Object key, value;
+        C colour;
+        S side;
+        LegacyNode parent, left, right, sibling;
+    }
+
+    private final Dataset data;
+    private final int size;
+    private Object keep; // holds on to what is being measured until it has been measured
+
+    FootprintReport(Dataset data) {
+        this.data = data;
+        this.size = data.size;
+    }
+
+    // prints one line per structure
+    void run() {
+        report("Footprint LegacyNode", size, legacyNodes());
+        report("Footprint RedBlackTree", size, redBlackTree());
+        report("Footprint IntRedBlackTree", size, intTree(IntIndex.Storage.NODES));
+        report("Footprint IntArrayRedBlackTree", size, intTree(IntIndex.Storage.ARRAYS));
+        report("Footprint UserStore", size, userStore(IntIndex.Storage.NODES));
+        report("Footprint UserStore (arrays)", size, userStore(IntIndex.Storage.ARRAYS));
+        report("Footprint WeetStore", size, weetStore(IntIndex.Storage.NODES));
+        report("Footprint WeetStore (arrays)", size, weetStore(IntIndex.Storage.ARRAYS));
+        report("Footprint FollowerStore", size, followerStore(IntIndex.Storage.NODES));
+        report("Footprint FollowerStore (arrays)", size, followerStore(IntIndex.Storage.ARRAYS));
+    }
+
+    private long legacyNodes() {
+        long before = used();
+        LegacyNode[] nodes = new LegacyNode[size];
+        long array = used() - before;
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new LegacyNode();
+            nodes[i].key = data.users[i];
+            nodes[i].colour = LegacyNode.C.RED;
+            nodes[i].side = LegacyNode.S.LEFT;
+        }
+        keep = nodes;
+        return used() - before - array; // the array that holds on to them is not part of it
+    }
+
+    // every node shares the same key and value, so that only the nodes are counted
+    private long redBlackTree() {
+        long before = used();
+        RedBlackTree<Integer,User> tree = new RedBlackTree<Integer,User>();
+        Integer key = Integer.valueOf(0);
+        for (int i = 0; i < size; i++) {tree.insertMulti(key, data.users[0]);}
+        keep = tree;
+        return used() - before;
+    }
+
+    private long intTree(IntIndex.Storage storage) {
+        long before = used();
+        IntIndex<User> tree = (storage == IntIndex.Storage.ARRAYS)
+            ? new IntArrayRedBlackTree<User>(size) : new IntRedBlackTree<User>();
+        for (int i = 0; i < size; i++) {tree.insert(i, data.users[i]);}
+        keep = tree;
+        return used() - before;
+    }
+
+    private long userStore(IntIndex.Storage storage) {
+        long before = used();
+        UserStore store = new UserStore(storage);
+        for (User u : data.users) {store.addUser(u);}
+        keep = store;
+        return used() - before;
+    }
+
+    private long weetStore(IntIndex.Storage storage) {
+        long before = used();
+        WeetStore store = new WeetStore(storage);
+        for (Weet w : data.weets) {store.addWeet(w);}
+        keep = store;
+        return used() - before;
+    }
+
+    private long followerStore(IntIndex.Storage storage) {
+        long before = used();
+        FollowerStore store = new FollowerStore(storage);
+        for (int i = 0; i < size; i++) {
+            store.addFollower(data.followers[i], data.follows[i], data.followDates[i]);
+        }
+        keep = store;
+        return used() - before;
+    }
+
+    private void report(String name, int entries, long bytes) {
+        keep = null;
+        System.out.println(String.format("%-46s %10d %20.1f bytes/entry", name, entries, (double) bytes / entries));
+    }
+
+    // the heap in use, once the garbage has been collected
+    private static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory(), previous;
+        do {
+            previous = used;
+            System.gc();
+            try {Thread.sleep(20);} catch (InterruptedException e) {Thread.currentThread().interrupt();}
+            used = runtime.totalMemory() - runtime.freeMemory();
+        } while (used < previous);
+        return used;
+    }
+}
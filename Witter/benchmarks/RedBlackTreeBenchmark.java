@@ -0,0 +1,141 @@
+import java.util.Date;
+
+import uk.ac.warwick.java.cs126.services.IntArrayRedBlackTree;
+import uk.ac.warwick.java.cs126.services.IntIndex;
+import uk.ac.warwick.java.cs126.services.IntRedBlackTree;
+import uk.ac.warwick.java.cs126.services.RedBlackTree;
+
+/*
+ * Benchmarks for the RedBlackTree that all three stores sit on, without any of the work
+ * the stores do around it. If a store gets faster or slower, these tell you whether it was
+ * the tree or not.
+ *
+ * Ids are inserted both in order (which is how they arrive in Witter) and shuffled. The
+ * IntRedBlackTree and IntArrayRedBlackTree, which the stores use for ids, are measured next
+ * to the generic tree. Building an IntRedBlackTree from the ids in order, bottom up, is
+ * measured next to inserting them one at a time.
+ */
+class RedBlackTreeBenchmark {
+
+    // a tree holding the ids 0..n-1 of the dataset's users
+    private static RedBlackTree<Integer,Object> filled(Dataset data) {
+        RedBlackTree<Integer,Object> tree = new RedBlackTree<Integer,Object>();
+        for (int i = 0; i < data.size; i++) {tree.insert(data.users[i].getId(), data.users[i]);}
+        return tree;
+    }
+
+    // the same, in one of the trees specialised for int keys
+    private static IntIndex<Object> filledInt(Dataset data, IntIndex<Object> tree) {
+        for (int i = 0; i < data.size; i++) {tree.insert(data.users[i].getId(), data.users[i]);}
+        return tree;
+    }
+
+    public static Benchmark[] create() {
+        return new Benchmark[] {
+
+            new Benchmark("RedBlackTree.insert (in order)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    consume(filled(data));
+                    return data.size;
+                }
+            },
+
+            new Benchmark("RedBlackTree.insert (shuffled)") {
+                private Dataset data; private int[] keys;
+                public void setUp(Dataset d) {
+                    data = d; keys = new int[d.size];
+                    for (int i = 0; i < keys.length; i++) {keys[i] = d.followers[i];}
+                }
+                public int run() {
+                    RedBlackTree<Integer,Object> tree = new RedBlackTree<Integer,Object>();
+                    for (int k : keys) {tree.insert(k, data);}
+                    consume(tree);
+                    return keys.length;
+                }
+            },
+
+            new Benchmark("RedBlackTree.insertMulti (dates)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    RedBlackTree<Date,Object> tree = new RedBlackTree<Date,Object>();
+                    for (int i = 0; i < data.size; i++) {
+                        tree.insertMulti(data.weets[i].getDateWeeted(), data.weets[i]);
+                    }
+                    consume(tree);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("RedBlackTree.get") {
+                private Dataset data; private RedBlackTree<Integer,Object> tree;
+                public void setUp(Dataset d) {data = d; tree = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(tree.get(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("IntRedBlackTree.insert (in order)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    consume(filledInt(data, new IntRedBlackTree<Object>()));
+                    return data.size;
+                }
+            },
+
+            new Benchmark("IntRedBlackTree.buildFromSorted") {
+                private Dataset data; private int[] keys;
+                public void setUp(Dataset d) {
+                    data = d; keys = new int[d.size];
+                    for (int i = 0; i < keys.length; i++) {keys[i] = d.users[i].getId();}
+                }
+                public int run() {
+                    IntRedBlackTree<Object> tree = new IntRedBlackTree<Object>();
+                    tree.buildFromSorted(keys, data.users, keys.length);
+                    consume(tree);
+                    return keys.length;
+                }
+            },
+
+            new Benchmark("IntRedBlackTree.get") {
+                private Dataset data; private IntIndex<Object> tree;
+                public void setUp(Dataset d) {data = d; tree = filledInt(d, new IntRedBlackTree<Object>());}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(tree.get(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("IntArrayRedBlackTree.insert (in order)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    consume(filledInt(data, new IntArrayRedBlackTree<Object>()));
+                    return data.size;
+                }
+            },
+
+            new Benchmark("IntArrayRedBlackTree.get") {
+                private Dataset data; private IntIndex<Object> tree;
+                public void setUp(Dataset d) {data = d; tree = filledInt(d, new IntArrayRedBlackTree<Object>());}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(tree.get(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("RedBlackTree.fillDescending") {
+                private RedBlackTree<Integer,Object> tree; private Object[] into;
+                public void setUp(Dataset d) {tree = filled(d); into = new Object[d.size];}
+                public int run() {
+                    sink += tree.fillDescending(into);
+                    return 1;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.services.IntIndex;
+import uk.ac.warwick.java.cs126.services.UserStore;
+
+/*
+ * Benchmarks for every method of IUserStore.
+ *
+ * addUser is measured by filling a brand new store with the whole dataset, and so is
+ * addUsers, with the whole dataset at once. Every other method is measured against a store
+ * that setUp has already filled. addUser and getUser are
+ * measured again with the id tree stored in arrays. getUsers is measured a second time
+ * straight after a write, which is what a store that is written to and read from in turn
+ * sees, and once more as a view, which doesn't copy the cache as getUsers does.
+ */
+class UserStoreBenchmark {
+
+    // the store every read benchmark shares, filled once per dataset
+    private static UserStore filled(Dataset data) {
+        UserStore store = new UserStore();
+        for (User u : data.users) {store.addUser(u);}
+        return store;
+    }
+
+    public static Benchmark[] create() {
+        return new Benchmark[] {
+
+            new Benchmark("UserStore.addUser") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    UserStore store = new UserStore();
+                    for (User u : data.users) {store.addUser(u);}
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("UserStore.addUsers (bulk)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    UserStore store = new UserStore();
+                    store.addUsers(data.users);
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("UserStore.getUser") {
+                private Dataset data; private UserStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(store.getUser(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("UserStore.addUser (arrays)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    UserStore store = new UserStore(IntIndex.Storage.ARRAYS);
+                    for (User u : data.users) {store.addUser(u);}
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("UserStore.getUser (arrays)") {
+                private Dataset data; private UserStore store;
+                public void setUp(Dataset d) {
+                    data = d; store = new UserStore(IntIndex.Storage.ARRAYS);
+                    for (User u : d.users) {store.addUser(u);}
+                }
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(store.getUser(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("UserStore.getUsers") {
+                private UserStore store;
+                public void setUp(Dataset d) {store = filled(d);}
+                public int run() {
+                    consume(store.getUsers());
+                    return 1;
+                }
+            },
+
+            new Benchmark("UserStore.getUsersView") {
+                private UserStore store;
+                public void setUp(Dataset d) {store = filled(d);}
+                public int run() {
+                    consume(store.getUsersView());
+                    return 1;
+                }
+            },
+
+            new Benchmark("UserStore.getUsers (after a write)") {
+                private Dataset data; private UserStore store; private int next;
+                public void setUp(Dataset d) {data = d; store = filled(d); next = d.size;}
+                public int run() {
+                    store.addUser(data.freshUser(next++));
+                    consume(store.getUsers());
+                    return 1;
+                }
+            },
+
+            new Benchmark("UserStore.getUsersJoinedBefore") {
+                private Dataset data; private UserStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    consume(store.getUsersJoinedBefore(data.randomDate()));
+                    return 1;
+                }
+            },
+
+            new Benchmark("UserStore.getUsersContaining") {
+                private Dataset data; private UserStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    consume(store.getUsersContaining(data.randomName()));
+                    return 1;
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,333 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+import uk.ac.warwick.java.cs126.services.CsvLoader;
+import uk.ac.warwick.java.cs126.services.HashtagScanner;
+import uk.ac.warwick.java.cs126.services.IntIndex;
+import uk.ac.warwick.java.cs126.services.TrendCounter;
+import uk.ac.warwick.java.cs126.services.TrendSketch;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+
+/*
+ * Benchmarks for every method of IWeetStore.
+ *
+ * addWeet is measured by filling a brand new store with the whole dataset, and so are
+ * addWeets, with the whole dataset at once, and the CsvLoader, from the dataset written out
+ * as a weets.csv (so that is reading and parsing the file as well). getTrending is
+ * measured straight after a write, since between two writes it only returns a cache, and
+ * so are getWeets, and getWeetsByUser for the user who just weeted. getTrending is measured
+ * over all time, over the last hour, and with the trends counted in a sketch. Finding the
+ * hashtags of a message is measured both by splitting it, the way addTrends used to, and
+ * with the HashtagScanner. getWeetsPage reads one page of a feed, the way a web frontend
+ * would. getWeetsContaining is measured both with common words, which match a third of the
+ * weets, and with rare hashtags.
+ * addWeet and getWeet are measured again with the id trees stored in arrays, and with the
+ * CONCURRENT storage (from a single thread, so that is the cost of the skip lists and the
+ * locks, not what they gain with many threads). addWeet with the CONCURRENT storage is then
+ * measured from one thread per core, each adding its share of the dataset, which is what
+ * the stripes gain: compare it with the single thread on a machine with several cores.
+ */
+class WeetStoreBenchmark {
+
+    // the store every read benchmark shares, filled once per dataset
+    private static WeetStore filled(Dataset data) {
+        WeetStore store = new WeetStore();
+        for (Weet w : data.weets) {store.addWeet(w);}
+        return store;
+    }
+
+    // the weets of the dataset, written out as a weets.csv in a temporary file
+    private static File weetsCsv(Dataset data) {
+        SimpleDateFormat format = new SimpleDateFormat(CsvLoader.DATE_PATTERN);
+        StringBuilder sb = new StringBuilder("id,userId,message,date\n");
+        for (Weet w : data.weets) {
+            sb.append(w.getId()).append(',').append(w.getUserId()).append(',').append(w.getMessage())
+                .append(',').append(format.format(w.getDateWeeted())).append('\n');
+        }
+        try {
+            File file = File.createTempFile("weets", ".csv");
+            file.deleteOnExit();
+            Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+            return file;
+        }
+        catch (IOException e) {throw new UncheckedIOException(e);}
+    }
+
+    public static Benchmark[] create() {
+        return new Benchmark[] {
+
+            new Benchmark("WeetStore.addWeet") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    WeetStore store = new WeetStore();
+                    for (Weet w : data.weets) {store.addWeet(w);}
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("WeetStore.addWeets (bulk)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    WeetStore store = new WeetStore();
+                    store.addWeets(data.weets);
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("CsvLoader.loadWeets (weets.csv)") {
+                private Dataset data; private File file;
+                public void setUp(Dataset d) {data = d; file = weetsCsv(d);}
+                public int run() {
+                    WeetStore store = new WeetStore();
+                    try {new CsvLoader().loadWeets(store, file);}
+                    catch (IOException e) {throw new UncheckedIOException(e);}
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeet") {
+                private Dataset data; private WeetStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(store.getWeet(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("WeetStore.addWeet (arrays)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    WeetStore store = new WeetStore(IntIndex.Storage.ARRAYS);
+                    for (Weet w : data.weets) {store.addWeet(w);}
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeet (arrays)") {
+                private Dataset data; private WeetStore store;
+                public void setUp(Dataset d) {
+                    data = d; store = new WeetStore(IntIndex.Storage.ARRAYS);
+                    for (Weet w : d.weets) {store.addWeet(w);}
+                }
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(store.getWeet(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("WeetStore.addWeet (concurrent)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    WeetStore store = new WeetStore(IntIndex.Storage.CONCURRENT);
+                    for (Weet w : data.weets) {store.addWeet(w);}
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("WeetStore.addWeet (concurrent, every core)") {
+                private Dataset data;
+                public void setUp(Dataset d) {data = d;}
+                public int run() {
+                    final WeetStore store = new WeetStore(IntIndex.Storage.CONCURRENT);
+                    final int threads = Runtime.getRuntime().availableProcessors();
+                    Thread[] workers = new Thread[threads];
+                    for (int t = 0; t < threads; t++) {
+                        final int first = t;
+                        workers[t] = new Thread() {
+                            public void run() {
+                                for (int i = first; i < data.size; i += threads) {store.addWeet(data.weets[i]);}
+                            }
+                        };
+                        workers[t].start();
+                    }
+                    try {
+                        for (Thread worker : workers) {worker.join();}
+                    }
+                    catch (InterruptedException e) {throw new IllegalStateException(e);}
+                    consume(store);
+                    return data.size;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeet (concurrent)") {
+                private Dataset data; private WeetStore store;
+                public void setUp(Dataset d) {
+                    data = d; store = new WeetStore(IntIndex.Storage.CONCURRENT);
+                    for (Weet w : d.weets) {store.addWeet(w);}
+                }
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {consume(store.getWeet(data.randomId()));}
+                    return 1000;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeets") {
+                private WeetStore store;
+                public void setUp(Dataset d) {store = filled(d);}
+                public int run() {
+                    consume(store.getWeets());
+                    return 1;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeets (after a write)") {
+                private Dataset data; private WeetStore store; private int next;
+                public void setUp(Dataset d) {data = d; store = filled(d); next = d.size;}
+                public int run() {
+                    store.addWeet(data.freshWeet(next++));
+                    consume(store.getWeets());
+                    return 1;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeetsPage (20 weets)") {
+                private Dataset data; private WeetStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {
+                        consume(store.getWeetsPage(data.weets[data.randomId()], 20));
+                    }
+                    return 1000;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeetsBefore") {
+                private Dataset data; private WeetStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    consume(store.getWeetsBefore(data.randomDate()));
+                    return 1;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeetsOn") {
+                private Dataset data; private WeetStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    consume(store.getWeetsOn(data.randomDate()));
+                    return 1;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeetsByUser") {
+                private Dataset data; private WeetStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    for (int i = 0; i < 1000; i++) {
+                        consume(store.getWeetsByUser(data.users[data.randomId()]));
+                    }
+                    return 1000;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeetsByUser (after a write)") {
+                private Dataset data; private WeetStore store; private int next;
+                public void setUp(Dataset d) {data = d; store = filled(d); next = d.size;}
+                public int run() {
+                    Weet w = data.freshWeet(next++);
+                    store.addWeet(w);
+                    consume(store.getWeetsByUser(data.users[w.getUserId()]));
+                    return 1;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeetsContaining") {
+                private Dataset data; private WeetStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    consume(store.getWeetsContaining(data.randomWord()));
+                    return 1;
+                }
+            },
+
+            new Benchmark("WeetStore.getWeetsContaining (rare)") {
+                private Dataset data; private WeetStore store;
+                public void setUp(Dataset d) {data = d; store = filled(d);}
+                public int run() {
+                    consume(store.getWeetsContaining(data.randomHashtag()));
+                    return 1;
+                }
+            },
+
+            new Benchmark("WeetStore.getTrending (after a write)") {
+                private Dataset data; private WeetStore store; private int next;
+                public void setUp(Dataset d) {data = d; store = filled(d); next = d.size;}
+                public int run() {
+                    store.addWeet(data.freshWeet(next++));
+                    consume(store.getTrending());
+                    return 1;
+                }
+            },
+
+            new Benchmark("WeetStore.getTrending (hour, after a write)") {
+                private Dataset data; private WeetStore store; private int next;
+                public void setUp(Dataset d) {
+                    data = d; store = filled(d); next = d.size;
+                    store.getTrending(TrendCounter.Window.HOUR);
+                }
+                public int run() {
+                    store.addWeet(data.freshWeet(next++));
+                    consume(store.getTrending(TrendCounter.Window.HOUR));
+                    return 1;
+                }
+            },
+
+            new Benchmark("WeetStore.getTrending (sketch, after a write)") {
+                private Dataset data; private WeetStore store; private int next;
+                public void setUp(Dataset d) {
+                    data = d; next = d.size;
+                    store = new WeetStore(IntIndex.Storage.NODES, new TrendSketch(0.0001, 0.001));
+                    for (Weet w : d.weets) {store.addWeet(w);}
+                }
+                public int run() {
+                    store.addWeet(data.freshWeet(next++));
+                    consume(store.getTrending());
+                    return 1;
+                }
+            },
+
+            // what addTrends did before the HashtagScanner, to compare it with
+            new Benchmark("Hashtags of a message (split, toLowerCase)") {
+                private Dataset data; private TrendCounter counter; private int next;
+                public void setUp(Dataset d) {data = d; counter = new TrendCounter(); next = 0;}
+                public int run() {
+                    Weet w = data.weets[next++ % data.size];
+                    for (String word : w.getMessage().split(" ")) {
+                        if (word.startsWith("#")) {counter.insert(word.toLowerCase(), w.getDateWeeted());}
+                    }
+                    return 1;
+                }
+            },
+
+            new Benchmark("Hashtags of a message (HashtagScanner)") {
+                private Dataset data; private TrendCounter counter; private int next;
+                public void setUp(Dataset d) {data = d; counter = new TrendCounter(); next = 0;}
+                public int run() {
+                    Weet w = data.weets[next++ % data.size];
+                    String message = w.getMessage();
+                    for (int s = HashtagScanner.next(message, 0); s < message.length(); ) {
+                        int e = HashtagScanner.end(message, s);
+                        counter.insert(message, s, e, w.getDateWeeted());
+                        s = HashtagScanner.next(message, e);
+                    }
+                    return 1;
+                }
+            }
+        };
+    }
+}
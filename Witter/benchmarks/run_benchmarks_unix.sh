@@ -0,0 +1,23 @@
+WORK_DIR=`pwd`
+
+echo "[INFO]:  Compiling the stores and the benchmarks..."
+
+mkdir -p $WORK_DIR/build
+
+javac -encoding UTF-8 -cp ../tests/witter-models.jar -d build ../*.java *.java &> $WORK_DIR/benchmarks.log
+
+if [ ! -f $WORK_DIR/build/BenchmarkRunner.class ]
+then
+    echo "[ERROR]:  The benchmarks haven't compiled, check benchmarks.log for details..."
+    exit 1
+fi
+
+echo "[SUCCESS]:  Files compiled!"
+echo "[INFO]:  Running the benchmarks, this can take a while..."
+
+java -Xmx4g -cp ../tests/witter-models.jar:build BenchmarkRunner "$@"
+
+rm -rf $WORK_DIR/build
+rm $WORK_DIR/benchmarks.log
+
+echo "[SUCCESS]:  Run complete!"
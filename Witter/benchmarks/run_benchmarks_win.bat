@@ -0,0 +1,23 @@
+@echo off
+for /f "usebackq tokens=*" %%a in (`echo %cd%`) do SET WORK_DIR=%%a
+
+echo [INFO]:  Compiling the stores and the benchmarks...
+
+mkdir %WORK_DIR%\build
+
+javac -encoding UTF-8 -cp ..\tests\witter-models.jar -d build ..\*.java *.java > %WORK_DIR%\benchmarks.log 2>&1
+
+if not exist %WORK_DIR%\build\BenchmarkRunner.class (
+    echo [ERROR]:  The benchmarks haven't compiled, check benchmarks.log for details...
+    exit /b 1
+)
+
+echo [SUCCESS]:  Files compiled!
+echo [INFO]:  Running the benchmarks, this can take a while...
+
+java -Xmx4g -cp ..\tests\witter-models.jar;build BenchmarkRunner %*
+
+rmdir /s /q %WORK_DIR%\build
+del %WORK_DIR%\benchmarks.log
+
+echo [SUCCESS]:  Run complete!
@@ -18,6 +18,36 @@ cp WeetStore.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/
 
 cp FollowerStore.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
 
+cp RedBlackTree.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp IntRedBlackTree.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp IntArrayRedBlackTree.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp DateOrderedList.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp TrigramIndex.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp TrendCounter.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp TrendSketch.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp HashtagScanner.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp IntLongMap.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp ConcurrentIntIndex.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp Slice.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp IntSlice.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp SortOrder.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp CsvLoader.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
+cp IntIndex.java $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/
+
 rm $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/WeetStore.class
 rm $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/UserStore.class
 rm $WORK_DIR/witter-tmp/WEB-INF/classes/uk/ac/warwick/java/cs126/services/FollowerStore.class
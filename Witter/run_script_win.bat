@@ -18,6 +18,36 @@ copy WeetStore.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs1
 
 copy FollowerStore.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
 
+copy RedBlackTree.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy IntRedBlackTree.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy IntArrayRedBlackTree.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy DateOrderedList.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy TrigramIndex.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy TrendCounter.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy TrendSketch.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy HashtagScanner.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy IntLongMap.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy ConcurrentIntIndex.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy Slice.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy IntSlice.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy SortOrder.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy CsvLoader.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
+copy IntIndex.java %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\
+
 del %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\WeetStore.class
 del %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\UserStore.class
 del %WORK_DIR%\witter-tmp\WEB-INF\classes\uk\ac\warwick\java\cs126\services\FollowerStore.class
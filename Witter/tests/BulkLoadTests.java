@@ -0,0 +1,331 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.CsvLoader;
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.IntIndex;
+import uk.ac.warwick.java.cs126.services.TrendCounter;
+import uk.ac.warwick.java.cs126.services.UserStore;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class BulkLoadTests {
+
+    /*
+     * Tests that addUsers, given users out of order with repeated ids and dates, leaves the
+     * store the same as addUser on each of them in turn would, with either storage, and that
+     * a store that isn't empty takes more users the same way
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testAddUsers()
+    {
+        Random random = new Random(126);
+        User[] users = new User[2000];
+        for (int i = 0; i < users.length; i++)
+        {
+            int id = random.nextInt(1500);
+            users[i] = new User("User " + id + " " + i, id, new Date(1000L * random.nextInt(500)));
+        }
+        for (IntIndex.Storage storage : new IntIndex.Storage[] {IntIndex.Storage.NODES, IntIndex.Storage.ARRAYS})
+        {
+            UserStore expected = new UserStore(storage);
+            int added = 0;
+            for (User u : users)
+            {
+                if (expected.addUser(u))
+                {
+                    added++;
+                }
+            }
+            UserStore bulk = new UserStore(storage);
+            if (bulk.addUsers(users) != added || !sameUsers(expected, bulk, 1500))
+            {
+                return false;
+            }
+            User[] more = {new User("More", 1500, new Date(3)), new User("Again", 0, new Date(4))};
+            int addedMore = (expected.addUser(more[0]) ? 1 : 0) + (expected.addUser(more[1]) ? 1 : 0);
+            if (bulk.addUsers(more) != addedMore || !sameUsers(expected, bulk, 1501))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that addWeets, given weets out of order with repeated ids and dates, leaves the
+     * store the same as addWeet on each of them in turn would, for every way of reading it,
+     * and that the CONCURRENT storage takes them too
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testAddWeets()
+    {
+        Random random = new Random(126);
+        Weet[] weets = new Weet[3000];
+        for (int i = 0; i < weets.length; i++)
+        {
+            int id = random.nextInt(2500);
+            long time = 3600000L * random.nextInt(24 * 20);
+            weets[i] = new Weet(id, random.nextInt(50), "weet " + i + " #tag" + random.nextInt(5), new Date(time));
+        }
+        WeetStore expected = new WeetStore();
+        int added = 0;
+        for (Weet w : weets)
+        {
+            if (expected.addWeet(w))
+            {
+                added++;
+            }
+        }
+        WeetStore bulk = new WeetStore(IntIndex.Storage.ARRAYS);
+        WeetStore concurrent = new WeetStore(IntIndex.Storage.CONCURRENT);
+        if (bulk.addWeets(weets) != added || concurrent.addWeets(weets) != added
+            || !Arrays.equals(expected.getWeets(), bulk.getWeets())
+            || concurrent.getWeets().length != added)
+        {
+            return false;
+        }
+        for (int id = 0; id < 2500; id++)
+        {
+            if (expected.getWeet(id) != bulk.getWeet(id) || expected.getWeet(id) != concurrent.getWeet(id))
+            {
+                return false;
+            }
+        }
+        for (int uid = 0; uid < 50; uid++)
+        {
+            User user = new User("User", uid, new Date(0));
+            if (!Arrays.equals(expected.getWeetsByUser(user), bulk.getWeetsByUser(user)))
+            {
+                return false;
+            }
+        }
+        for (int day = 0; day < 20; day++)
+        {
+            Date date = new Date(86400000L * day + 43200000L);
+            if (!Arrays.equals(expected.getWeetsOn(date), bulk.getWeetsOn(date))
+                || !Arrays.equals(expected.getWeetsBefore(date, 10), bulk.getWeetsBefore(date, 10)))
+            {
+                return false;
+            }
+        }
+        Weet cursor = expected.getWeets()[100];
+        return Arrays.equals(expected.getWeetsPage(cursor, 50), bulk.getWeetsPage(cursor, 50))
+            && Arrays.equals(expected.getWeetsContaining("weet 12"), bulk.getWeetsContaining("weet 12"))
+            && expected.getTrending()[0].equals(bulk.getTrending()[0]);
+    }
+
+    /*
+     * Tests that addWeets, given weets out of date order with many trends used as often as
+     * each other, returns the same top ten as addWeet on each of them in turn, ties and all,
+     * over all time and within a window
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testAddWeetsTrendTies()
+    {
+        Random random = new Random(126);
+        for (int run = 0; run < 20; run++)
+        {
+            Weet[] weets = new Weet[200];
+            for (int i = 0; i < weets.length; i++)
+            {
+                long time = 60000L * random.nextInt(24 * 60);
+                weets[i] = new Weet(i, random.nextInt(20), "#t" + random.nextInt(40) + " #t" + random.nextInt(40), new Date(time));
+            }
+            WeetStore expected = new WeetStore();
+            for (Weet w : weets)
+            {
+                expected.addWeet(w);
+            }
+            WeetStore bulk = new WeetStore();
+            bulk.addWeets(weets);
+            if (!Arrays.equals(expected.getTrending(), bulk.getTrending())
+                || !Arrays.equals(expected.getTrending(TrendCounter.Window.HOUR), bulk.getTrending(TrendCounter.Window.HOUR)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that addFollowers, given follows out of order with repeated follows, leaves the
+     * store the same as addFollower on each of them in date order would
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testAddFollowers()
+    {
+        Random random = new Random(126);
+        final int n = 5000;
+        int[] uid1 = new int[n], uid2 = new int[n];
+        final Date[] dates = new Date[n];
+        Integer[] byDate = new Integer[n];
+        for (int i = 0; i < n; i++)
+        {
+            uid1[i] = random.nextInt(200);
+            uid2[i] = random.nextInt(1 + random.nextInt(200));
+            dates[i] = new Date(1000L * random.nextInt(2000));
+            byDate[i] = i;
+        }
+        Arrays.sort(byDate, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                return dates[a].compareTo(dates[b]);
+            }
+        });
+        FollowerStore expected = new FollowerStore();
+        int added = 0;
+        for (int i : byDate)
+        {
+            if (expected.addFollower(uid1[i], uid2[i], dates[i]))
+            {
+                added++;
+            }
+        }
+        FollowerStore bulk = new FollowerStore(IntIndex.Storage.ARRAYS);
+        if (bulk.addFollowers(uid1, uid2, dates) != added)
+        {
+            return false;
+        }
+        int[] expectedTop = expected.getTopUsers(), bulkTop = bulk.getTopUsers();
+        if (expectedTop.length != bulkTop.length)
+        {
+            return false;
+        }
+        for (int j = 0; j < expectedTop.length; j++)
+        {
+            if (expected.getNumFollowers(expectedTop[j]) != bulk.getNumFollowers(bulkTop[j]))
+            {
+                return false;
+            }
+        }
+        for (int uid = 0; uid < 200; uid++)
+        {
+            if (!Arrays.equals(expected.getFollowers(uid), bulk.getFollowers(uid))
+                || !Arrays.equals(expected.getFollows(uid), bulk.getFollows(uid))
+                || !Arrays.equals(expected.getMutualFollowers(uid, 0), bulk.getMutualFollowers(uid, 0)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that the CsvLoader reads headers, quoted fields with commas, quotes and new
+     * lines in them, blank lines and carriage returns, and loads every store from them;
+     * and that a line it can't read is reported by its number
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCsvLoader()
+    {
+        try
+        {
+            SimpleDateFormat format = new SimpleDateFormat(CsvLoader.DATE_PATTERN);
+            File names = csv("id,name,date\r\n2,Max McIntyre,02/01/2016 10:00:00\r\n\r\n"
+                + "1,\"Rhi, \"\"R\"\" B\",01/01/2016 09:30:00\r\n");
+            File weets = csv("1,2,hello #warwick,03/01/2016 12:00:00\n"
+                + "2,1,\"a, b\nand \"\"c\"\"\",03/01/2016 12:00:01\n3,1,ünïcödé,04/01/2016 00:00:00");
+            File followers = csv("1,2,05/01/2016 08:00:00\n2,1,05/01/2016 08:00:01\n1,2,06/01/2016 08:00:00\n");
+            CsvLoader loader = new CsvLoader();
+            UserStore userStore = new UserStore();
+            WeetStore weetStore = new WeetStore();
+            FollowerStore followerStore = new FollowerStore();
+            if (loader.loadUsers(userStore, names) != 2 || loader.loadWeets(weetStore, weets) != 3
+                || loader.loadFollowers(followerStore, followers) != 2)
+            {
+                return false;
+            }
+            User rhi = userStore.getUsers()[1];
+            Weet quoted = weetStore.getWeet(2);
+            if (!rhi.getName().equals("Rhi, \"R\" B") || rhi.getId() != 1
+                || !rhi.getDateJoined().equals(format.parse("01/01/2016 09:30:00"))
+                || !quoted.getMessage().equals("a, b\nand \"c\"") || quoted.getUserId() != 1
+                || !weetStore.getWeet(3).getMessage().equals("ünïcödé")
+                || !weetStore.getTrending()[0].equals("#warwick")
+                || !followerStore.isAFollower(1, 2) || followerStore.getNumFollowers(1) != 1)
+            {
+                return false;
+            }
+            File broken = csv("1,Max,01/01/2016 09:30:00\n2,Rhi,01/01/2016 09:30:00\n3x,Bob,01/01/2016 09:30:00\n");
+            try
+            {
+                loader.readUsers(broken);
+                return false;
+            }
+            catch (IOException e)
+            {
+                return e.getMessage().contains("line 3");
+            }
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    /*
+     * Tests that the CsvLoader reads a quoted field with a double quote written twice in it
+     * before a new line, and one that starts or ends with a double quote written twice
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCsvLoaderEscapedQuotes()
+    {
+        try
+        {
+            File names = csv("1,\"say \"\"hi\"\"\nthere\",01/01/2016 10:00:00\n"
+                + "2,\"\"\"quoted\"\", and \"\"new\nlines\"\"\"\"\",01/01/2016 10:00:01\n"
+                + "3,Bob,01/01/2016 10:00:02\n");
+            User[] users = new CsvLoader().readUsers(names);
+            if (users.length == 3 && users[0].getName().equals("say \"hi\"\nthere")
+                && users[1].getName().equals("\"quoted\", and \"new\nlines\"\"")
+                && users[2].getName().equals("Bob"))
+            {
+                return true;
+            }
+            else
+            {
+                return false;
+            }
+        }
+        catch (Exception e)
+        {
+            return false;
+        }
+    }
+
+    // whether the two stores return the same users, for every id up to ids and every query
+    private boolean sameUsers(UserStore expected, UserStore actual, int ids)
+    {
+        if (!Arrays.equals(expected.getUsers(), actual.getUsers())
+            || !Arrays.equals(expected.getUsersContaining("er 1"), actual.getUsersContaining("er 1"))
+            || !Arrays.equals(expected.getUsersJoinedBefore(new Date(250000)), actual.getUsersJoinedBefore(new Date(250000))))
+        {
+            return false;
+        }
+        for (int id = 0; id <= ids; id++)
+        {
+            if (expected.getUser(id) != actual.getUser(id))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // writes the text to a new temporary file, which is deleted when the tests end
+    private File csv(String text) throws IOException
+    {
+        File file = File.createTempFile("witter", ".csv");
+        file.deleteOnExit();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
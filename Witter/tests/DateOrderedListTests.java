@@ -0,0 +1,163 @@
+import java.util.Date;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.DateOrderedList;
+import uk.ac.warwick.java.cs126.services.RedBlackTree;
+
+class DateOrderedListTests {
+
+    /*
+     * Tests that values added in date order, and read after every few adds, come out newest
+     * first
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInOrder()
+    {
+        DateOrderedList<String> list = new DateOrderedList<String>(new String[0]);
+        RedBlackTree<Date,String> tree = new RedBlackTree<Date,String>();
+        for (int i = 0; i < 1000; i++)
+        {
+            Date d = new Date(i / 3); // three values per date
+            list.add(d, "" + i);
+            tree.insertMulti(d, "" + i);
+            if (i % 7 == 0 && !matches(list, tree))
+            {
+                return false;
+            }
+        }
+        return matches(list, tree);
+    }
+
+    /*
+     * Tests that values added in random order, including older than the newest value already
+     * read, come out in the same order as from a descending traversal of the date tree
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testOutOfOrder()
+    {
+        DateOrderedList<String> list = new DateOrderedList<String>(new String[0]);
+        RedBlackTree<Date,String> tree = new RedBlackTree<Date,String>();
+        Random random = new Random(126);
+        for (int i = 0; i < 2000; i++)
+        {
+            Date d = new Date(random.nextInt(500));
+            list.add(d, "" + i);
+            tree.insertMulti(d, "" + i);
+            if (random.nextInt(50) == 0 && !matches(list, tree))
+            {
+                return false;
+            }
+        }
+        return matches(list, tree);
+    }
+
+    /*
+     * Tests that reading twice without an add in between returns the cached array, and that
+     * an empty list returns an empty array
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCached()
+    {
+        DateOrderedList<String> list = new DateOrderedList<String>(new String[0]);
+        if (list.toArray().length != 0)
+        {
+            return false;
+        }
+        list.add(new Date(1), "a");
+        String[] first = list.toArray();
+        String[] second = list.toArray();
+        list.add(new Date(2), "b");
+        String[] third = list.toArray();
+        if (first == second && third != second && third.length == 2 && third[0].equals("b"))
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    /*
+     * Tests that toArrayNotAfter merges what was added in, so that the list then counts as
+     * merged, without making the array toArray hands out, which only toArray does
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testMerged()
+    {
+        DateOrderedList<String> list = new DateOrderedList<String>(new String[0]);
+        boolean empty = list.isMerged() && list.isUpToDate();
+        list.add(new Date(1), "a");
+        boolean added = !list.isMerged() && !list.isUpToDate();
+        list.toArrayNotAfter(new Date(1));
+        boolean merged = list.isMerged() && !list.isUpToDate();
+        list.toArray();
+        if (empty && added && merged && list.isMerged() && list.isUpToDate())
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    /*
+     * Tests that toArrayNotAfter returns exactly the values that aren't after the date,
+     * including those on it, while values are still being added out of order
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testNotAfter()
+    {
+        DateOrderedList<String> list = new DateOrderedList<String>(new String[0]);
+        Random random = new Random(126);
+        long[] dates = new long[1000];
+        if (list.toArrayNotAfter(new Date(0)).length != 0)
+        {
+            return false;
+        }
+        for (int i = 0; i < 1000; i++)
+        {
+            dates[i] = random.nextInt(300);
+            list.add(new Date(dates[i]), "" + i);
+            if (i % 10 != 0)
+            {
+                continue;
+            }
+            long date = random.nextInt(320) - 10;
+            String[] result = list.toArrayNotAfter(new Date(date));
+            String[] all = list.toArray();
+            // the result must be the end of the full list, from the first value that isn't
+            // after the date
+            int from = all.length - result.length;
+            for (int j = 0; j < all.length; j++)
+            {
+                boolean notAfter = dates[Integer.parseInt(all[j])] <= date;
+                if (notAfter != (j >= from) || (notAfter && !all[j].equals(result[j - from])))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean matches(DateOrderedList<String> list, RedBlackTree<Date,String> tree)
+    {
+        String[] expected = new String[tree.size()];
+        tree.fillDescending(expected);
+        String[] result = list.toArray();
+        if (result.length != expected.length || list.size() != expected.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++)
+        {
+            if (!result[i].equals(expected[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
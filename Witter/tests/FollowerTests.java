@@ -1,10 +1,15 @@
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Random;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.text.ParseException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import uk.ac.warwick.java.cs126.services.IFollowerStore;
 import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.IntIndex;
 
 class FollowerTests {
     protected boolean testAddFollower() 
@@ -354,6 +359,314 @@ class FollowerTests {
      * @return Returns true is the test passed, false is it failed
      */
 
+    /*
+     * Tests that a store keeping its users in parallel arrays behaves like the default one
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetFollowersArrays()
+    {
+      IFollowerStore followerStore = new FollowerStore(IntIndex.Storage.ARRAYS);
+
+      for (int i=2;i<=1000;i++)
+      {
+        if (!followerStore.addFollower(i,1,createDate("12/12/12 12:12")))
+        {
+          return false;
+        }
+      }
+      if (followerStore.addFollower(2,1,createDate("12/12/12 12:12")))
+      {
+        return false;
+      }
+      return followerStore.getFollowers(1).length == 999
+        && followerStore.getFollows(500)[0] == 1
+        && followerStore.getTopUsers()[0] == 1;
+    }
+    /*
+     * Tests that a user with thousands of followers, added in a random order and read in
+     * between, always gets them back at the exact length, newest first, also after the
+     * buffers were trimmed, and that a new follow shows up in getFollows straight away
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetFollowersGrowTrim()
+    {
+      FollowerStore followerStore = new FollowerStore();
+      Random random = new Random(126);
+      int[] order = new int[5000];
+      for (int i=0;i<order.length;i++)
+      {
+        order[i] = i+2;
+      }
+      for (int i=order.length-1;i>0;i--)
+      {
+        int j = random.nextInt(i+1), t = order[i]; order[i] = order[j]; order[j] = t;
+      }
+      for (int i=0;i<order.length;i++)
+      {
+        // follower u followed at minute u, so the newest follower has the highest id
+        followerStore.addFollower(order[i],1,new Date(order[i]*60000L));
+        if (i == order.length/2)
+        {
+          followerStore.trimToSize();
+        }
+        if (i % 500 == 0 || i == order.length-1)
+        {
+          int[] result = followerStore.getFollowers(1);
+          if (result.length != i+1 || followerStore.getNumFollowers(1) != i+1)
+          {
+            return false;
+          }
+          for (int k=1;k<result.length;k++)
+          {
+            if (result[k] >= result[k-1])
+            {
+              return false;
+            }
+          }
+        }
+      }
+      followerStore.addFollower(1,2,createDate("12/12/12 12:12"));
+      int[] before = followerStore.getFollows(1);
+      followerStore.addFollower(1,3,createDate("13/12/12 12:12"));
+      int[] after = followerStore.getFollows(1);
+      return before.length == 1 && after.length == 2 && after[0] == 3
+        && followerStore.isAFollower(4999,1) && !followerStore.isAFollower(1,4999);
+    }
+    /*
+     * Tests that isAFollower and refusing a follow twice are right for users with many more
+     * followers and follows than are checked one by one, as well as for users with few
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testIsAFollowerMany()
+    {
+      FollowerStore followerStore = new FollowerStore();
+      Date date = createDate("12/12/12 12:12");
+      for (int i=2;i<=3000;i+=2)
+      {
+        followerStore.addFollower(i,1,date);
+        followerStore.addFollower(1,i+1,date);
+      }
+      for (int i=2;i<=3001;i++)
+      {
+        boolean even = i % 2 == 0;
+        if (followerStore.isAFollower(i,1) != even || followerStore.isAFollower(1,i) == even
+          || followerStore.addFollower(even ? i : 1, even ? 1 : i, date))
+        {
+          return false;
+        }
+      }
+      return followerStore.addFollower(1,2,date) && followerStore.isAFollower(1,2)
+        && !followerStore.isAFollower(1,0) && followerStore.getNumFollowers(1) == 1500
+        && followerStore.getFollows(1).length == 1501;
+    }
+    /*
+     * Tests that the mutual followers and follows of users with few and many followers are
+     * exactly those found by comparing every pair, ordered by the later of the two follows
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetMutualMany()
+    {
+      FollowerStore followerStore = new FollowerStore();
+      Random random = new Random(126);
+      int users = 300;
+      long[][] followed = new long[users][users]; // when i followed j, or 0 if never
+      long time = 1;
+      for (int k=0;k<20000;k++)
+      {
+        // users 0 to 4 are followed, and follow, far more than the others
+        int i = (random.nextInt(3) == 0) ? random.nextInt(5) : random.nextInt(users);
+        int j = (random.nextInt(3) == 0) ? random.nextInt(5) : random.nextInt(users);
+        if (followerStore.addFollower(i,j,new Date(time)))
+        {
+          followed[i][j] = time++;
+        }
+      }
+      for (int q=0;q<200;q++)
+      {
+        int a = (q % 2 == 0) ? random.nextInt(5) : random.nextInt(users);
+        int b = random.nextInt(users);
+        if (!mutualMatches(followerStore.getMutualFollowers(a,b), followed, a, b, true)
+          || !mutualMatches(followerStore.getMutualFollows(a,b), followed, a, b, false))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /*
+     * Tests that getTopUsers holds every user, ordered by their amount of followers, after
+     * every follow (not only after a new user), and that the first k are the same
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetTopUsersFresh()
+    {
+      FollowerStore followerStore = new FollowerStore();
+      Random random = new Random(126);
+      int[] counts = new int[500];
+      boolean[] seen = new boolean[500];
+      int users = 0;
+      for (int k=0;k<5000;k++)
+      {
+        double r = random.nextDouble();
+        int i = random.nextInt(500), j = (int) (500 * r * r);
+        if (followerStore.addFollower(i,j,new Date(k)))
+        {
+          counts[j]++;
+          users += (seen[i] ? 0 : 1) + (seen[j] ? 0 : 1);
+          seen[i] = true; seen[j] = true;
+        }
+        if (k % 97 != 0)
+        {
+          continue;
+        }
+        int[] top = followerStore.getTopUsers();
+        int[] first = followerStore.getTopUsers(10);
+        if (top.length != users || first.length != Math.min(10, users))
+        {
+          return false;
+        }
+        boolean[] listed = new boolean[500];
+        for (int t=0;t<top.length;t++)
+        {
+          if (listed[top[t]] || !seen[top[t]] || (t > 0 && counts[top[t]] > counts[top[t-1]])
+            || (t < first.length && first[t] != top[t]))
+          {
+            return false;
+          }
+          listed[top[t]] = true;
+        }
+      }
+      return true;
+    }
+
+    /*
+     * Tests that a store with the CONCURRENT storage, with 32 threads following at once
+     * (every follow tried by two of them), ends up the same as a store given the follows one
+     * at a time, and that a reader never sees a follower that isAFollower doesn't know of
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testConcurrentAddFollower()
+    {
+      final FollowerStore followerStore = new FollowerStore(IntIndex.Storage.CONCURRENT);
+      FollowerStore expected = new FollowerStore();
+      final int threads = 32, users = 300, follows = 12000;
+      final int[] from = new int[follows], to = new int[follows];
+      Random random = new Random(126);
+      for (int k=0;k<follows;k++)
+      {
+        // a few users are followed by nearly everyone. Every follow is a new one, since
+        // which date a repeated follow keeps depends on which thread gets there first
+        do
+        {
+          double r = random.nextDouble();
+          from[k] = random.nextInt(users);
+          to[k] = (int) (users * r * r * r);
+        } while (!expected.addFollower(from[k], to[k], new Date(k)));
+      }
+      final AtomicInteger successes = new AtomicInteger();
+      final AtomicBoolean failed = new AtomicBoolean(false);
+      Thread[] workers = new Thread[threads];
+      for (int t=0;t<threads;t++)
+      {
+        final int me = t;
+        workers[t] = new Thread() {
+          public void run() {
+            for (int k=0;k<follows;k++)
+            {
+              if (k % threads != me && (k + 1) % threads != me)
+              {
+                continue;
+              }
+              if (followerStore.addFollower(from[k], to[k], new Date(k)))
+              {
+                successes.incrementAndGet();
+              }
+              if (k % 200 == me)
+              {
+                for (int id : followerStore.getFollowers(0))
+                {
+                  if (!followerStore.isAFollower(id, 0))
+                  {
+                    failed.set(true);
+                  }
+                }
+                followerStore.getTopUsers();
+              }
+            }
+          }
+        };
+        workers[t].start();
+      }
+      for (Thread worker : workers)
+      {
+        try
+        {
+          worker.join();
+        }
+        catch (InterruptedException e)
+        {
+          return false;
+        }
+      }
+      if (failed.get() || successes.get() != follows)
+      {
+        return false;
+      }
+      for (int u=0;u<users;u++)
+      {
+        if (!Arrays.equals(followerStore.getFollowers(u), expected.getFollowers(u))
+          || !Arrays.equals(followerStore.getFollows(u), expected.getFollows(u))
+          || !Arrays.equals(followerStore.getMutualFollowers(u, 0), expected.getMutualFollowers(u, 0)))
+        {
+          return false;
+        }
+      }
+      int[] top = followerStore.getTopUsers();
+      for (int t=1;t<top.length;t++)
+      {
+        if (followerStore.getNumFollowers(top[t]) > followerStore.getNumFollowers(top[t-1]))
+        {
+          return false;
+        }
+      }
+      return top.length == expected.getTopUsers().length;
+    }
+
+    // the result must hold every user who follows (or is followed by) both, latest first
+    private boolean mutualMatches(int[] result, long[][] followed, int a, int b, boolean followers)
+    {
+      int expected = 0;
+      for (int u=0;u<followed.length;u++)
+      {
+        long ta = followers ? followed[u][a] : followed[a][u];
+        long tb = followers ? followed[u][b] : followed[b][u];
+        if (ta != 0 && tb != 0)
+        {
+          expected++;
+        }
+      }
+      if (expected == 0)
+      {
+        return result == null || result.length == 0;
+      }
+      if (result.length != expected)
+      {
+        return false;
+      }
+      long last = Long.MAX_VALUE;
+      for (int u : result)
+      {
+        long ta = followers ? followed[u][a] : followed[a][u];
+        long tb = followers ? followed[u][b] : followed[b][u];
+        if (ta == 0 || tb == 0 || Math.max(ta, tb) > last)
+        {
+          return false;
+        }
+        last = Math.max(ta, tb);
+      }
+      return true;
+    }
     /*
      * Returns a Date based on the input string
      * @param inputString Takes a string of form dd/MM/yy hour:minute. Example: 01/03/12 18:00
@@ -0,0 +1,80 @@
+import java.util.Date;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.HashtagScanner;
+import uk.ac.warwick.java.cs126.services.TrendCounter;
+
+class HashtagScannerTests {
+
+    /*
+     * Tests that the scanner finds the same hashtags as splitting the message on any
+     * whitespace, including at the very start and end of the message, and none in the
+     * middle of a word
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testMatchesSplit()
+    {
+        Random random = new Random(126);
+        String pieces = "#aB \t\n#x#";
+        for (int m = 0; m < 2000; m++)
+        {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(30);
+            for (int i = 0; i < length; i++)
+            {
+                sb.append(pieces.charAt(random.nextInt(pieces.length())));
+            }
+            String message = sb.toString();
+            int start = HashtagScanner.next(message, 0);
+            for (String word : message.split("\\s+"))
+            {
+                if (!word.startsWith("#"))
+                {
+                    continue;
+                }
+                if (start >= message.length())
+                {
+                    return false;
+                }
+                int end = HashtagScanner.end(message, start);
+                if (!message.substring(start, end).equals(word))
+                {
+                    return false;
+                }
+                start = HashtagScanner.next(message, end);
+            }
+            if (start != message.length())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that a trend counted from the range of a message is counted in lowercase, the
+     * same as the lowercased string, and that every use shares the string made the first
+     * time
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCountsRange()
+    {
+        TrendCounter counter = new TrendCounter();
+        String first = "go #WARWICK\tgo";
+        String second = "#warwick";
+        counter.insert(first, 3, 11, new Date(0));
+        String trend = counter.top()[0];
+        counter.insert(second, 0, 8, new Date(0));
+        counter.insert("#Other", new Date(0));
+        if (trend.equals("#warwick") && counter.top()[0] == trend && counter.count("#warwick") == 2
+            && counter.count("#WARWICK") == 0 && counter.size() == 2
+            && HashtagScanner.hash(first, 3, 11) == "#warwick".hashCode())
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+}
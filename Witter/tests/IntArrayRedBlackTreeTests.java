@@ -0,0 +1,173 @@
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.IntArrayRedBlackTree;
+
+class IntArrayRedBlackTreeTests {
+
+    /*
+     * Tests that every inserted id can be found again, and that missing ids can't, across
+     * several doublings of the arrays
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInsertGet()
+    {
+        IntArrayRedBlackTree<String> tree = new IntArrayRedBlackTree<String>(1);
+        Random random = new Random(126);
+        int[] keys = new int[1000];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = random.nextInt(1000000) * 2; // even, so odd keys are always missing
+            tree.insert(keys[i], "v" + keys[i]);
+        }
+        for (int k : keys)
+        {
+            if (!("v" + k).equals(tree.get(k)) || tree.get(k + 1) != null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that an id can only be inserted once
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInsertDuplicateFail()
+    {
+        IntArrayRedBlackTree<String> tree = new IntArrayRedBlackTree<String>();
+        boolean first = tree.insert(1, "first");
+        boolean second = tree.insert(1, "second");
+        if (first && !second && tree.size() == 1 && tree.get(1).equals("first"))
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    /*
+     * Tests that the red-black properties hold after random and in order inserts, and that
+     * fillDescending returns every value from the largest id to the smallest
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInvariants()
+    {
+        IntArrayRedBlackTree<Integer> random = new IntArrayRedBlackTree<Integer>();
+        IntArrayRedBlackTree<Integer> ascending = new IntArrayRedBlackTree<Integer>();
+        Random r = new Random(126);
+        for (int i = 0; i < 20000; i++)
+        {
+            int k = r.nextInt(50000);
+            random.insert(k, k);
+            ascending.insert(i, i);
+        }
+        if (!isValid(random) || !isValid(ascending))
+        {
+            return false;
+        }
+        Integer[] values = new Integer[ascending.size()];
+        ascending.fillDescending(values);
+        for (int j = 0; j < values.length; j++)
+        {
+            if (values[j] != 19999 - j)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that an index built from sorted ids is a valid red-black tree, for every size
+     * up to 300, that every id can be found in it, and that more can be inserted after
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testBuildFromSorted()
+    {
+        for (int n = 0; n <= 300; n++)
+        {
+            int[] keys = new int[n];
+            Integer[] values = new Integer[n];
+            for (int i = 0; i < n; i++)
+            {
+                keys[i] = i * 2;
+                values[i] = i * 2;
+            }
+            IntArrayRedBlackTree<Integer> tree = new IntArrayRedBlackTree<Integer>();
+            tree.buildFromSorted(keys, values, n);
+            if (tree.size() != n || !isValid(tree))
+            {
+                return false;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                if (tree.get(i * 2) != i * 2 || tree.get(i * 2 + 1) != null)
+                {
+                    return false;
+                }
+            }
+            if (!tree.insert(-1, -1) || (n > 0 && tree.insert(0, 0)) || !isValid(tree))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Checks every property a red-black tree must have (see RedBlackTreeTests.isValid)
+     */
+    private <V> boolean isValid(IntArrayRedBlackTree<V> tree)
+    {
+        int root = tree.getRoot();
+        if (root == IntArrayRedBlackTree.NIL)
+        {
+            return tree.size() == 0;
+        }
+        if (tree.isRed(root) || tree.getParent(root) != IntArrayRedBlackTree.NIL)
+        {
+            return false;
+        }
+        return blackHeight(tree, root) != -1 && count(tree, root) == tree.size();
+    }
+
+    // returns the black height of the subtree, or -1 if a property doesn't hold in it
+    private <V> int blackHeight(IntArrayRedBlackTree<V> tree, int n)
+    {
+        if (n == IntArrayRedBlackTree.NIL)
+        {
+            return 1;
+        }
+        int l = tree.getLeft(n), r = tree.getRight(n);
+        if (l != IntArrayRedBlackTree.NIL && (tree.getParent(l) != n || tree.getKey(l) >= tree.getKey(n)))
+        {
+            return -1;
+        }
+        if (r != IntArrayRedBlackTree.NIL && (tree.getParent(r) != n || tree.getKey(r) <= tree.getKey(n)))
+        {
+            return -1;
+        }
+        if (tree.isRed(n) && ((l != IntArrayRedBlackTree.NIL && tree.isRed(l)) || (r != IntArrayRedBlackTree.NIL && tree.isRed(r))))
+        {
+            return -1;
+        }
+        int left = blackHeight(tree, l), right = blackHeight(tree, r);
+        if (left == -1 || left != right)
+        {
+            return -1;
+        }
+        return left + (tree.isRed(n) ? 0 : 1);
+    }
+
+    private <V> int count(IntArrayRedBlackTree<V> tree, int n)
+    {
+        if (n == IntArrayRedBlackTree.NIL)
+        {
+            return 0;
+        }
+        return 1 + count(tree, tree.getLeft(n)) + count(tree, tree.getRight(n));
+    }
+}
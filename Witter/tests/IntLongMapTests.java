@@ -0,0 +1,43 @@
+import java.util.HashMap;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.IntLongMap;
+
+class IntLongMapTests {
+
+    /*
+     * Tests that the map holds the same entries as a HashMap, for random keys that include
+     * 0 and the key that marks empty slots, while it grows
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testMatchesHashMap()
+    {
+        IntLongMap map = new IntLongMap(0);
+        HashMap<Integer,Long> expected = new HashMap<Integer,Long>();
+        Random random = new Random(126);
+        for (int i = 0; i < 20000; i++)
+        {
+            int key;
+            if (i == 500) {key = Integer.MIN_VALUE;}
+            else if (i == 700) {key = 0;}
+            else {key = random.nextInt(30000) - 15000;}
+            long value = random.nextLong();
+            boolean added = !expected.containsKey(key);
+            if (added) {expected.put(key, value);}
+            if (map.put(key, value) != added || map.size() != expected.size())
+            {
+                return false;
+            }
+        }
+        for (int key = -16000; key < 16000; key++)
+        {
+            Long value = expected.get(key);
+            if (map.containsKey(key) != (value != null) || map.get(key, -1) != (value == null ? -1 : value))
+            {
+                return false;
+            }
+        }
+        return map.containsKey(Integer.MIN_VALUE) && map.get(Integer.MIN_VALUE, -1) == expected.get(Integer.MIN_VALUE)
+            && !map.containsKey(Integer.MAX_VALUE) && map.get(Integer.MAX_VALUE, 7) == 7;
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.IntRedBlackTree;
+
+class IntRedBlackTreeTests {
+
+    /*
+     * Tests that every inserted id can be found again, and that missing ids can't
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInsertGet()
+    {
+        IntRedBlackTree<String> tree = new IntRedBlackTree<String>();
+        Random random = new Random(126);
+        int[] keys = new int[1000];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = random.nextInt(1000000) * 2 - 1000000; // even, so odd keys are always missing
+            tree.insert(keys[i], "v" + keys[i]);
+        }
+        for (int k : keys)
+        {
+            if (!("v" + k).equals(tree.get(k)))
+            {
+                return false;
+            }
+            if (tree.get(k + 1) != null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that an id can only be inserted once
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInsertDuplicateFail()
+    {
+        IntRedBlackTree<String> tree = new IntRedBlackTree<String>();
+        boolean first = tree.insert(1, "first");
+        boolean second = tree.insert(1, "second");
+        if (first && !second && tree.size() == 1 && tree.get(1).equals("first"))
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    /*
+     * Tests that the red-black properties hold after random and in order inserts, and that
+     * a descending walk returns every id from the largest to the smallest
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInvariants()
+    {
+        IntRedBlackTree<Integer> random = new IntRedBlackTree<Integer>();
+        IntRedBlackTree<Integer> ascending = new IntRedBlackTree<Integer>();
+        Random r = new Random(126);
+        for (int i = 0; i < 20000; i++)
+        {
+            int k = r.nextInt(50000);
+            random.insert(k, k);
+            ascending.insert(i, i);
+        }
+        if (!isValid(random) || !isValid(ascending))
+        {
+            return false;
+        }
+        int expected = 19999;
+        for (IntRedBlackTree.Node<Integer> n = ascending.last(); n != null; n = ascending.predecessor(n))
+        {
+            if (n.getKey() != expected--)
+            {
+                return false;
+            }
+        }
+        return expected == -1;
+    }
+
+    /*
+     * Tests that an index built from sorted ids is a valid red-black tree, for every size
+     * up to 300, that every id can be found in it, and that more can be inserted after
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testBuildFromSorted()
+    {
+        for (int n = 0; n <= 300; n++)
+        {
+            int[] keys = new int[n];
+            Integer[] values = new Integer[n];
+            for (int i = 0; i < n; i++)
+            {
+                keys[i] = i * 2;
+                values[i] = i * 2;
+            }
+            IntRedBlackTree<Integer> tree = new IntRedBlackTree<Integer>();
+            tree.buildFromSorted(keys, values, n);
+            if (tree.size() != n || !isValid(tree))
+            {
+                return false;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                if (tree.get(i * 2) != i * 2 || tree.get(i * 2 + 1) != null)
+                {
+                    return false;
+                }
+            }
+            if (!tree.insert(-1, -1) || (n > 0 && tree.insert(0, 0)) || !isValid(tree))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Checks every property a red-black tree must have (see RedBlackTreeTests.isValid)
+     */
+    private <V> boolean isValid(IntRedBlackTree<V> tree)
+    {
+        IntRedBlackTree.Node<V> root = tree.getRoot();
+        if (root == null)
+        {
+            return tree.size() == 0;
+        }
+        if (root.isRed() || root.getParent() != null)
+        {
+            return false;
+        }
+        return blackHeight(root) != -1 && count(root) == tree.size();
+    }
+
+    // returns the black height of the subtree, or -1 if a property doesn't hold in it
+    private <V> int blackHeight(IntRedBlackTree.Node<V> n)
+    {
+        if (n == null)
+        {
+            return 1;
+        }
+        IntRedBlackTree.Node<V> l = n.getLeft(), r = n.getRight();
+        if (l != null && (l.getParent() != n || l.getKey() >= n.getKey()))
+        {
+            return -1;
+        }
+        if (r != null && (r.getParent() != n || r.getKey() <= n.getKey()))
+        {
+            return -1;
+        }
+        if (n.isRed() && ((l != null && l.isRed()) || (r != null && r.isRed())))
+        {
+            return -1;
+        }
+        int left = blackHeight(l), right = blackHeight(r);
+        if (left == -1 || left != right)
+        {
+            return -1;
+        }
+        return left + (n.isRed() ? 0 : 1);
+    }
+
+    private <V> int count(IntRedBlackTree.Node<V> n)
+    {
+        return (n == null) ? 0 : 1 + count(n.getLeft()) + count(n.getRight());
+    }
+}
@@ -0,0 +1,269 @@
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.RedBlackTree;
+
+class RedBlackTreeTests {
+
+    /*
+     * Tests that every inserted key can be found again, and that missing keys can't
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInsertGet()
+    {
+        RedBlackTree<Integer,String> tree = new RedBlackTree<Integer,String>();
+        Random random = new Random(126);
+        int[] keys = new int[1000];
+        for (int i = 0; i < keys.length; i++)
+        {
+            keys[i] = random.nextInt(1000000) * 2; // even, so odd keys are always missing
+            tree.insert(keys[i], "v" + keys[i]);
+        }
+        for (int k : keys)
+        {
+            if (!("v" + k).equals(tree.get(k)))
+            {
+                return false;
+            }
+            if (tree.get(k + 1) != null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that a key can only be inserted once with insert
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInsertDuplicateFail()
+    {
+        RedBlackTree<Integer,String> tree = new RedBlackTree<Integer,String>();
+        boolean first = tree.insert(1, "first");
+        boolean second = tree.insert(1, "second");
+        if (first && !second && tree.size() == 1 && tree.get(1).equals("first"))
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    /*
+     * Tests that the red-black properties hold after many random inserts
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInvariantsRandom()
+    {
+        RedBlackTree<Integer,Integer> tree = new RedBlackTree<Integer,Integer>();
+        Random random = new Random(126);
+        for (int i = 0; i < 20000; i++)
+        {
+            int k = random.nextInt(50000);
+            tree.insert(k, k);
+            if (i % 1000 == 0 && !isValid(tree))
+            {
+                return false;
+            }
+        }
+        return isValid(tree);
+    }
+
+    /*
+     * Tests that the red-black properties hold when keys arrive in order, which is the
+     * worst case for a tree that doesn't balance itself
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInvariantsSequential()
+    {
+        RedBlackTree<Integer,Integer> ascending = new RedBlackTree<Integer,Integer>();
+        RedBlackTree<Integer,Integer> descending = new RedBlackTree<Integer,Integer>();
+        for (int i = 0; i < 20000; i++)
+        {
+            ascending.insert(i, i);
+            descending.insert(-i, i);
+        }
+        return isValid(ascending) && isValid(descending)
+            && height(ascending.getRoot()) <= 2 * log2(20001)
+            && height(descending.getRoot()) <= 2 * log2(20001);
+    }
+
+    /*
+     * Tests that repeated keys are all kept, and come out newest first when descending
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testInsertMultiOrder()
+    {
+        RedBlackTree<Integer,String> tree = new RedBlackTree<Integer,String>();
+        for (int i = 0; i < 300; i++)
+        {
+            tree.insertMulti(i % 3, "" + i);
+        }
+        if (tree.size() != 300 || !isValid(tree))
+        {
+            return false;
+        }
+        String[] result = new String[tree.size()];
+        if (tree.fillDescending(result) != 300)
+        {
+            return false;
+        }
+        // first the key 2 (299, 296, ...), then the key 1, then the key 0
+        for (int j = 0; j < 300; j++)
+        {
+            int key = 2 - j / 100;
+            int expected = key + 3 * (99 - j % 100);
+            if (!result[j].equals("" + expected))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that an empty tree behaves
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testEmpty()
+    {
+        RedBlackTree<Integer,String> tree = new RedBlackTree<Integer,String>();
+        String[] result = new String[0];
+        if (tree.size() == 0 && tree.get(1) == null && tree.last() == null
+            && tree.fillDescending(result) == 0 && isValid(tree))
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    /*
+     * Tests that floor returns the last node with a key that isn't greater than the one
+     * given, and the last inserted of them if that key is repeated
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testFloor()
+    {
+        RedBlackTree<Integer,String> tree = new RedBlackTree<Integer,String>();
+        for (int i = 0; i < 300; i++)
+        {
+            tree.insertMulti((i % 100) * 2, "" + i); // even keys, three of each
+        }
+        for (int k = 0; k < 200; k++)
+        {
+            int key = (k % 2 == 0) ? k : k - 1;
+            RedBlackTree.Node<Integer,String> n = tree.floor(k);
+            if (n == null || n.getKey() != key || !n.getValue().equals("" + (200 + key / 2)))
+            {
+                return false;
+            }
+        }
+        return tree.floor(-1) == null && tree.floor(1000).getKey() == 198;
+    }
+
+    /*
+     * Tests that a tree built from sorted keys is a valid red-black tree of the least
+     * height there can be, for every size up to 300, and that repeated keys come out as if
+     * they had been inserted with insertMulti in the order given
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testBuildFromSorted()
+    {
+        for (int n = 0; n <= 300; n++)
+        {
+            Integer[] keys = new Integer[n];
+            String[] values = new String[n];
+            for (int i = 0; i < n; i++)
+            {
+                keys[i] = i / 3;
+                values[i] = "" + i;
+            }
+            RedBlackTree<Integer,String> tree = new RedBlackTree<Integer,String>();
+            RedBlackTree.Node<Integer,String>[] nodes = tree.buildFromSorted(keys, values, n);
+            if (tree.size() != n || !isValid(tree) || height(tree.getRoot()) != log2(n))
+            {
+                return false;
+            }
+            String[] result = new String[n];
+            tree.fillDescending(result);
+            for (int j = 0; j < n; j++)
+            {
+                if (!result[j].equals("" + (n - 1 - j)) || nodes[j].getValue() != values[j])
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Checks every property a red-black tree must have:
+     * • the root is black
+     * • a red node never has a red child
+     * • every path from a node down to a null leaf has the same amount of black nodes
+     * • keys are in order, and every child points back at its parent
+     * • the size of the tree is the amount of nodes in it
+     */
+    private <K extends Comparable<K>,V> boolean isValid(RedBlackTree<K,V> tree)
+    {
+        RedBlackTree.Node<K,V> root = tree.getRoot();
+        if (root == null)
+        {
+            return tree.size() == 0;
+        }
+        if (root.isRed() || root.getParent() != null)
+        {
+            return false;
+        }
+        return blackHeight(root) != -1 && count(root) == tree.size();
+    }
+
+    // returns the black height of the subtree, or -1 if a property doesn't hold in it
+    private <K extends Comparable<K>,V> int blackHeight(RedBlackTree.Node<K,V> n)
+    {
+        if (n == null)
+        {
+            return 1;
+        }
+        RedBlackTree.Node<K,V> l = n.getLeft(), r = n.getRight();
+        if (l != null && (l.getParent() != n || l.getKey().compareTo(n.getKey()) > 0))
+        {
+            return -1;
+        }
+        if (r != null && (r.getParent() != n || r.getKey().compareTo(n.getKey()) < 0))
+        {
+            return -1;
+        }
+        if (n.isRed() && ((l != null && l.isRed()) || (r != null && r.isRed())))
+        {
+            return -1;
+        }
+        int left = blackHeight(l), right = blackHeight(r);
+        if (left == -1 || left != right)
+        {
+            return -1;
+        }
+        return left + (n.isRed() ? 0 : 1);
+    }
+
+    private <K extends Comparable<K>,V> int count(RedBlackTree.Node<K,V> n)
+    {
+        return (n == null) ? 0 : 1 + count(n.getLeft()) + count(n.getRight());
+    }
+
+    private <K extends Comparable<K>,V> int height(RedBlackTree.Node<K,V> n)
+    {
+        return (n == null) ? 0 : 1 + Math.max(height(n.getLeft()), height(n.getRight()));
+    }
+
+    private int log2(int n)
+    {
+        return 32 - Integer.numberOfLeadingZeros(n);
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.Date;
+
+import uk.ac.warwick.java.cs126.services.FollowerStore;
+import uk.ac.warwick.java.cs126.services.IntSlice;
+import uk.ac.warwick.java.cs126.services.Slice;
+import uk.ac.warwick.java.cs126.services.UserStore;
+import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+class SliceTests {
+
+    /*
+     * Tests that changing the arrays getUsers and getUsersJoinedBefore return doesn't change
+     * what the store returns next, that the views hold the same users, and that a view
+     * stays the same after more users are added
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testUserViews()
+    {
+        UserStore userStore = new UserStore();
+        for (int i = 1; i <= 100; i++)
+        {
+            userStore.addUser(new User("User " + i, i, new Date(1000L * ((i * 37) % 100))));
+        }
+        User[] copy = userStore.getUsers();
+        Slice<User> view = userStore.getUsersView();
+        User first = copy[0];
+        copy[0] = null;
+        User[] all = userStore.getUsersJoinedBefore(new Date(1000000));
+        all[1] = null;
+        if (userStore.getUsers()[0] != first || userStore.getUsersJoinedBefore(new Date(1000000))[1] == null
+            || view.size() != 100 || view.get(0) != first)
+        {
+            return false;
+        }
+        Date date = new Date(50000);
+        User[] before = userStore.getUsersJoinedBefore(date);
+        Slice<User> beforeView = userStore.getUsersJoinedBeforeView(date);
+        int i = 0;
+        for (User u : beforeView)
+        {
+            if (i >= before.length || before[i++] != u)
+            {
+                return false;
+            }
+        }
+        userStore.addUser(new User("Newest", 101, new Date(200000)));
+        if (i != before.length || view.size() != 100 || view.get(0) != first
+            || userStore.getUsersView().size() != 101 || userStore.getUsersView().get(0).getId() != 101
+            || beforeView.slice(1, 3).get(0) != before[1] || beforeView.slice(1, 3).size() != 2)
+        {
+            return false;
+        }
+        try
+        {
+            view.get(100);
+            return false;
+        }
+        catch (IndexOutOfBoundsException e)
+        {
+            // expected
+        }
+        return true;
+    }
+
+    /*
+     * Tests the same for the weets of the store and of a user, and for the followers and
+     * top users of a FollowerStore
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testWeetAndFollowerViews()
+    {
+        WeetStore weetStore = new WeetStore();
+        User user = new User("Rhi", 1, new Date(0));
+        for (int i = 1; i <= 50; i++)
+        {
+            weetStore.addWeet(new Weet(i, 1 + i % 2, "weet " + i, new Date(1000L * i)));
+        }
+        Slice<Weet> weets = weetStore.getWeetsView();
+        Slice<Weet> byUser = weetStore.getWeetsByUserView(user);
+        Weet[] copy = weetStore.getWeetsByUser(user);
+        copy[0] = null;
+        Slice<Weet> before = weetStore.getWeetsBeforeView(new Date(20000));
+        weetStore.addWeet(new Weet(51, 1, "weet 51", new Date(51000)));
+        if (weets.size() != 50 || weets.get(0).getId() != 50 || byUser.size() != 25
+            || byUser.get(0) != weetStore.getWeetsByUser(user)[1] || before.size() != 20
+            || before.get(0).getId() != 20 || weetStore.getWeetsView().size() != 51)
+        {
+            return false;
+        }
+        FollowerStore followerStore = new FollowerStore();
+        for (int i = 2; i <= 20; i++)
+        {
+            followerStore.addFollower(i, 1, new Date(1000L * i));
+            followerStore.addFollower(1, i, new Date(1000L * i));
+        }
+        IntSlice followers = followerStore.getFollowersView(1);
+        IntSlice top = followerStore.getTopUsersView();
+        int[] ids = followerStore.getFollowers(1);
+        ids[0] = -1;
+        int[] topIds = followerStore.getTopUsers();
+        topIds[0] = -1;
+        followerStore.addFollower(21, 1, new Date(21000));
+        return followers.size() == 19 && followers.get(0) == 20 && followerStore.getFollowers(1)[1] == 20
+            && followerStore.getFollowsView(1).size() == 19 && top.get(0) == 1 && top.size() == 20
+            && followerStore.getTopUsers()[0] == 1 && followerStore.getTopUsersView().size() == 21
+            && followers.slice(2, 5).toArray().length == 3;
+    }
+}
@@ -184,6 +184,86 @@ public class TestRunner
         else {
             System.out.println("...fail.");
         }
+        System.out.print("--> testAddGetWeetArrays : \t");
+        boolean testAddGetWeetArrays = e.testAddGetWeetArrays();
+        if (testAddGetWeetArrays == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetWeetsOnDays : \t");
+        boolean testGetWeetsOnDays = e.testGetWeetsOnDays();
+        if (testGetWeetsOnDays == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testConcurrentAddWeet : \t");
+        boolean testConcurrentAddWeet = e.testConcurrentAddWeet();
+        if (testConcurrentAddWeet == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testConcurrentStripes : \t");
+        boolean testConcurrentStripes = e.testConcurrentStripes();
+        if (testConcurrentStripes == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetWeetsPage : \t\t");
+        boolean testGetWeetsPage = e.testGetWeetsPage();
+        if (testGetWeetsPage == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetWeetsPageBeforeByUser :");
+        boolean testGetWeetsPageBeforeByUser = e.testGetWeetsPageBeforeByUser();
+        if (testGetWeetsPageBeforeByUser == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetWeetsByUserOrder : \t");
+        boolean testGetWeetsByUserOrder = e.testGetWeetsByUserOrder();
+        if (testGetWeetsByUserOrder == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetTrendingWindow : \t");
+        boolean testGetTrendingWindow = e.testGetTrendingWindow();
+        if (testGetTrendingWindow == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetTrendingWindowReplay : ");
+        boolean testGetTrendingWindowReplay = e.testGetTrendingWindowReplay();
+        if (testGetTrendingWindowReplay == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetTrendingSketch : \t");
+        boolean testGetTrendingSketch = e.testGetTrendingSketch();
+        if (testGetTrendingSketch == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
 
 
         UserTests f = new UserTests();
@@ -314,6 +394,22 @@ public class TestRunner
         else {
             System.out.println("...fail.");
         }
+        System.out.print("--> testAddUserRetrieveArrays : ");
+        boolean testAddUserRetrieveArrays = f.testAddUserRetrieveArrays();
+        if (testAddUserRetrieveArrays == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testConcurrentAddGetUser : \t");
+        boolean testConcurrentAddGetUser = f.testConcurrentAddGetUser();
+        if (testConcurrentAddGetUser == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
 
         
         System.out.println();
@@ -439,14 +535,14 @@ public class TestRunner
         // else {
         //     System.out.println("...fail.");
         // }
-        // System.out.print("--> testGetTopUsers : \t\t");
-        // boolean testGetTopUsers = g.testGetTopUsers();
-        // if (testGetTopUsers == true) {
-        //     System.out.println("...success");
-        // }
-        // else {
-        //     System.out.println("...fail.");
-        // }
+        System.out.print("--> testGetTopUsers : \t\t");
+        boolean testGetTopUsers = g.testGetTopUsers();
+        if (testGetTopUsers == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
         System.out.print("--> testGetTopUsersFail : \t");
         boolean testGetTopUsersFail = g.testGetTopUsersFail();
         if (testGetTopUsersFail == true) {
@@ -455,7 +551,436 @@ public class TestRunner
         else {
             System.out.println("...fail.");
         }
+        System.out.print("--> testGetFollowersArrays : \t");
+        boolean testGetFollowersArrays = g.testGetFollowersArrays();
+        if (testGetFollowersArrays == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetFollowersGrowTrim : \t");
+        boolean testGetFollowersGrowTrim = g.testGetFollowersGrowTrim();
+        if (testGetFollowersGrowTrim == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testIsAFollowerMany : \t");
+        boolean testIsAFollowerMany = g.testIsAFollowerMany();
+        if (testIsAFollowerMany == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetMutualMany : \t\t");
+        boolean testGetMutualMany = g.testGetMutualMany();
+        if (testGetMutualMany == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testGetTopUsersFresh : \t");
+        boolean testGetTopUsersFresh = g.testGetTopUsersFresh();
+        if (testGetTopUsersFresh == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testConcurrentAddFollower : \t");
+        boolean testConcurrentAddFollower = g.testConcurrentAddFollower();
+        if (testConcurrentAddFollower == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
 
+
+        System.out.println();
+        System.out.println("[Testing RedBlackTree]");
+        RedBlackTreeTests t = new RedBlackTreeTests();
+        System.out.print("--> testInsertGet : \t\t");
+        boolean testInsertGet = t.testInsertGet();
+        if (testInsertGet == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testInsertDuplicateFail : \t");
+        boolean testInsertDuplicateFail = t.testInsertDuplicateFail();
+        if (testInsertDuplicateFail == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testInvariantsRandom : \t");
+        boolean testInvariantsRandom = t.testInvariantsRandom();
+        if (testInvariantsRandom == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testInvariantsSequential :\t");
+        boolean testInvariantsSequential = t.testInvariantsSequential();
+        if (testInvariantsSequential == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testInsertMultiOrder : \t");
+        boolean testInsertMultiOrder = t.testInsertMultiOrder();
+        if (testInsertMultiOrder == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testEmpty : \t\t");
+        boolean testEmpty = t.testEmpty();
+        if (testEmpty == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testFloor : \t\t");
+        boolean testFloor = t.testFloor();
+        if (testFloor == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testBuildFromSorted : \t");
+        boolean testBuildFromSorted = t.testBuildFromSorted();
+        if (testBuildFromSorted == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing IntRedBlackTree]");
+        IntRedBlackTreeTests it = new IntRedBlackTreeTests();
+        System.out.print("--> testInsertGet : \t\t");
+        boolean intTestInsertGet = it.testInsertGet();
+        if (intTestInsertGet == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testInsertDuplicateFail : \t");
+        boolean intTestInsertDuplicateFail = it.testInsertDuplicateFail();
+        if (intTestInsertDuplicateFail == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testInvariants : \t\t");
+        boolean intTestInvariants = it.testInvariants();
+        if (intTestInvariants == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testBuildFromSorted : \t");
+        boolean intTestBuildFromSorted = it.testBuildFromSorted();
+        if (intTestBuildFromSorted == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing IntArrayRedBlackTree]");
+        IntArrayRedBlackTreeTests at = new IntArrayRedBlackTreeTests();
+        System.out.print("--> testInsertGet : \t\t");
+        boolean arrayTestInsertGet = at.testInsertGet();
+        if (arrayTestInsertGet == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testInsertDuplicateFail : \t");
+        boolean arrayTestInsertDuplicateFail = at.testInsertDuplicateFail();
+        if (arrayTestInsertDuplicateFail == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testInvariants : \t\t");
+        boolean arrayTestInvariants = at.testInvariants();
+        if (arrayTestInvariants == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testBuildFromSorted : \t");
+        boolean arrayTestBuildFromSorted = at.testBuildFromSorted();
+        if (arrayTestBuildFromSorted == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing DateOrderedList]");
+        DateOrderedListTests dt = new DateOrderedListTests();
+        System.out.print("--> testInOrder : \t\t\t");
+        boolean listTestInOrder = dt.testInOrder();
+        if (listTestInOrder == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testOutOfOrder : \t\t");
+        boolean listTestOutOfOrder = dt.testOutOfOrder();
+        if (listTestOutOfOrder == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testCached : \t\t\t");
+        boolean listTestCached = dt.testCached();
+        if (listTestCached == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testMerged : \t\t\t");
+        boolean listTestMerged = dt.testMerged();
+        if (listTestMerged == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testNotAfter : \t\t\t");
+        boolean listTestNotAfter = dt.testNotAfter();
+        if (listTestNotAfter == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing TrigramIndex]");
+        TrigramIndexTests gt = new TrigramIndexTests();
+        System.out.print("--> testSearchMatchesScan : \t");
+        boolean indexTestSearchMatchesScan = gt.testSearchMatchesScan();
+        if (indexTestSearchMatchesScan == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testSearchNothing : \t\t");
+        boolean indexTestSearchNothing = gt.testSearchNothing();
+        if (indexTestSearchNothing == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing Slice]");
+        SliceTests sl = new SliceTests();
+        System.out.print("--> testUserViews : \t\t");
+        boolean testUserViews = sl.testUserViews();
+        if (testUserViews == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testWeetAndFollowerViews : \t");
+        boolean testWeetAndFollowerViews = sl.testWeetAndFollowerViews();
+        if (testWeetAndFollowerViews == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing BulkLoad]");
+        BulkLoadTests bl = new BulkLoadTests();
+        System.out.print("--> testAddUsers : \t\t");
+        boolean testAddUsers = bl.testAddUsers();
+        if (testAddUsers == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testAddWeets : \t\t");
+        boolean testAddWeets = bl.testAddWeets();
+        if (testAddWeets == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testAddWeetsTrendTies : \t");
+        boolean testAddWeetsTrendTies = bl.testAddWeetsTrendTies();
+        if (testAddWeetsTrendTies == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testAddFollowers : \t");
+        boolean testAddFollowers = bl.testAddFollowers();
+        if (testAddFollowers == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testCsvLoader : \t\t");
+        boolean testCsvLoader = bl.testCsvLoader();
+        if (testCsvLoader == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testCsvLoaderEscapedQuotes : ");
+        boolean testCsvLoaderEscapedQuotes = bl.testCsvLoaderEscapedQuotes();
+        if (testCsvLoaderEscapedQuotes == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing TrendCounter]");
+        TrendCounterTests ct = new TrendCounterTests();
+        System.out.print("--> testTopMatchesCounts : \t");
+        boolean counterTestTopMatchesCounts = ct.testTopMatchesCounts();
+        if (counterTestTopMatchesCounts == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testFewerThanTen : \t\t");
+        boolean counterTestFewerThanTen = ct.testFewerThanTen();
+        if (counterTestFewerThanTen == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.print("--> testWindowMatchesCounts : \t");
+        boolean counterTestWindow = ct.testWindowMatchesCounts();
+        if (counterTestWindow == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing TrendSketch]");
+        TrendSketchTests st = new TrendSketchTests();
+        System.out.print("--> testWithinBounds : \t\t");
+        boolean sketchTestWithinBounds = st.testWithinBounds();
+        if (sketchTestWithinBounds == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testTopAmongSpam : \t\t");
+        boolean sketchTestTopAmongSpam = st.testTopAmongSpam();
+        if (sketchTestTopAmongSpam == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testManyTrends : \t\t");
+        boolean sketchTestManyTrends = st.testManyTrends();
+        if (sketchTestManyTrends == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testCollidingTrends : \t");
+        boolean sketchTestCollidingTrends = st.testCollidingTrends();
+        if (sketchTestCollidingTrends == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testFewerThanTen : \t\t");
+        boolean sketchTestFewerThanTen = st.testFewerThanTen();
+        if (sketchTestFewerThanTen == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing HashtagScanner]");
+        HashtagScannerTests ht = new HashtagScannerTests();
+        System.out.print("--> testMatchesSplit : \t\t");
+        boolean scannerTestMatchesSplit = ht.testMatchesSplit();
+        if (scannerTestMatchesSplit == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+        System.out.print("--> testCountsRange : \t\t");
+        boolean scannerTestCountsRange = ht.testCountsRange();
+        if (scannerTestCountsRange == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
+
+        System.out.println();
+        System.out.println("[Testing IntLongMap]");
+        IntLongMapTests lt = new IntLongMapTests();
+        System.out.print("--> testMatchesHashMap : \t");
+        boolean mapTestMatchesHashMap = lt.testMatchesHashMap();
+        if (mapTestMatchesHashMap == true) {
+            System.out.println("...success");
+        }
+        else {
+            System.out.println("...fail.");
+        }
     
     }
 
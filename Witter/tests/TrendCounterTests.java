@@ -0,0 +1,126 @@
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.TrendCounter;
+
+class TrendCounterTests {
+
+    /*
+     * Tests that the top trends are always the ones with the highest counts, most used
+     * first, while the counts go up in a random order
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testTopMatchesCounts()
+    {
+        TrendCounter counter = new TrendCounter();
+        Random random = new Random(126);
+        int[] counts = new int[500];
+        for (int i = 0; i < 20000; i++)
+        {
+            double r = random.nextDouble();
+            int t = (int) (counts.length * r * r); // skewed, so that some trends are popular
+            counts[t]++;
+            counter.insert("#" + t, new Date(i));
+            if (i % 500 == 0 && !topIsRight(counter, counts))
+            {
+                return false;
+            }
+        }
+        return topIsRight(counter, counts) && counter.count("#nothing") == 0;
+    }
+
+    /*
+     * Tests that with fewer than ten trends, the rest of the top is null
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testFewerThanTen()
+    {
+        TrendCounter counter = new TrendCounter();
+        String[] empty = counter.top();
+        counter.insert("#a", new Date(0));
+        counter.insert("#b", new Date(0));
+        counter.insert("#b", new Date(0));
+        String[] top = counter.top();
+        if (empty.length == 10 && empty[0] == null && top.length == 10
+            && top[0].equals("#b") && top[1].equals("#a") && top[2] == null)
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    /*
+     * Tests that a counter over a window only counts the uses within the last BUCKETS
+     * slices, as weets arrive roughly (but not exactly) in date order, and that it forgets
+     * the trends that are no longer used
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testWindowMatchesCounts()
+    {
+        TrendCounter counter = new TrendCounter(TrendCounter.Window.HOUR);
+        long slice = TrendCounter.Window.HOUR.getMillis() / TrendCounter.BUCKETS;
+        Random random = new Random(126);
+        int uses = 30000;
+        int[] trendOf = new int[uses];
+        long[] bucketOf = new long[uses];
+        long newest = Long.MIN_VALUE;
+        for (int i = 0; i < uses; i++)
+        {
+            double r = random.nextDouble();
+            trendOf[i] = (int) (200 * r * r);
+            long time = i * 1000L + random.nextInt(5 * 60 * 1000); // up to five minutes late
+            bucketOf[i] = Math.floorDiv(time, slice);
+            newest = Math.max(newest, bucketOf[i]);
+            counter.insert("#" + trendOf[i], new Date(time));
+            if (i % 300 != 0)
+            {
+                continue;
+            }
+            // count by hand the uses within the last BUCKETS slices
+            int[] counts = new int[200];
+            for (int j = 0; j <= i; j++)
+            {
+                if (bucketOf[j] > newest - TrendCounter.BUCKETS)
+                {
+                    counts[trendOf[j]]++;
+                }
+            }
+            if (!topIsRight(counter, counts))
+            {
+                return false;
+            }
+        }
+        // an hour later, everything has dropped out of the window
+        counter.insert("#late", new Date(uses * 1000L + 2 * TrendCounter.Window.HOUR.getMillis()));
+        return counter.size() == 1 && counter.count("#0") == 0 && counter.top()[0].equals("#late");
+    }
+
+    // the counts of the top must be the highest counts there are, in descending order
+    private boolean topIsRight(TrendCounter counter, int[] counts)
+    {
+        int[] sorted = Arrays.copyOf(counts, counts.length);
+        Arrays.sort(sorted);
+        String[] top = counter.top();
+        for (int i = 0; i < top.length; i++)
+        {
+            int expected = sorted[sorted.length - 1 - i];
+            if (expected == 0)
+            {
+                if (top[i] != null)
+                {
+                    return false;
+                }
+            }
+            else if (top[i] == null || counts[Integer.parseInt(top[i].substring(1))] != expected
+                || counter.count(top[i]) != expected)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
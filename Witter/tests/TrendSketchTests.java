@@ -0,0 +1,177 @@
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.TrendSketch;
+
+class TrendSketchTests {
+
+    /*
+     * Tests that no count is ever lower than the real one, and that hardly any are higher
+     * than epsilon times the total amount of uses over it, with many distinct trends
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testWithinBounds()
+    {
+        double epsilon = 0.001, delta = 0.01;
+        TrendSketch sketch = new TrendSketch(epsilon, delta);
+        Random random = new Random(126);
+        int[] counts = new int[20000];
+        int uses = 200000;
+        for (int i = 0; i < uses; i++)
+        {
+            double r = random.nextDouble();
+            int t = (int) (counts.length * r * r * r);
+            counts[t]++;
+            sketch.insert("#" + t);
+        }
+        int over = 0;
+        for (int t = 0; t < counts.length; t++)
+        {
+            int estimate = sketch.count("#" + t);
+            if (estimate < counts[t])
+            {
+                return false;
+            }
+            if (estimate > counts[t] + epsilon * uses)
+            {
+                over++;
+            }
+        }
+        // each count is over the bound with a probability of at most delta
+        return over <= 2 * delta * counts.length && sketch.total() == uses;
+    }
+
+    /*
+     * Tests that the top ten are found among a flood of hashtags that are used only once,
+     * and that the memory of the sketch doesn't depend on them
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testTopAmongSpam()
+    {
+        TrendSketch sketch = new TrendSketch(0.0005, 0.001);
+        int width = sketch.getWidth();
+        Random random = new Random(126);
+        int spam = 0;
+        for (int round = 0; round < 100; round++)
+        {
+            // trend t is used 10 * (20 - t) times in all
+            for (int t = 0; t < 20; t++)
+            {
+                for (int j = 0; j < 20 - t; j++)
+                {
+                    sketch.insert("#real" + t);
+                }
+            }
+            for (int j = 0; j < 2000; j++)
+            {
+                sketch.insert("#spam" + (spam++) + "x" + random.nextInt());
+            }
+        }
+        String[] top = sketch.top();
+        for (int i = 0; i < top.length; i++)
+        {
+            if (top[i] == null || !top[i].equals("#real" + i))
+            {
+                return false;
+            }
+        }
+        return sketch.getWidth() == width && sketch.count("#spam0x0") < 100;
+    }
+
+    /*
+     * Tests that the top ten are found among a few hundred distinct trends, many more than
+     * the sketch keeps track of, which keep taking each other's places
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testManyTrends()
+    {
+        String[] trends = new String[400];
+        for (int k = 0; k < trends.length; k++)
+        {
+            trends[k] = "#many" + k;
+        }
+        return topOfUsedInTurn(trends);
+    }
+
+    /*
+     * Tests that the top ten are found among trends whose hashes all land in the same part
+     * of the table of the trends kept track of, more of them than the sketch keeps
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testCollidingTrends()
+    {
+        String[] trends = new String[60];
+        int found = 0;
+        for (int n = 0; found < trends.length; n++)
+        {
+            String trend = "#tag" + n;
+            if ((mix(trend.hashCode()) & 159) >= 128)
+            {
+                trends[found++] = trend;
+            }
+        }
+        return topOfUsedInTurn(trends);
+    }
+
+    /*
+     * Tests that with fewer than ten trends, the rest of the top is null, and that error
+     * bounds outside (0, 1) are refused
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testFewerThanTen()
+    {
+        TrendSketch sketch = new TrendSketch(0.01, 0.01);
+        String[] empty = sketch.top();
+        sketch.insert("#a");
+        sketch.insert("#b");
+        sketch.insert("#b");
+        String[] top = sketch.top();
+        try
+        {
+            new TrendSketch(0, 0.5);
+            return false;
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+        if (empty.length == 10 && empty[0] == null && top.length == 10
+            && top[0].equals("#b") && top[1].equals("#a") && top[2] == null)
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    // uses trend k of the array k + 1 times, a round of them at a time, and checks that the
+    // top is the last ten of them, last first
+    private boolean topOfUsedInTurn(String[] trends)
+    {
+        TrendSketch sketch = new TrendSketch(0.001, 0.01);
+        for (int round = 0; round < trends.length; round++)
+        {
+            for (int k = round; k < trends.length; k++)
+            {
+                sketch.insert(trends[k]);
+            }
+        }
+        String[] top = sketch.top();
+        for (int i = 0; i < top.length; i++)
+        {
+            if (top[i] == null || !top[i].equals(trends[trends.length - 1 - i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the mixing TrendSketch spreads the hash codes of the trends it keeps track of with
+    private static int mix(int h)
+    {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
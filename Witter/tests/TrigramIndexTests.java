@@ -0,0 +1,94 @@
+import java.util.Date;
+import java.util.Random;
+
+import uk.ac.warwick.java.cs126.services.DateOrderedList;
+import uk.ac.warwick.java.cs126.services.TrigramIndex;
+
+class TrigramIndexTests {
+
+    /*
+     * Tests that a search returns exactly the texts that contain the query, ignoring case,
+     * for queries both shorter and longer than a trigram, whether or not the single
+     * characters and pairs of characters are indexed
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testSearchMatchesScan()
+    {
+        return searchMatchesScan(false) && searchMatchesScan(true);
+    }
+
+    // the same test, with or without the short queries being indexed
+    private boolean searchMatchesScan(boolean shortQueries)
+    {
+        TrigramIndex<String> index = new TrigramIndex<String>(new String[0], shortQueries);
+        DateOrderedList<String> all = new DateOrderedList<String>(new String[0]);
+        Random random = new Random(126);
+        String[] texts = new String[2000];
+        for (int i = 0; i < texts.length; i++)
+        {
+            texts[i] = randomText(random, 5 + random.nextInt(20));
+            Date date = new Date(random.nextInt(300)); // out of order, with repeats
+            index.add(texts[i], date, "" + i);
+            all.add(date, "" + i);
+        }
+        for (int q = 0; q < 300; q++)
+        {
+            String query = randomText(random, random.nextInt(6));
+            String[] result = index.search(query);
+            // the texts that match, in the order getWeets would give them
+            int k = 0;
+            for (String id : all.toArray())
+            {
+                if (texts[Integer.parseInt(id)].toLowerCase().contains(query.toLowerCase()))
+                {
+                    if (k >= result.length || !result[k++].equals(id))
+                    {
+                        return false;
+                    }
+                }
+            }
+            if (k != result.length)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Tests that a trigram that was never indexed, and an empty index, find nothing
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testSearchNothing()
+    {
+        TrigramIndex<String> index = new TrigramIndex<String>(new String[0]);
+        if (index.search("abc").length != 0 || index.search("a").length != 0)
+        {
+            return false;
+        }
+        index.add("Hello World", new Date(1), "a");
+        index.add("hello again", new Date(2), "b");
+        String[] hello = index.search("HELLO");
+        if (index.search("xyz").length == 0 && index.search("lo wo").length == 1
+            && hello.length == 2 && hello[0].equals("b") && index.search("ohell").length == 0)
+        {
+            return true;
+        }
+        else
+        {
+            return false;
+        }
+    }
+
+    // a text made of few letters and spaces, so that the same trigrams come up often
+    private String randomText(Random random, int length)
+    {
+        String letters = "abcdeABC ";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++)
+        {
+            sb.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -2,9 +2,14 @@ import java.util.Date;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.text.ParseException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import uk.ac.warwick.java.cs126.services.IUserStore;
 import uk.ac.warwick.java.cs126.services.UserStore;
+import uk.ac.warwick.java.cs126.services.IntIndex;
 import uk.ac.warwick.java.cs126.models.User;
 
 class UserTests {
@@ -335,6 +340,120 @@ class UserTests {
         }
         return true;
     }
+    /*
+     * Tests that a store keeping its ids in parallel arrays behaves like the default one
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testAddUserRetrieveArrays()
+    {
+        IUserStore userStore = new UserStore(IntIndex.Storage.ARRAYS);
+        User[] check = new User[2000];
+        for (int i=1;i<=2000;i++)
+        {
+          check[i-1] = new User("Rhi"+i,i,createDate("02/03/04 02:03"));
+          if (!userStore.addUser(check[i-1]))
+          {
+            return false;
+          }
+        }
+        if (userStore.addUser(check[0]) || userStore.getUser(2001) != null)
+        {
+          return false;
+        }
+        for (int j=1;j<=2000;j++)
+        {
+          if (userStore.getUser(j) != check[j-1])
+          {
+            return false;
+          }
+        }
+        return userStore.getUsers().length == 2000;
+    }
+    /*
+     * Tests that 64 threads adding and getting users at once see them as if one thread
+     * did it all in some order: of the threads adding the same id, exactly one succeeds,
+     * and once an add has returned, every getUser of the id returns that user. getUsers,
+     * which merges the new users into the cache, is called all along too.
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testConcurrentAddGetUser()
+    {
+        final UserStore userStore = new UserStore();
+        final int threads = 64, ids = 20000, contested = 500;
+        // the user whose add succeeded, for every id, set once the add has returned
+        final AtomicReferenceArray<User> added = new AtomicReferenceArray<User>(ids + 1);
+        final AtomicInteger successes = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        Thread[] workers = new Thread[threads];
+        for (int t=0;t<threads;t++)
+        {
+          final int me = t;
+          workers[t] = new Thread() {
+            public void run() {
+              Random random = new Random(me);
+              for (int id=1;id<=ids;id++)
+              {
+                // every thread adds the first ids, and its own share of the rest
+                if (id > contested && id % threads != me)
+                {
+                  continue;
+                }
+                User user = new User("T"+me+" U"+id, id, new Date(random.nextInt(1000000) * 1000L));
+                if (userStore.addUser(user))
+                {
+                  successes.incrementAndGet();
+                  if (!added.compareAndSet(id, null, user) || userStore.getUser(id) != user)
+                  {
+                    failed.set(true);
+                  }
+                }
+                int other = 1 + random.nextInt(ids);
+                User before = added.get(other);
+                User got = userStore.getUser(other);
+                if ((before != null && got != before) || (got != null && got.getId() != other))
+                {
+                  failed.set(true);
+                }
+                if (id % 1000 == 0)
+                {
+                  User[] all = userStore.getUsers();
+                  for (int i=1;i<all.length;i++)
+                  {
+                    if (all[i] == null || all[i].getDateJoined().after(all[i-1].getDateJoined()))
+                    {
+                      failed.set(true);
+                    }
+                  }
+                }
+              }
+            }
+          };
+          workers[t].start();
+        }
+        for (Thread worker : workers)
+        {
+          try
+          {
+            worker.join();
+          }
+          catch (InterruptedException e)
+          {
+            return false;
+          }
+        }
+        if (failed.get() || successes.get() != ids || userStore.getUsers().length != ids)
+        {
+          return false;
+        }
+        for (int id=1;id<=ids;id++)
+        {
+          if (added.get(id) == null || userStore.getUser(id) != added.get(id))
+          {
+            return false;
+          }
+        }
+        return true;
+    }
     /*
      * Returns a Date based on the input string
      * @param inputString Takes a string of form dd/MM/yy hour:minute. Example: 01/03/12 18:00
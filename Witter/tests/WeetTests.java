@@ -1,10 +1,18 @@
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Random;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.text.ParseException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import uk.ac.warwick.java.cs126.services.IWeetStore;
 import uk.ac.warwick.java.cs126.services.WeetStore;
+import uk.ac.warwick.java.cs126.services.IntIndex;
+import uk.ac.warwick.java.cs126.services.TrendCounter;
+import uk.ac.warwick.java.cs126.services.TrendSketch;
 import uk.ac.warwick.java.cs126.models.Weet;
 import uk.ac.warwick.java.cs126.models.User;
 
@@ -715,6 +723,517 @@ class WeetTests {
       return true;
     }
 
+    /*
+     * Tests that a store keeping its ids in parallel arrays behaves like the default one
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testAddGetWeetArrays()
+    {
+      IWeetStore weetStore = new WeetStore(IntIndex.Storage.ARRAYS);
+      User user = new User("Rhi", 3, createDate("01/01/12 12:00"));
+      Weet[] check = new Weet[2000];
+      for (int i=1;i<=2000;i++)
+      {
+        check[i-1] = new Weet(i, 1+i%5, "weet "+i, createDate("01/01/13 12:00"));
+        if (!weetStore.addWeet(check[i-1]))
+        {
+          return false;
+        }
+      }
+      if (weetStore.addWeet(check[0]) || weetStore.getWeet(2001) != null)
+      {
+        return false;
+      }
+      for (int j=1;j<=2000;j++)
+      {
+        if (weetStore.getWeet(j) != check[j-1])
+        {
+          return false;
+        }
+      }
+      return weetStore.getWeetsByUser(user).length == 400;
+    }
+    /*
+     * Tests that reading getWeets one page at a time, each page starting after the last weet
+     * of the previous one, returns exactly what getWeets returns
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetWeetsPage()
+    {
+      WeetStore weetStore = new WeetStore();
+      for (int i=1;i<=100;i++)
+      {
+        // out of order, and five weets per date
+        int minute = (i * 37) % 100 / 5;
+        weetStore.addWeet(new Weet(i, 1+i%3, "weet "+i, createDate("01/01/13 12:"+minute)));
+      }
+      Weet[] all = weetStore.getWeets();
+      Weet[] page = weetStore.getWeetsPage(null, 7);
+      int read = 0;
+      while (page.length > 0)
+      {
+        for (Weet w : page)
+        {
+          if (read >= all.length || all[read] != w)
+          {
+            return false;
+          }
+          read++;
+        }
+        page = weetStore.getWeetsPage(page[page.length-1], 7);
+      }
+      Weet missing = new Weet(101, 1, "not stored", createDate("01/01/13 12:00"));
+      return read == 100 && weetStore.getWeetsPage(null, 0).length == 0
+        && weetStore.getWeetsPage(missing, 7).length == 0;
+    }
+
+    /*
+     * Tests that the paged getWeetsBefore and getWeetsByUser return the start of what the
+     * unpaged methods return
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetWeetsPageBeforeByUser()
+    {
+      WeetStore weetStore = new WeetStore();
+      User user = new User("Rhi", 1, createDate("01/01/12 12:00"));
+      for (int i=1;i<=100;i++)
+      {
+        int minute = (i * 37) % 100 / 5;
+        weetStore.addWeet(new Weet(i, 1+i%3, "weet "+i, createDate("01/01/13 12:"+minute)));
+      }
+      Date before = createDate("01/01/13 12:10");
+      Weet[] all = weetStore.getWeetsBefore(before);
+      Weet[] page = weetStore.getWeetsBefore(before, 8);
+      for (int i=0;i<8;i++)
+      {
+        if (page[i] != all[i])
+        {
+          return false;
+        }
+      }
+      Weet[] byUser = weetStore.getWeetsByUser(user);
+      int read = 0;
+      Weet cursor = null;
+      do
+      {
+        page = weetStore.getWeetsByUser(user, cursor, 6);
+        for (Weet w : page)
+        {
+          if (byUser[read++] != w)
+          {
+            return false;
+          }
+        }
+        cursor = (page.length > 0) ? page[page.length-1] : null;
+      } while (page.length > 0);
+      return read == byUser.length && weetStore.getWeetsBefore(createDate("01/01/11 12:00"), 8).length == 0;
+    }
+
+    /*
+     * Tests that getWeetsByUser returns the weets of the user in the same order as getWeets,
+     * when they are added mostly in date order with a few stragglers and repeated dates, and
+     * read in between
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetWeetsByUserOrder()
+    {
+      WeetStore weetStore = new WeetStore();
+      User user = new User("Rhi", 1, createDate("01/01/12 12:00"));
+      Random random = new Random(126);
+      for (int i=1;i<=3000;i++)
+      {
+        long time = i * 1000L;
+        if (random.nextInt(10) == 0)
+        {
+          time -= random.nextInt(50) * 1000L; // a straggler, or on the same date as another
+        }
+        weetStore.addWeet(new Weet(i, 1+i%2, "weet "+i, new Date(time)));
+        if (i % 250 != 0)
+        {
+          continue;
+        }
+        Weet[] byUser = weetStore.getWeetsByUser(user);
+        int k = 0;
+        for (Weet w : weetStore.getWeets())
+        {
+          if (w.getUserId() == 1 && (k >= byUser.length || byUser[k++] != w))
+          {
+            return false;
+          }
+        }
+        Weet[] again = weetStore.getWeetsByUser(user);
+        if (k != byUser.length || again == byUser || !Arrays.equals(again, byUser))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /*
+     * Tests that getTrending over the last hour only counts the weets of that hour, both
+     * when the window is first asked for and after more weets are added
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetTrendingWindow()
+    {
+      WeetStore weetStore = new WeetStore();
+      int id = 1;
+      for (int i=0;i<5;i++)
+      {
+        weetStore.addWeet(new Weet(id++, 1, "#old #both", createDate("01/01/13 09:0"+i)));
+      }
+      for (int i=0;i<3;i++)
+      {
+        weetStore.addWeet(new Weet(id++, 1, "#new #both", createDate("01/01/13 12:0"+i)));
+      }
+      String[] allTime = weetStore.getTrending();
+      String[] hour = weetStore.getTrending(TrendCounter.Window.HOUR);
+      if (!allTime[0].equals("#both") || !allTime[1].equals("#old")
+        || !hour[0].equals("#new") || !hour[1].equals("#both") || hour[2] != null)
+      {
+        return false;
+      }
+      // two hours on, only #later is left in the window
+      weetStore.addWeet(new Weet(id++, 1, "#later", createDate("01/01/13 14:30")));
+      hour = weetStore.getTrending(TrendCounter.Window.HOUR);
+      String[] day = weetStore.getTrending(TrendCounter.Window.DAY);
+      return hour[0].equals("#later") && hour[1] == null && day[0].equals("#both");
+    }
+
+    /*
+     * Tests that the trends of a window counted from the weets already in the store, the
+     * first time the window is asked for, are the same as those of a store that counted
+     * them as the weets came, so that none near the start of the window is left out
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetTrendingWindowReplay()
+    {
+      for (TrendCounter.Window window : TrendCounter.Window.values())
+      {
+        WeetStore counted = new WeetStore();
+        WeetStore replayed = new WeetStore();
+        counted.getTrending(window);
+        long start = createDate("01/01/13 00:00").getTime(), step = window.getMillis() / 97;
+        for (int i=0;i<400;i++)
+        {
+          Weet weet = new Weet(i + 1, 1, "#h"+(i/50)+" #t"+(i%5), new Date(start + i * step));
+          counted.addWeet(weet);
+          replayed.addWeet(weet);
+        }
+        String[] expected = counted.getTrending(window), actual = replayed.getTrending(window);
+        Arrays.sort(expected, 0, count(expected));
+        Arrays.sort(actual, 0, count(actual));
+        if (!Arrays.equals(expected, actual))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /*
+     * Tests that a store counting its trends in a sketch returns the same top ten as one
+     * counting them exactly, when the counts are far enough apart
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetTrendingSketch()
+    {
+      WeetStore exact = new WeetStore();
+      WeetStore approximate = new WeetStore(IntIndex.Storage.NODES, new TrendSketch(0.001, 0.001));
+      int id = 1;
+      for (int t=0;t<30;t++)
+      {
+        for (int i=0;i<3*(30-t);i++)
+        {
+          Weet weet = new Weet(id++, 1, "#Tag"+t+" #once"+id, createDate("01/01/13 12:00"));
+          exact.addWeet(weet);
+          approximate.addWeet(weet);
+        }
+      }
+      String[] expected = exact.getTrending();
+      String[] result = approximate.getTrending();
+      for (int i=0;i<10;i++)
+      {
+        if (!expected[i].equals("#tag"+i) || !result[i].equals(expected[i]))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /*
+     * Tests that getWeetsOn returns the weets whose pretty date is that of the day asked
+     * for, in the same order as getWeets, including weets just either side of midnight
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testGetWeetsOnDays()
+    {
+      IWeetStore weetStore = new WeetStore();
+      Date start = createDate("30/12/12 22:00");
+      for (int i=1;i<=500;i++)
+      {
+        // every 17 minutes, out of order, over about six days
+        long offset = ((i * 211) % 500) * 17L * 60 * 1000;
+        weetStore.addWeet(new Weet(i, 1, "weet "+i, new Date(start.getTime() + offset)));
+      }
+      Weet[] all = weetStore.getWeets();
+      for (int d=-1;d<=7;d++)
+      {
+        Date dateOn = new Date(start.getTime() + d * 24L * 60 * 60 * 1000);
+        String day = new Weet(0, 0, "", dateOn).getPrettyDateWeeted();
+        Weet[] results = weetStore.getWeetsOn(dateOn);
+        int k = 0;
+        for (Weet w : all)
+        {
+          if (w.getPrettyDateWeeted().equals(day) && (k >= results.length || results[k++] != w))
+          {
+            return false;
+          }
+        }
+        if (k != results.length)
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /*
+     * Tests that a store with the CONCURRENT storage, with 32 threads adding and reading
+     * weets at once, ends up the same as if they were added one at a time: every id is
+     * added once, getWeets, getWeetsBefore and getWeetsPage agree and are in date order
+     * (by id between equal dates), and the trends are counted once per weet, even for a
+     * window first asked for while weets are still being added
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testConcurrentAddWeet()
+    {
+      final WeetStore weetStore = new WeetStore(IntIndex.Storage.CONCURRENT);
+      final int threads = 32, ids = 8000, contested = 200;
+      final AtomicInteger successes = new AtomicInteger();
+      final AtomicBoolean failed = new AtomicBoolean(false);
+      Thread[] workers = new Thread[threads];
+      for (int t=0;t<threads;t++)
+      {
+        final int me = t;
+        workers[t] = new Thread() {
+          public void run() {
+            Random random = new Random(me);
+            for (int id=1;id<=ids;id++)
+            {
+              if (id > contested && id % threads != me)
+              {
+                continue;
+              }
+              // tag k is on 2k+1 weets of every hundred, so no two tags tie
+              int k = (int) Math.sqrt(id % 100);
+              Weet weet = new Weet(id, 1+id%4, "weet "+id+" #t"+k, new Date(1000L * (id % 1000)));
+              if (weetStore.addWeet(weet))
+              {
+                successes.incrementAndGet();
+                if (weetStore.getWeet(id) != weet)
+                {
+                  failed.set(true);
+                }
+              }
+              if (id % 500 == 0)
+              {
+                weetStore.getTrending(TrendCounter.Window.HOUR);
+                Date before = new Date(1000L * random.nextInt(1000));
+                Weet[] older = weetStore.getWeetsBefore(before);
+                for (int i=0;i<older.length;i++)
+                {
+                  if (older[i].getDateWeeted().after(before) || (i > 0 && !inOrder(older[i-1], older[i])))
+                  {
+                    failed.set(true);
+                  }
+                }
+              }
+            }
+          }
+        };
+        workers[t].start();
+      }
+      for (Thread worker : workers)
+      {
+        try
+        {
+          worker.join();
+        }
+        catch (InterruptedException e)
+        {
+          return false;
+        }
+      }
+      Weet[] all = weetStore.getWeets();
+      if (failed.get() || successes.get() != ids || all.length != ids)
+      {
+        return false;
+      }
+      for (int i=1;i<all.length;i++)
+      {
+        if (!inOrder(all[i-1], all[i]))
+        {
+          return false;
+        }
+      }
+      int read = 0;
+      for (Weet[] page = weetStore.getWeetsPage(null, 300); page.length > 0; page = weetStore.getWeetsPage(page[page.length-1], 300))
+      {
+        for (Weet w : page)
+        {
+          if (all[read++] != w)
+          {
+            return false;
+          }
+        }
+      }
+      Weet[] before = weetStore.getWeetsBefore(new Date(500000));
+      if (read != ids || before.length != 8 * 501 || before[0] != all[all.length - before.length])
+      {
+        return false;
+      }
+      String[] top = weetStore.getTrending();
+      String[] hour = weetStore.getTrending(TrendCounter.Window.HOUR);
+      for (int i=0;i<10;i++)
+      {
+        if (!top[i].equals("#t"+(9-i)) || !hour[i].equals(top[i]))
+        {
+          return false;
+        }
+      }
+      return weetStore.getWeetsByUser(new User("Rhi", 1, new Date(0))).length == ids / 4;
+    }
+
+    /*
+     * Tests that a store with the CONCURRENT storage, with 32 threads adding weets of users
+     * of every stripe and reading their timelines, days and messages at once, ends up with
+     * the same weets of every user and day, and found by every search, as a store that had
+     * them added one at a time (in the order of getWeets of a CONCURRENT store)
+     * @return Returns true is the test passed, false is it failed
+     */
+    protected boolean testConcurrentStripes()
+    {
+      final WeetStore weetStore = new WeetStore(IntIndex.Storage.CONCURRENT);
+      final WeetStore expected = new WeetStore();
+      final int threads = 32, ids = 6000, users = 100;
+      final Weet[] weets = new Weet[ids];
+      for (int id=0;id<ids;id++)
+      {
+        weets[id] = new Weet(id, id % users, "weet " + id + " of " + (id % users), new Date(60000L * (id % 2000)));
+        expected.addWeet(weets[id]);
+      }
+      final AtomicBoolean failed = new AtomicBoolean(false);
+      Thread[] workers = new Thread[threads];
+      for (int t=0;t<threads;t++)
+      {
+        final int me = t;
+        workers[t] = new Thread() {
+          public void run() {
+            for (int id=me;id<ids;id+=threads)
+            {
+              weetStore.addWeet(weets[id]);
+              if (id % 50 == 0)
+              {
+                User user = new User("User", id % users, new Date(0));
+                Weet[] timeline = weetStore.getWeetsByUser(user);
+                Weet[] day = weetStore.getWeetsOn(weets[id].getDateWeeted());
+                Weet[] found = weetStore.getWeetsContaining("weet " + id + " ");
+                if (timeline.length == 0 || day.length == 0 || found.length != 1 || found[0] != weets[id])
+                {
+                  failed.set(true);
+                }
+              }
+            }
+          }
+        };
+        workers[t].start();
+      }
+      for (Thread worker : workers)
+      {
+        try
+        {
+          worker.join();
+        }
+        catch (InterruptedException e)
+        {
+          return false;
+        }
+      }
+      if (failed.get())
+      {
+        return false;
+      }
+      for (int uid=0;uid<users;uid++)
+      {
+        User user = new User("User", uid, new Date(0));
+        if (!sameWeets(expected.getWeetsByUser(user), weetStore.getWeetsByUser(user)))
+        {
+          return false;
+        }
+      }
+      for (int day=0;day<2;day++)
+      {
+        Date date = new Date(86400000L * day);
+        if (!sameWeets(expected.getWeetsOn(date), weetStore.getWeetsOn(date)))
+        {
+          return false;
+        }
+      }
+      String[] queries = {"weet", "of 7", "weet 12", "of 99"};
+      for (String query : queries)
+      {
+        Weet[] found = weetStore.getWeetsContaining(query);
+        for (int i=1;i<found.length;i++)
+        {
+          if (!inOrder(found[i-1], found[i]))
+          {
+            return false;
+          }
+        }
+        if (!sameWeets(expected.getWeetsContaining(query), found))
+        {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // whether the two arrays hold the same weets, once both are in the order of getWeets of
+    // a CONCURRENT store
+    private boolean sameWeets(Weet[] a, Weet[] b)
+    {
+      Weet[] x = Arrays.copyOf(a, a.length), y = Arrays.copyOf(b, b.length);
+      Comparator<Weet> order = new Comparator<Weet>() {
+        public int compare(Weet p, Weet q) {
+          return inOrder(p, q) ? -1 : (inOrder(q, p) ? 1 : 0);
+        }
+      };
+      Arrays.sort(x, order);
+      Arrays.sort(y, order);
+      return Arrays.equals(x, y);
+    }
+
+    // whether weet a comes before weet b in getWeets of a CONCURRENT store
+    private boolean inOrder(Weet a, Weet b)
+    {
+      long ta = a.getDateWeeted().getTime(), tb = b.getDateWeeted().getTime();
+      return ta > tb || (ta == tb && a.getId() > b.getId());
+    }
+
+    // the amount of trends in a top ten, before the nulls that fill the rest of it
+    private int count(String[] top)
+    {
+      int n = 0;
+      while (n < top.length && top[n] != null)
+      {
+        n++;
+      }
+      return n;
+    }
+
     /*
      * Returns a Date based on the input string
      * @param inputString Takes a string of form dd/MM/yy hour:minute. Example: 01/03/12 18:00
@@ -0,0 +1,284 @@
+/**
+ * PREAMBLE
+ *
+ * This seeds the stores from names.csv, weets.csv and followers.csv. The webapp seeds
+ * itself by handing the rows to addUser, addWeet and addFollower one by one, so every row
+ * pays for a tree insert and its rebalancing, and a line read as a string and split into
+ * more strings, most of which are thrown straight away.
+ *
+ * Here, a file is mapped into memory with a FileChannel, rather than read through a
+ * stream, so the operating system pages it straight in, without it being copied through a
+ * buffer of the reader's first. Every line is found by looking for the next new line among
+ * the bytes, and the ids are parsed from the bytes as they are, so the only strings made
+ * are the names, the messages and the dates. The rows are collected into arrays, which are
+ * then handed to addUsers, addWeets and addFollowers in one go: those sort the rows once,
+ * and build the trees bottom up, perfectly balanced, in O(n).
+ * A file of more than a gigabyte is mapped a gigabyte at a time, every piece starting at
+ * the first line the one before it didn't finish.
+ *
+ * The files are expected to be UTF-8, one row per line, with the fields split by commas:
+ *
+ *     names.csv       id,name,date
+ *     weets.csv       id,userId,message,date
+ *     followers.csv   followerId,followedId,date
+ *
+ * The name or message is everything between the commas around it, so it may contain
+ * commas of its own. If it is in double quotes, they are taken off, and a double quote
+ * written twice inside them is read as one; a new line inside the quotes doesn't end the
+ * row. The date is read with a SimpleDateFormat, "dd/MM/yyyy HH:mm:ss" unless another
+ * pattern is given, in the time zone of the server, and must not contain a comma.
+ * Blank lines are skipped, and so is a line whose first field isn't a number (a header).
+ * A line that can't be read is reported with an IOException that says where it is.
+ *
+ * A CsvLoader keeps the SimpleDateFormat it reads dates with, which isn't safe to use from
+ * several threads at once, so every thread that loads files needs a CsvLoader of its own.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+import uk.ac.warwick.java.cs126.models.User;
+import uk.ac.warwick.java.cs126.models.Weet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+public class CsvLoader {
+
+    // the pattern dates are read with, unless another one is given
+    public static final String DATE_PATTERN = "dd/MM/yyyy HH:mm:ss";
+
+    // how much of a file is mapped at a time
+    private static final long WINDOW = 1L << 30;
+
+    /*
+     * Every row of a file is handed to one of these, as the bytes of the line (without the
+     * new line), its length, and where its first and last commas are.
+     */
+    private interface Row {
+        void read(byte[] line, int length, int firstComma, int lastComma) throws IOException;
+    }
+
+    /*
+     * • format is what the dates are read with
+     * • file and number are the file and line being read, for the errors
+     */
+    private final SimpleDateFormat format;
+    private File file;
+    private int number;
+
+    public CsvLoader() {
+        this(DATE_PATTERN);
+    }
+
+    // This constructor lets the dates be read with another SimpleDateFormat pattern
+    public CsvLoader(String datePattern) {
+        format = new SimpleDateFormat(datePattern);
+        format.setLenient(false);
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Adds every user of names.csv to the store, with addUsers, and returns how many were
+    // added
+    public int loadUsers(UserStore store, File names) throws IOException {
+        return store.addUsers(readUsers(names));
+    }
+
+    // Adds every weet of weets.csv to the store, with addWeets, and returns how many were
+    // added
+    public int loadWeets(WeetStore store, File weets) throws IOException {
+        return store.addWeets(readWeets(weets));
+    }
+
+    // Adds every follow of followers.csv to the store, with addFollowers, and returns how
+    // many were added. The buffers of every user are then trimmed to size, as no more
+    // follows are expected for a while.
+    public int loadFollowers(FollowerStore store, File followers) throws IOException {
+        final int[][] ids = {new int[1024], new int[1024]};
+        final Date[][] dates = {new Date[1024]};
+        final int[] count = {0};
+        forEachRow(followers, new Row() {
+            public void read(byte[] line, int length, int firstComma, int lastComma) throws IOException {
+                if (count[0] == dates[0].length) {
+                    ids[0] = Arrays.copyOf(ids[0], count[0] * 2);
+                    ids[1] = Arrays.copyOf(ids[1], count[0] * 2);
+                    dates[0] = Arrays.copyOf(dates[0], count[0] * 2);
+                }
+                ids[0][count[0]] = number(line, 0, firstComma);
+                ids[1][count[0]] = number(line, firstComma + 1, lastComma);
+                dates[0][count[0]] = date(line, lastComma + 1, length);
+                count[0]++;
+            }
+        });
+        int n = count[0];
+        int added = store.addFollowers(Arrays.copyOf(ids[0], n), Arrays.copyOf(ids[1], n), Arrays.copyOf(dates[0], n));
+        store.trimToSize();
+        return added;
+    }
+
+    // Returns every user of names.csv, in the order of the file
+    public User[] readUsers(File names) throws IOException {
+        final User[][] users = {new User[1024]};
+        final int[] count = {0};
+        forEachRow(names, new Row() {
+            public void read(byte[] line, int length, int firstComma, int lastComma) throws IOException {
+                if (count[0] == users[0].length) {users[0] = Arrays.copyOf(users[0], count[0] * 2);}
+                int id = number(line, 0, firstComma);
+                users[0][count[0]++] = new User(text(line, firstComma + 1, lastComma), id, date(line, lastComma + 1, length));
+            }
+        });
+        return Arrays.copyOf(users[0], count[0]);
+    }
+
+    // Returns every weet of weets.csv, in the order of the file
+    public Weet[] readWeets(File weets) throws IOException {
+        final Weet[][] result = {new Weet[1024]};
+        final int[] count = {0};
+        forEachRow(weets, new Row() {
+            public void read(byte[] line, int length, int firstComma, int lastComma) throws IOException {
+                if (count[0] == result[0].length) {result[0] = Arrays.copyOf(result[0], count[0] * 2);}
+                int second = indexOf(line, ',', firstComma + 1, lastComma);
+                if (second < 0) {throw error("expected 4 fields");}
+                int id = number(line, 0, firstComma);
+                int userId = number(line, firstComma + 1, second);
+                result[0][count[0]++] = new Weet(id, userId, text(line, second + 1, lastComma), date(line, lastComma + 1, length));
+            }
+        });
+        return Arrays.copyOf(result[0], count[0]);
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT SPLIT A FILE INTO ROWS */
+
+    // maps the file into memory, a WINDOW at a time, and hands every row to the given Row.
+    // A row is copied into the line buffer first, which grows to the longest of them.
+    private void forEachRow(File f, Row row) throws IOException {
+        file = f;
+        number = 0;
+        byte[] line = new byte[256];
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size(), position = 0;
+            while (position < size) {
+                int length = (int) Math.min(WINDOW, size - position);
+                boolean last = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                // the lines are copied out through a buffer of their own, whose position can
+                // be moved to the start of each of them
+                ByteBuffer lines = buffer.duplicate();
+                int start = 0;
+                boolean quoted = false;
+                for (int i = 0; i < length; i++) {
+                    byte b = buffer.get(i);
+                    // only a quote that opens a field, or is inside one that was opened, counts.
+                    // Inside, a quote written twice is one quote of the text, so both are
+                    // skipped.
+                    if (b == '"') {
+                        if (quoted && i + 1 < length && buffer.get(i + 1) == '"') {i++;}
+                        else if (quoted || i == start || buffer.get(i - 1) == ',') {quoted = !quoted;}
+                    }
+                    else if (b == '\n' && !quoted) {
+                        line = copy(lines, start, i, line);
+                        handle(line, i - start, row);
+                        start = i + 1;
+                    }
+                }
+                if (last && start < length) {
+                    line = copy(lines, start, length, line);
+                    handle(line, length - start, row);
+                    start = length;
+                }
+                if (start == 0 && !last) {throw error("a line is longer than " + WINDOW + " bytes");}
+                position += start;
+            }
+        }
+    }
+
+    // copies the bytes of the buffer from start to end into the line buffer, or into a
+    // larger one if it doesn't fit, and returns whichever it was. The buffer is moved to
+    // start, and read from there, which works on any JDK (reading from an index without
+    // moving the buffer only came in JDK 13).
+    private static byte[] copy(ByteBuffer buffer, int start, int end, byte[] line) {
+        if (end - start > line.length) {line = new byte[Math.max(end - start, line.length * 2)];}
+        buffer.position(start);
+        buffer.get(line, 0, end - start);
+        return line;
+    }
+
+    // hands the line to the Row, unless it is blank or a header. A carriage return before
+    // the new line is taken off.
+    private void handle(byte[] line, int length, Row row) throws IOException {
+        number++;
+        if (length > 0 && line[length - 1] == '\r') {length--;}
+        if (length == 0) {return;}
+        byte first = line[0];
+        if (first != '-' && (first < '0' || first > '9')) {return;}
+        int firstComma = indexOf(line, ',', 0, length);
+        int lastComma = length - 1;
+        while (lastComma >= 0 && line[lastComma] != ',') {lastComma--;}
+        if (firstComma < 0 || firstComma == lastComma) {throw error("expected at least 3 fields");}
+        row.read(line, length, firstComma, lastComma);
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT READ THE FIELDS OF A ROW */
+
+    // returns the index of the first c from from to to, or -1 if there is none
+    private static int indexOf(byte[] line, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == c) {return i;}
+        }
+        return -1;
+    }
+
+    // reads the bytes from from to to as an int, ignoring spaces around it
+    private int number(byte[] line, int from, int to) throws IOException {
+        while (from < to && line[from] == ' ') {from++;}
+        while (to > from && line[to - 1] == ' ') {to--;}
+        boolean negative = from < to && line[from] == '-';
+        if (negative) {from++;}
+        if (from == to) {throw error("expected a number");}
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {throw error("expected a number");}
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {throw error("the number is too large");}
+        }
+        if (negative) {value = -value;}
+        if (value > Integer.MAX_VALUE) {throw error("the number is too large");}
+        return (int) value;
+    }
+
+    // reads the bytes from from to to as UTF-8 text, taking off the double quotes around
+    // it, if there are any, and reading two double quotes inside them as one
+    private static String text(byte[] line, int from, int to) {
+        if (to - from < 2 || line[from] != '"' || line[to - 1] != '"') {
+            return new String(line, from, to - from, StandardCharsets.UTF_8);
+        }
+        String inside = new String(line, from + 1, to - from - 2, StandardCharsets.UTF_8);
+        return (inside.indexOf('"') < 0) ? inside : inside.replace("\"\"", "\"");
+    }
+
+    // reads the bytes from from to to as a date, ignoring spaces and double quotes around it
+    private Date date(byte[] line, int from, int to) throws IOException {
+        while (from < to && (line[from] == ' ' || line[from] == '"')) {from++;}
+        while (to > from && (line[to - 1] == ' ' || line[to - 1] == '"')) {to--;}
+        String text = new String(line, from, to - from, StandardCharsets.UTF_8);
+        try {return format.parse(text);}
+        catch (ParseException e) {throw error("expected a date like " + format.toPattern() + ", not " + text);}
+    }
+
+    // an IOException that says which line of which file couldn't be read, and why
+    private IOException error(String why) {
+        return new IOException(file.getName() + ", line " + number + ": " + why);
+    }
+}
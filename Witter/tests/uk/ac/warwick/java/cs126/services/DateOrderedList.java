@@ -0,0 +1,222 @@
+/**
+ * PREAMBLE
+ *
+ * This is the CACHE that getUsers and getWeets return: every value of a store, from the most
+ * recent date to the oldest. It used to be rebuilt with a full traversal of the date tree
+ * whenever it was read after an insert, so a store that is written to and read from in turn
+ * paid O(n) for every read.
+ *
+ * Now the list absorbs the inserts instead of starting again:
+ * • an insert only goes into a small pending buffer, at O(1)
+ * • on the next read, the pending values are sorted by date (O(k log k) for k of them, and
+ *   only O(k) when they arrived in order, which is nearly always the case)
+ * • the pending values are merged into free room in front of the newest value of the list.
+ *   Only the values of the list that are more recent than the oldest pending value have to
+ *   move, and a binary search finds where they end. When the pending values are at least
+ *   as recent as everything in the list (nearly always the case, since weets and users
+ *   arrive in time order) nothing has to move at all, so this is O(k + log n).
+ *
+ * The values are kept with free room at the front, so prepending never shifts anything.
+ * The array handed out is an exact-length copy of the occupied part, made with a single
+ * arraycopy, and is kept until the next insert. It is never changed (the next read after
+ * an insert makes a new one), so view hands out a Slice of it, and so can the stores.
+ *
+ * Since the list is ordered by date, the values up to a date are found with a binary search
+ * for where they start, and copied out in one go, which is what getUsersJoinedBefore and
+ * getWeetsBefore need.
+ *
+ * Values with the same date come out the same way the date tree returns them: the most
+ * recently inserted first.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+import java.util.Date;
+
+public class DateOrderedList<V> {
+
+    /*
+     * • values holds the list, newest first, in values[head] to values[values.length-1]
+     * • times holds the date of every value, in milliseconds, at the same index
+     * • pendingValues/pendingTimes hold what was inserted since the last read, in order of
+     *   insertion
+     * • snapshot is the exact-length array handed out by the last read, or null if there
+     *   has been an insert since
+     */
+    private V[] values;
+    private long[] times;
+    private int head;
+    private V[] pendingValues;
+    private long[] pendingTimes;
+    private int pending;
+    private V[] snapshot;
+    private final V[] empty;
+
+    /*
+     * The empty array is only used for its type, so that the arrays handed out are of the
+     * right type (a User[] rather than an Object[]).
+     */
+    public DateOrderedList(V[] empty) {
+        values = Arrays.copyOf(empty, 16);
+        times = new long[16];
+        head = 16;
+        pendingValues = Arrays.copyOf(empty, 16);
+        pendingTimes = new long[16];
+        pending = 0;
+        this.empty = Arrays.copyOf(empty, 0);
+        snapshot = this.empty;
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of values in the list, including those not merged in yet
+    public int size() {
+        return values.length - head + pending;
+    }
+
+    // Returns whether everything added is merged in and the array toArray hands out is made,
+    // so that reading the list won't change it
+    public boolean isUpToDate() {
+        return snapshot != null;
+    }
+
+    // Returns whether everything added is merged in, so that toArrayNotAfter won't change
+    // the list (it never makes the array toArray hands out)
+    public boolean isMerged() {
+        return pending == 0;
+    }
+
+    // ADD – O(1) amortised. The value is only merged into the list on the next read.
+    public void add(Date date, V value) {
+        if (pending == pendingValues.length) {
+            pendingValues = Arrays.copyOf(pendingValues, pending * 2);
+            pendingTimes = Arrays.copyOf(pendingTimes, pending * 2);
+        }
+        pendingValues[pending] = value;
+        pendingTimes[pending] = date.getTime();
+        pending++;
+        snapshot = null;
+    }
+
+    /*
+     * TOARRAY – O(1) between two inserts. After k inserts, merging them in is O(k + log n)
+     * when they arrived in order, and the array handed out costs one arraycopy of n.
+     * Returns every value, from the most recent to the oldest.
+     */
+    public V[] toArray() {
+        if (snapshot == null) {
+            absorb();
+            snapshot = Arrays.copyOfRange(values, head, values.length);
+        }
+        return snapshot;
+    }
+
+    // VIEW – the same as toArray, as a read-only Slice of the array it hands out
+    public Slice<V> view() {
+        return new Slice<V>(toArray());
+    }
+
+    /*
+     * TOARRAYNOTAFTER – O(log n + m) for the m values returned, once the pending values
+     * are merged in
+     * Returns every value whose date is not after the given date (so those on the date are
+     * included), from the most recent to the oldest, in an array of their own (never the
+     * one toArray hands out).
+     */
+    public V[] toArrayNotAfter(Date date) {
+        absorb();
+        int from = boundary(date.getTime());
+        if (from == values.length) {return empty;}
+        return Arrays.copyOfRange(values, from, values.length);
+    }
+
+    /*
+     * VIEWNOTAFTER – O(log n) once the array toArray hands out is made (O(n) to make it)
+     * The same values as toArrayNotAfter, as a read-only Slice of the end of that array.
+     */
+    public Slice<V> viewNotAfter(Date date) {
+        V[] all = toArray();
+        return new Slice<V>(all, boundary(date.getTime()) - head, all.length);
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT MERGE THE PENDING VALUES IN */
+
+    // sorts the pending values, then merges them into the front of the list
+    private void absorb() {
+        if (pending == 0) {return;}
+        sortPending();
+        if (head < pending) {makeRoom(pending);}
+        // the values that are more recent than the oldest pending one are the only ones that
+        // have to move: they and the pending values are merged into the free room, newest
+        // first. A pending value was inserted after any value of the list, so it goes first
+        // when their dates are equal.
+        int end = boundary(pendingTimes[0]);
+        int out = head - pending, i = head, j = pending - 1;
+        head = out;
+        while (j >= 0) {
+            if (i < end && times[i] > pendingTimes[j]) {
+                values[out] = values[i]; times[out] = times[i]; i++;
+            }
+            else {
+                values[out] = pendingValues[j]; times[out] = pendingTimes[j]; j--;
+            }
+            out++;
+        }
+        Arrays.fill(pendingValues, 0, pending, null);
+        pending = 0;
+    }
+
+    // returns the index of the first value of the list that is not more recent than time
+    private int boundary(long time) {
+        int l = head, h = values.length;
+        while (l < h) {
+            int m = (l + h) >>> 1;
+            if (times[m] > time) {l = m + 1;}
+            else {h = m;}
+        }
+        return l;
+    }
+
+    // moves the list to the end of arrays large enough for it, the extra values, and as much
+    // free room again
+    private void makeRoom(int extra) {
+        int size = values.length - head;
+        int capacity = Math.max(16, 2 * (size + extra));
+        V[] v = Arrays.copyOf(values, capacity);
+        long[] t = new long[capacity];
+        System.arraycopy(values, head, v, capacity - size, size);
+        System.arraycopy(times, head, t, capacity - size, size);
+        Arrays.fill(v, 0, capacity - size, null);
+        values = v; times = t;
+        head = capacity - size;
+    }
+
+    // sorts the pending values oldest first, keeping values with equal dates in the order
+    // they were inserted. Skips the sort when they are already in order.
+    private void sortPending() {
+        boolean sorted = true;
+        for (int i = 1; i < pending && sorted; i++) {
+            sorted = pendingTimes[i-1] <= pendingTimes[i];
+        }
+        if (sorted) {return;}
+        V[] v = Arrays.copyOf(pendingValues, pending);
+        long[] t = Arrays.copyOf(pendingTimes, pending);
+        mergeSort(v, t, pendingValues, pendingTimes, 0, pending);
+    }
+
+    // a stable top-down merge sort of a[l..h) into b[l..h), using a as scratch space
+    private void mergeSort(V[] av, long[] at, V[] bv, long[] bt, int l, int h) {
+        if (h - l < 2) {return;}
+        int m = (l + h) >>> 1;
+        mergeSort(bv, bt, av, at, l, m);
+        mergeSort(bv, bt, av, at, m, h);
+        int i = l, j = m;
+        for (int k = l; k < h; k++) {
+            if (j >= h || (i < m && at[i] <= at[j])) {bv[k] = av[i]; bt[k] = at[i]; i++;}
+            else {bv[k] = av[j]; bt[k] = at[j]; j++;}
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * PREAMBLE
+ *
+ * An IntIndex is an ordered map from an int id to a value, which is what every id tree in
+ * the stores is. There are three ways of storing one:
+ *
+ * • NODES – an IntRedBlackTree, where every entry is a node object on the heap
+ * • ARRAYS – an IntArrayRedBlackTree, where the keys and links of every entry live in
+ *   parallel int arrays and the nodes are only indices into them
+ * • CONCURRENT – a ConcurrentIntIndex, a skip list that many threads can use at once
+ *
+ * The first two are the same red-black tree and behave the same. NODES is the default. ARRAYS
+ * is for stores with tens of millions of entries, where it stores an entry in about half the
+ * memory and leaves the garbage collector a single array of values to scan rather than one
+ * object per entry. CONCURRENT is for stores that are written to by many threads at once.
+ * Each store takes the Storage it should use in its constructor.
+ *
+ * Any of them can be filled in one go from keys that are already in order, with
+ * buildFromSorted, which is how the stores load a whole file at once.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+public interface IntIndex<V> {
+
+    public enum Storage {NODES, ARRAYS, CONCURRENT};
+
+    // Returns the amount of entries in the index
+    public int size();
+
+    // Returns the value stored under the key, or null if there is none
+    public V get(int key);
+
+    // Inserts the value under the key, or returns false if the key is already taken
+    public boolean insert(int key, V value);
+
+    // Stores every value in the array, from the largest key to the smallest, and returns
+    // how many were stored. The array must be at least size() long.
+    public int fillDescending(V[] into);
+
+    // Fills an empty index with the first n keys and values of the arrays, whose keys must
+    // be strictly increasing. The red-black trees are linked up in O(n), perfectly balanced,
+    // rather than inserted into one key at a time.
+    public void buildFromSorted(int[] keys, V[] values, int n);
+
+    // Returns a new, empty index that uses the given storage
+    public static <V> IntIndex<V> create(Storage storage) {
+        if (storage == Storage.ARRAYS) {return new IntArrayRedBlackTree<V>();}
+        if (storage == Storage.CONCURRENT) {return new ConcurrentIntIndex<V>();}
+        return new IntRedBlackTree<V>();
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * PREAMBLE
+ *
+ * This works out the order a bulk load puts its entries in, before the trees are built
+ * from them. The stores are handed whole arrays of users, weets or follows, in whatever
+ * order the file had them, and need them by id (to build the id trees bottom up, and to
+ * find repeated ids) and by date (to build the date trees, and so that every later list
+ * only ever has entries appended to its end).
+ *
+ * Rather than moving the entries themselves, SortOrder.of takes a key for every entry and
+ * returns their indices in the order of the keys. The sort is stable: entries with the same key keep the
+ * order they were given in, which is what makes "the first of a repeated id wins" and "the
+ * last added of the same date comes out first" come out the same as adding them one at a
+ * time.
+ *
+ * The files are nearly always in id order already, and so in date order too, since ids are
+ * handed out as time goes on. So the keys are checked first, and if they are in order, the
+ * indices are returned as they are, at O(n). Otherwise they are merge sorted, at O(n log n).
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+public class SortOrder {
+
+    private SortOrder() {
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    /*
+     * OF – O(n) if the keys are already in order, O(n log n) otherwise
+     * Returns the indices 0 to n-1, ordered by the keys at them, smallest first. Indices
+     * with equal keys stay in increasing order.
+     */
+    public static int[] of(long[] keys, int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {order[i] = i;}
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; i++) {sorted = keys[i-1] <= keys[i];}
+        if (sorted) {return order;}
+        mergeSort(keys, order.clone(), order, 0, n);
+        return order;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS */
+
+    // a stable top-down merge sort of the indices a[l..h) into b[l..h) by their keys, using
+    // a as scratch space (as in DateOrderedList)
+    private static void mergeSort(long[] keys, int[] a, int[] b, int l, int h) {
+        if (h - l < 2) {return;}
+        int m = (l + h) >>> 1;
+        mergeSort(keys, b, a, l, m);
+        mergeSort(keys, b, a, m, h);
+        int i = l, j = m;
+        for (int k = l; k < h; k++) {
+            if (j >= h || (i < m && keys[a[i]] <= keys[a[j]])) {b[k] = a[i++];}
+            else {b[k] = a[j++];}
+        }
+    }
+}
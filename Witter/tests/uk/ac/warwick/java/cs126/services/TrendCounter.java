@@ -0,0 +1,365 @@
+/**
+ * PREAMBLE
+ *
+ * This counts how many times every trend (hashtag) has been used, and keeps the ten most
+ * used of them up to date as it goes, so that getTrending never has to sort anything.
+ *
+ * It replaces the TrendCount class WeetStore used to have, which found a trend by checking
+ * every trend it knew, grew its arrays by one element for every new trend (copying all of
+ * them every time), and quicksorted every trend to take the first ten. With millions of
+ * distinct trends, that was quadratic.
+ *
+ * Here:
+ * • a trend is found in a hash table with open addressing, at O(1)
+ * • the counts, trends and positions live in parallel arrays that double when full
+ * • the top ten are a small array sorted by count. While counts only go up by one, a
+ *   trend outside the top ten can never have more uses than the last of the top ten. When
+ *   it is incremented, either it stays outside, or it now has more uses than the last one,
+ *   and it takes its place. A trend in the top ten just moves up past the ones it now
+ *   beats. Either way, an insert costs O(1) plus at most ten steps.
+ * • getTrending copies the top ten out, at O(K)
+ *
+ * A counter can either count over all time, or only over a sliding Window (the last hour,
+ * day or week), so that something that trended in 2012 doesn't stay on top forever. The
+ * window is cut into BUCKETS slices of time, and every use is also recorded in the slice
+ * of its weet's date. The newest weet decides what "now" is: when a weet arrives in a new
+ * slice, the slices that fell out of the window are taken back off the counts, and trends
+ * that drop to nothing are forgotten, so the memory is bounded by what was used within the
+ * window. Since counts went down, the top ten is then rebuilt, at O(T) for the T trends in
+ * the window, but that only happens once per slice (every minute, for an hour's window).
+ * A use that is older than the window is ignored.
+ *
+ * A trend can also be counted straight from the range of a weet message it is in, as found
+ * by the HashtagScanner. It is then lowercased as it is hashed, and only made into a
+ * string the first time it is seen, so counting a trend that is already known makes no
+ * garbage at all.
+ *
+ * Trends with the same count stay in the order they got there: the one that reached the
+ * count first comes first. (After a window's top is rebuilt, it is the one that was first
+ * counted instead.)
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+import java.util.Arrays;
+import java.util.Date;
+
+public class TrendCounter {
+
+    // how many trends getTrending returns
+    public static final int K = 10;
+
+    // how many slices of time a window is cut into
+    public static final int BUCKETS = 60;
+
+    /*
+     * The windows a counter can count over, and how long they are
+     */
+    public enum Window {
+        HOUR(60L * 60 * 1000), DAY(24L * 60 * 60 * 1000), WEEK(7L * 24 * 60 * 60 * 1000);
+
+        private final long millis;
+
+        Window(long millis) {
+            this.millis = millis;
+        }
+
+        // Returns the length of the window, in milliseconds
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    /*
+     * • trends, counts and positions hold, for every trend, its name, how many times it has
+     *   been used, and where it is in the top (or -1 if it isn't in it). A forgotten trend
+     *   is null, and its index is on the free list to be used again
+     * • slots is the hash table from a trend to its index in those arrays, plus one (so
+     *   that 0 means empty)
+     * • top holds the indices of the most used trends, most used first
+     */
+    private String[] trends;
+    private int[] counts, positions;
+    private int size, live;
+    private int[] free;
+    private int freeSize;
+    private int[] slots;
+    private int[] top;
+    private int topSize;
+
+    /*
+     * Only for a counter over a window:
+     * • bucketMillis is how long a slice is, and newest is the number of the newest slice
+     * • the slice numbered s is kept at s % BUCKETS of bucketTrends/bucketCounts, which list
+     *   the trends used in it and how many times
+     * • lastBucket and lastSlot hold, for every trend, the slice it was last recorded in and
+     *   where, so that using it again in the same slice only adds to its count
+     */
+    private final long bucketMillis;
+    private long newest;
+    private long[] bucketNumbers;
+    private int[][] bucketTrends, bucketCounts;
+    private int[] bucketSizes;
+    private long[] lastBucket;
+    private int[] lastSlot;
+
+    // A counter over all time
+    public TrendCounter() {
+        this(null);
+    }
+
+    // A counter over the given window, or over all time if it is null
+    public TrendCounter(Window window) {
+        trends = new String[16];
+        counts = new int[16];
+        positions = new int[16];
+        size = 0;
+        live = 0;
+        free = new int[16];
+        freeSize = 0;
+        slots = new int[32];
+        top = new int[K];
+        topSize = 0;
+        bucketMillis = (window == null) ? 0 : window.getMillis() / BUCKETS;
+        if (window != null) {
+            newest = Long.MIN_VALUE / 2;
+            bucketNumbers = new long[BUCKETS];
+            Arrays.fill(bucketNumbers, Long.MIN_VALUE / 2);
+            bucketTrends = new int[BUCKETS][4];
+            bucketCounts = new int[BUCKETS][4];
+            bucketSizes = new int[BUCKETS];
+            lastBucket = new long[16];
+            lastSlot = new int[16];
+        }
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of distinct trends counted (within the window, if there is one)
+    public int size() {
+        return live;
+    }
+
+    // Returns how many times the trend has been used (within the window, if there is one)
+    public int count(String trend) {
+        int slot = find(trend);
+        return (slots[slot] == 0) ? 0 : counts[slots[slot] - 1];
+    }
+
+    /*
+     * INSERT – O(1) amortised, plus at most K steps. Over a window, O(T) once per slice.
+     * Counts one more use of the trend, in a weet weeted on the given date.
+     */
+    public void insert(String trend, Date date) {
+        insert(trend, 0, trend.length(), trend.hashCode(), false, date);
+    }
+
+    /*
+     * INSERT (RANGE) – the same, plus O(L) for a trend of L characters
+     * Counts one more use of the trend made of the characters of the text from index from
+     * to index to, lowercased, in a weet weeted on the given date.
+     */
+    public void insert(String text, int from, int to, Date date) {
+        insert(text, from, to, HashtagScanner.hash(text, from, to), true, date);
+    }
+
+    /*
+     * TOP – O(K)
+     * Returns the K most used trends, most used first. If fewer than K trends have been
+     * used, the rest of the array is null.
+     */
+    public String[] top() {
+        String[] result = new String[K];
+        for (int i = 0; i < topSize; i++) {result[i] = trends[top[i]];}
+        return result;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT KEEP THE TOP */
+
+    // counts the trend in the range of the text, lowercased or not, whose hash is given
+    private void insert(String text, int from, int to, int hash, boolean lower, Date date) {
+        long bucket = 0;
+        if (bucketMillis != 0) {
+            bucket = Math.floorDiv(date.getTime(), bucketMillis);
+            if (bucket > newest) {advance(bucket);}
+            if (bucket <= newest - BUCKETS) {return;}
+        }
+        int slot = find(text, from, to, hash, lower);
+        int t;
+        if (slots[slot] != 0) {t = slots[slot] - 1;}
+        else if (lower) {t = add(HashtagScanner.lowerCase(text, from, to), slot);}
+        else {t = add(text.substring(from, to), slot);}
+        counts[t]++;
+        if (bucketMillis != 0) {record(t, bucket);}
+        promote(t);
+    }
+
+    // moves the trend, whose count just went up by one, to where it belongs in the top
+    private void promote(int t) {
+        int at = positions[t];
+        if (at == -1) {
+            if (topSize < K) {at = topSize++;}
+            else if (counts[t] > counts[top[K-1]]) {at = K - 1; positions[top[at]] = -1;}
+            else {return;}
+            top[at] = t;
+        }
+        while (at > 0 && counts[top[at-1]] < counts[t]) {
+            top[at] = top[at-1];
+            positions[top[at]] = at;
+            at--;
+        }
+        top[at] = t;
+        positions[t] = at;
+    }
+
+    // works the top out again from every trend, after counts went down
+    private void rebuildTop() {
+        for (int i = 0; i < topSize; i++) {positions[top[i]] = -1;}
+        topSize = 0;
+        for (int t = 0; t < size; t++) {
+            if (trends[t] == null) {continue;}
+            int c = counts[t];
+            if (topSize == K && c <= counts[top[K-1]]) {continue;}
+            int at = (topSize < K) ? topSize++ : K - 1;
+            while (at > 0 && counts[top[at-1]] < c) {top[at] = top[at-1]; at--;}
+            top[at] = t;
+        }
+        for (int i = 0; i < topSize; i++) {positions[top[i]] = i;}
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT KEEP THE WINDOW */
+
+    // records one use of the trend in the slice, adding to its count there if it was
+    // already recorded in it
+    private void record(int t, long bucket) {
+        int b = (int) Math.floorMod(bucket, (long) BUCKETS);
+        bucketNumbers[b] = bucket;
+        if (lastBucket[t] == bucket) {bucketCounts[b][lastSlot[t]]++; return;}
+        int n = bucketSizes[b];
+        if (n == bucketTrends[b].length) {
+            bucketTrends[b] = Arrays.copyOf(bucketTrends[b], n * 2);
+            bucketCounts[b] = Arrays.copyOf(bucketCounts[b], n * 2);
+        }
+        bucketTrends[b][n] = t;
+        bucketCounts[b][n] = 1;
+        bucketSizes[b] = n + 1;
+        lastBucket[t] = bucket;
+        lastSlot[t] = n;
+    }
+
+    // makes the slice the newest, taking the slices that fall out of the window back off
+    // the counts
+    private void advance(long bucket) {
+        boolean expired = false;
+        for (int b = 0; b < BUCKETS; b++) {
+            if (bucketSizes[b] > 0 && bucketNumbers[b] <= bucket - BUCKETS) {
+                expire(b);
+                expired = true;
+            }
+        }
+        newest = bucket;
+        if (expired) {rebuildTop();}
+    }
+
+    // takes every use recorded in the slice back off the counts
+    private void expire(int b) {
+        for (int i = 0; i < bucketSizes[b]; i++) {
+            int t = bucketTrends[b][i];
+            counts[t] -= bucketCounts[b][i];
+            if (counts[t] == 0) {remove(t);}
+        }
+        bucketSizes[b] = 0;
+        if (bucketTrends[b].length > 64) {bucketTrends[b] = new int[4]; bucketCounts[b] = new int[4];}
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT KEEP THE HASH TABLE */
+
+    // adds a trend that isn't counted, into the given empty slot, and returns its index
+    private int add(String trend, int slot) {
+        int t;
+        if (freeSize > 0) {t = free[--freeSize];}
+        else {
+            if (size == trends.length) {grow();}
+            t = size++;
+        }
+        live++;
+        trends[t] = trend;
+        counts[t] = 0;
+        positions[t] = -1;
+        if (bucketMillis != 0) {lastBucket[t] = Long.MIN_VALUE;}
+        slots[slot] = t + 1;
+        // keep the table at most half full
+        if (live * 2 > slots.length) {rehash(slots.length * 2);}
+        return t;
+    }
+
+    // forgets a trend that is no longer used within the window. Its slot is emptied by
+    // moving later entries of the same run back, so that no lookup stops short.
+    private void remove(int t) {
+        int mask = slots.length - 1;
+        int i = find(trends[t]);
+        slots[i] = 0;
+        for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            int home = mix(trends[slots[j] - 1].hashCode()) & mask;
+            // the entry at j may move to i, unless its home is cyclically within (i, j]
+            boolean stays = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {slots[i] = slots[j]; slots[j] = 0; i = j;}
+        }
+        trends[t] = null;
+        if (freeSize == free.length) {free = Arrays.copyOf(free, freeSize * 2);}
+        free[freeSize++] = t;
+        live--;
+    }
+
+    // returns the slot of the trend, or the empty slot where it would go
+    private int find(String trend) {
+        return find(trend, 0, trend.length(), trend.hashCode(), false);
+    }
+
+    // the same, for the trend in the range of the text, lowercased or not
+    private int find(String text, int from, int to, int hash, boolean lower) {
+        int mask = slots.length - 1;
+        int i = mix(hash) & mask;
+        while (slots[i] != 0) {
+            String trend = trends[slots[i] - 1];
+            if (lower ? HashtagScanner.matches(trend, text, from, to)
+                : trend.length() == to - from && trend.regionMatches(0, text, from, to - from)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // doubles the arrays of the trends
+    private void grow() {
+        int capacity = trends.length * 2;
+        trends = Arrays.copyOf(trends, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        if (bucketMillis != 0) {
+            lastBucket = Arrays.copyOf(lastBucket, capacity);
+            lastSlot = Arrays.copyOf(lastSlot, capacity);
+        }
+    }
+
+    // makes a hash table of the given size, and puts every trend back in it
+    private void rehash(int length) {
+        slots = new int[length];
+        int mask = slots.length - 1;
+        for (int t = 0; t < size; t++) {
+            if (trends[t] == null) {continue;}
+            int i = mix(trends[t].hashCode()) & mask;
+            while (slots[i] != 0) {i = (i + 1) & mask;}
+            slots[i] = t + 1;
+        }
+    }
+
+    // spreads the bits of the hash code, so that similar trends don't land in the same slots
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,287 @@
+/**
+ * PREAMBLE
+ *
+ * This counts trends approximately, in memory that is fixed when it is made, no matter how
+ * many distinct trends come through. The TrendCounter keeps one entry per distinct trend
+ * forever, which is fine for real hashtags, but a node that runs for months and is sent
+ * millions of made up spam hashtags would keep growing until it ran out of memory.
+ *
+ * It is a Count-Min Sketch: a table of depth rows by width counters. Every row hashes a
+ * trend to one of its counters, differently from the other rows. A use adds one to the
+ * trend's counter in every row, and the count of a trend is the smallest of its counters.
+ * Counters are shared by the trends that land on them, so a count can be too high, but
+ * never too low. With width = e / epsilon and depth = ln(1 / delta), a count is more than
+ * epsilon * N too high (for N uses in total) with a probability of at most delta.
+ * A use only raises the counters that are at the trend's smallest (conservative update),
+ * which never makes a count wrong, but keeps the counters of rare trends lower.
+ *
+ * The sketch can't list the trends it has seen, so the most used ones are also kept in a
+ * small min-heap of TRACKED trends, ordered by their counts, with a hash table from a trend
+ * to its place in the heap:
+ * • a trend in the heap has its count updated, and moves down the heap
+ * • a trend that isn't, replaces the least used trend of the heap if its count is now higher
+ * So a spam hashtag used a few times takes up room in the heap for a short while at most,
+ * and never in the sketch. top() sorts the heap and returns the first ten of it.
+ *
+ * Everything is allocated in the constructor, so inserting never allocates anything,
+ * apart from the string of a trend counted from the range of a message (as found by the
+ * HashtagScanner) the moment it enters the heap.
+ *
+ * @author: u1504360
+ */
+
+package uk.ac.warwick.java.cs126.services;
+
+public class TrendSketch {
+
+    // how many trends top returns
+    public static final int K = TrendCounter.K;
+
+    // how many of the most used trends are kept in the heap
+    public static final int TRACKED = 4 * K;
+
+    /*
+     * • counters holds the sketch, row after row, each of width counters
+     * • heapTrends and heapCounts are the heap of the most used trends, least used first,
+     *   and heapOrder is when each of them was first counted, for breaking ties
+     * • slots is the hash table from a trend in the heap to its place there, plus one (so
+     *   that 0 means empty)
+     */
+    private final int width, depth;
+    private final int[] counters;
+    private final String[] heapTrends;
+    private final long[] heapCounts, heapOrder;
+    private int heapSize;
+    private final int[] slots;
+    private long total;
+    private long order;
+
+    /*
+     * Every count is at most epsilon times the total amount of uses too high, except with a
+     * probability of at most delta. Both must be between 0 and 1.
+     * The sketch takes e / epsilon * ln(1 / delta) ints: for epsilon = 0.0001 and delta =
+     * 0.001, that is about 190,000 of them, or 760KB.
+     */
+    public TrendSketch(double epsilon, double delta) {
+        if (!(epsilon > 0 && epsilon < 1) || !(delta > 0 && delta < 1)) {
+            throw new IllegalArgumentException("epsilon and delta must be between 0 and 1");
+        }
+        width = (int) Math.ceil(Math.E / epsilon);
+        depth = (int) Math.ceil(Math.log(1 / delta));
+        counters = new int[width * depth];
+        heapTrends = new String[TRACKED];
+        heapCounts = new long[TRACKED];
+        heapOrder = new long[TRACKED];
+        heapSize = 0;
+        slots = new int[Integer.highestOneBit(TRACKED * 4 - 1) << 1];
+        total = 0;
+        order = 0;
+    }
+
+    /* HERE BEGIN THE PUBLIC METHODS */
+
+    // Returns the amount of counters in every row of the sketch
+    public int getWidth() {
+        return width;
+    }
+
+    // Returns the amount of rows of the sketch
+    public int getDepth() {
+        return depth;
+    }
+
+    // Returns the amount of uses counted, of every trend
+    public long total() {
+        return total;
+    }
+
+    /*
+     * COUNT – O(depth)
+     * Returns an estimate of how many times the trend has been used. It is never lower than
+     * the real count.
+     */
+    public int count(String trend) {
+        int h = trend.hashCode();
+        int h1 = mix(h), h2 = mix(h ^ 0x5BD1E995) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[column(h1, h2, row)]);
+        }
+        return min;
+    }
+
+    /*
+     * INSERT – O(depth + log TRACKED)
+     * Counts one more use of the trend.
+     */
+    public void insert(String trend) {
+        insert(trend, 0, trend.length(), trend.hashCode(), false);
+    }
+
+    /*
+     * INSERT (RANGE) – the same, plus O(L) for a trend of L characters
+     * Counts one more use of the trend made of the characters of the text from index from
+     * to index to, lowercased.
+     */
+    public void insert(String text, int from, int to) {
+        insert(text, from, to, HashtagScanner.hash(text, from, to), true);
+    }
+
+    /*
+     * TOP – O(TRACKED^2), for the insertion sort of the heap, which is quick for so few
+     * Returns the K most used trends as far as the sketch can tell, most used first. If
+     * fewer than K trends have been used, the rest of the array is null.
+     */
+    public String[] top() {
+        int[] byCount = new int[heapSize];
+        for (int i = 0; i < heapSize; i++) {byCount[i] = i;}
+        // an insertion sort, as there are only TRACKED of them
+        for (int i = 1; i < heapSize; i++) {
+            int x = byCount[i], j = i;
+            while (j > 0 && before(x, byCount[j-1])) {byCount[j] = byCount[j-1]; j--;}
+            byCount[j] = x;
+        }
+        String[] result = new String[K];
+        for (int i = 0; i < K && i < heapSize; i++) {result[i] = heapTrends[byCount[i]];}
+        return result;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT KEEP THE HEAP */
+
+    // counts the trend in the range of the text, lowercased or not, whose hash is given
+    private void insert(String text, int from, int to, int h, boolean lower) {
+        total++;
+        int h1 = mix(h), h2 = mix(h ^ 0x5BD1E995) | 1;
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counters[column(h1, h2, row)]);
+        }
+        // the counters above the smallest already count more than this trend's uses
+        for (int row = 0; row < depth; row++) {
+            int c = column(h1, h2, row);
+            if (counters[c] == min) {counters[c]++;}
+        }
+        track(text, from, to, h, lower, (long) min + 1);
+    }
+
+    // puts the trend's new count in the heap, if it belongs there
+    private void track(String text, int from, int to, int h, boolean lower, long count) {
+        int slot = find(text, from, to, h, lower);
+        if (slots[slot] != 0) {
+            int at = slots[slot] - 1;
+            heapCounts[at] = count;
+            siftDown(at);
+        }
+        else if (heapSize < TRACKED) {
+            int at = heapSize++;
+            heapTrends[at] = trend(text, from, to, lower);
+            heapCounts[at] = count;
+            heapOrder[at] = order++;
+            slots[slot] = at + 1;
+            siftUp(at);
+        }
+        else if (count > heapCounts[0]) {
+            // the least used trend makes way for this one
+            unslot(heapTrends[0]);
+            heapTrends[0] = trend(text, from, to, lower);
+            heapCounts[0] = count;
+            heapOrder[0] = order++;
+            slots[find(heapTrends[0])] = 1;
+            siftDown(0);
+        }
+    }
+
+    // the trend in the range of the text, as a string of its own
+    private static String trend(String text, int from, int to, boolean lower) {
+        if (lower) {return HashtagScanner.lowerCase(text, from, to);}
+        return text.substring(from, to);
+    }
+
+    // whether the trend at heap place a should come before the one at b in the top
+    private boolean before(int a, int b) {
+        if (heapCounts[a] != heapCounts[b]) {return heapCounts[a] > heapCounts[b];}
+        return heapOrder[a] < heapOrder[b];
+    }
+
+    // moves the trend at the place up the heap, past the trends it is used less than
+    private void siftUp(int at) {
+        while (at > 0) {
+            int parent = (at - 1) / 2;
+            if (!before(parent, at)) {return;}
+            swap(at, parent);
+            at = parent;
+        }
+    }
+
+    // moves the trend at the place down the heap, past the trends it is used more than
+    private void siftDown(int at) {
+        while (true) {
+            int least = at, l = 2 * at + 1, r = l + 1;
+            if (l < heapSize && before(least, l)) {least = l;}
+            if (r < heapSize && before(least, r)) {least = r;}
+            if (least == at) {return;}
+            swap(at, least);
+            at = least;
+        }
+    }
+
+    // swaps two places of the heap, and the places their slots point at
+    private void swap(int a, int b) {
+        int slotA = find(heapTrends[a]), slotB = find(heapTrends[b]);
+        slots[slotA] = b + 1;
+        slots[slotB] = a + 1;
+        String t = heapTrends[a]; heapTrends[a] = heapTrends[b]; heapTrends[b] = t;
+        long c = heapCounts[a]; heapCounts[a] = heapCounts[b]; heapCounts[b] = c;
+        long o = heapOrder[a]; heapOrder[a] = heapOrder[b]; heapOrder[b] = o;
+    }
+
+    /* HERE BEGIN PRIVATE METHODS THAT KEEP THE HASH TABLE AND THE SKETCH */
+
+    // returns the slot of the trend, or the empty slot where it would go. The table is at
+    // least four times the size of the heap, so it is never more than a quarter full, and
+    // its size is a power of two, so a hash is masked into it and every probe can reach
+    // every slot.
+    private int find(String trend) {
+        return find(trend, 0, trend.length(), trend.hashCode(), false);
+    }
+
+    // the same, for the trend in the range of the text, lowercased or not
+    private int find(String text, int from, int to, int hash, boolean lower) {
+        int mask = slots.length - 1;
+        int i = mix(hash) & mask;
+        while (slots[i] != 0) {
+            String trend = heapTrends[slots[i] - 1];
+            if (lower ? HashtagScanner.matches(trend, text, from, to)
+                : trend.length() == to - from && trend.regionMatches(0, text, from, to - from)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // empties the slot of a trend that leaves the heap, moving later entries of the same
+    // run back, so that no lookup stops short
+    private void unslot(String trend) {
+        int mask = slots.length - 1;
+        int i = find(trend);
+        slots[i] = 0;
+        for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            int home = mix(heapTrends[slots[j] - 1].hashCode()) & mask;
+            // the entry at j may move to i, unless its home is cyclically within (i, j]
+            boolean stays = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {slots[i] = slots[j]; slots[j] = 0; i = j;}
+        }
+    }
+
+    // the counter of the trend in the row: every row combines the two hashes differently
+    private int column(int h1, int h2, int row) {
+        return row * width + Integer.remainderUnsigned(h1 + row * h2, width);
+    }
+
+    // spreads the bits of the hash code, so that similar trends don't land on the same counters
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}